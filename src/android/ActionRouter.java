@@ -0,0 +1,103 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaInterface;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps plugin actions to their handlers, and runs each handler on the thread its action needs.
+ *
+ * <ul>
+ *     <li>{@link Policy#UI} - posted to the UI thread, for actions that touch views or the activity.</li>
+ *     <li>{@link Policy#BACKGROUND} - run on Cordova's thread pool, for actions that call the launcher
+ *     or another process, or read files, so they don't hold up the bridge.</li>
+ *     <li>{@link Policy#INLINE} - run on the bridge thread, for actions that only touch plugin
+ *     state.</li>
+ * </ul>
+ * A handler that throws has the exception reported to its caller as an error, whichever thread it
+ * ran on.
+ */
+class ActionRouter {
+
+    enum Policy {
+        UI,
+        BACKGROUND,
+        INLINE
+    }
+
+    /**
+     * Handles one action.  The handler sends its own result.
+     */
+    interface Handler {
+        void handle(JSONArray args, CallbackContext callbackContext) throws JSONException;
+    }
+
+    private static final String TAG = ActionRouter.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final class Route {
+        private final Policy policy;
+        private final Handler handler;
+
+        private Route(Policy policy, Handler handler) {
+            this.policy = policy;
+            this.handler = handler;
+        }
+    }
+
+    private final CordovaInterface cordova;
+    private final Map<String, Route> routes = new HashMap<String, Route>();
+
+    ActionRouter(CordovaInterface cordova) {
+        this.cordova = cordova;
+    }
+
+    /**
+     * Registers the handler for an action, replacing any registered before.
+     * @return this, for chaining.
+     */
+    ActionRouter register(String action, Policy policy, Handler handler) {
+        routes.put(action, new Route(policy, handler));
+        return this;
+    }
+
+    /**
+     * Runs the handler for an action according to its policy.
+     * @return false if no handler is registered for the action.
+     */
+    boolean route(final String action, final JSONArray args, final CallbackContext callbackContext) {
+        final Route route = routes.get(action);
+        if(route == null) {
+            return false;
+        }
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    route.handler.handle(args, callbackContext);
+                } catch(Exception ex) {
+                    LOG.e("Unable to handle " + action + ".", ex);
+                    callbackContext.error("Exception: " + ex.getMessage());
+                }
+            }
+        };
+
+        switch(route.policy) {
+            case UI:
+                cordova.getActivity().runOnUiThread(task);
+                break;
+            case BACKGROUND:
+                cordova.getThreadPool().execute(task);
+                break;
+            default:
+                task.run();
+                break;
+        }
+        return true;
+    }
+}
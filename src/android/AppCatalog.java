@@ -0,0 +1,302 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Build;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The apps on the device that can be launched, with their labels and icons, for home screens built
+ * in JS.
+ *
+ * The launchable activities are read from the PackageManager once per process and kept in memory;
+ * after that only the packages named by a package added / removed / changed broadcast are read
+ * again.  Icons are rasterized once, to WebP files in the app's cache directory named after the
+ * package and its version code, so they survive restarts and are redrawn only when the app is
+ * updated.
+ *
+ * On Android 11 and later the PackageManager only returns apps the host can see; plugin.xml adds
+ * the MAIN / LAUNCHER {@code <queries>} entry to the manifest so every launchable app is listed.
+ *
+ * Listing can take seconds on a cold catalog, so {@link #trim()} and {@link #close()}, which run on
+ * the main thread, never wait for it: the catalog is replaced as a whole rather than changed in
+ * place, and a trim during a list simply keeps that list's result from being published.
+ */
+class AppCatalog {
+
+    private static final String TAG = AppCatalog.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final String ICON_DIRECTORY = "firstphone-app-icons";
+    private static final String ICON_EXTENSION = ".webp";
+    //48dp at xxhdpi, enough for a home grid on the devices we ship.
+    private static final int ICON_SIZE_PX = 144;
+
+    private final Context appContext;
+    private final File iconDirectory;
+
+    //keyed by package name, in package order; never changed once published, null when trimmed.
+    private final AtomicReference<Map<String, Entry>> entries = new AtomicReference<Map<String, Entry>>();
+    private volatile boolean closed = false;
+
+    //only held around registering and unregistering the receiver, never while listing.
+    private final Object receiverLock = new Object();
+    private boolean receiverRegistered = false;
+
+    //packages changed since the catalog was last read; guarded by itself, as the receiver runs on the main thread.
+    private final Set<String> changedPackages = new HashSet<String>();
+
+    private static final class Entry {
+        private final String packageName;
+        private final String label;
+        private final File icon;
+
+        private Entry(String packageName, String label, File icon) {
+            this.packageName = packageName;
+            this.label = label;
+            this.icon = icon;
+        }
+    }
+
+    AppCatalog(Context appContext) {
+        this.appContext = appContext;
+        this.iconDirectory = new File(appContext.getCacheDir(), ICON_DIRECTORY);
+    }
+
+    /**
+     * Lists the launchable apps.  Reads the PackageManager and draws icons as needed, so call it off
+     * the UI thread.
+     * @param packagePrefix - only apps whose package starts with this, or null / empty for all.
+     * @return [{packageName, label, icon}], by package; icon is a file URL, or null if the app's
+     * icon couldn't be drawn.
+     */
+    synchronized JSONArray list(String packagePrefix) throws JSONException {
+        synchronized(receiverLock) {
+            if(!closed && !receiverRegistered) {
+                IntentFilter filter = new IntentFilter();
+                filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+                filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+                filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+                filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+                filter.addDataScheme("package");
+                appContext.registerReceiver(packageChangedReceiver, filter);
+                receiverRegistered = true;
+            }
+        }
+
+        Set<String> changed;
+        synchronized(changedPackages) {
+            changed = new HashSet<String>(changedPackages);
+            changedPackages.clear();
+        }
+
+        Map<String, Entry> current = entries.get();
+        Map<String, Entry> updated;
+        if(current == null) {
+            updated = new TreeMap<String, Entry>();
+            for(ResolveInfo info : launchableActivities(null)) {
+                addEntry(updated, info);
+            }
+        } else {
+            updated = new TreeMap<String, Entry>(current);
+            for(String packageName : changed) {
+                updated.remove(packageName);
+                for(ResolveInfo info : launchableActivities(packageName)) {
+                    addEntry(updated, info);
+                }
+
+                if(!updated.containsKey(packageName)) {
+                    //uninstalled or no longer launchable.
+                    deleteIcons(packageName);
+                }
+            }
+        }
+
+        //not published if trimmed or closed meanwhile.
+        if(!closed) {
+            entries.compareAndSet(current, updated);
+        }
+
+        JSONArray catalog = new JSONArray();
+        for(Entry entry : updated.values()) {
+            if(packagePrefix != null && !packagePrefix.isEmpty() && !entry.packageName.startsWith(packagePrefix)) {
+                continue;
+            }
+
+            JSONObject app = new JSONObject();
+            app.put("packageName", entry.packageName);
+            app.put("label", entry.label);
+            app.put("icon", entry.icon != null ? Uri.fromFile(entry.icon).toString() : JSONObject.NULL);
+            catalog.put(app);
+        }
+        return catalog;
+    }
+
+    /**
+     * Drops the in-memory catalog; it is read again, with the icons from disk, on the next list.
+     * Doesn't wait for a list in progress.
+     */
+    void trim() {
+        entries.set(null);
+    }
+
+    /**
+     * Stops listening for package changes.  Doesn't wait for a list in progress.
+     */
+    void close() {
+        closed = true;
+        synchronized(receiverLock) {
+            if(receiverRegistered) {
+                try {
+                    appContext.unregisterReceiver(packageChangedReceiver);
+                } catch(Exception ex) {
+                    LOG.e("Exception during unregistration.", ex);
+                }
+                receiverRegistered = false;
+            }
+        }
+        entries.set(null);
+    }
+
+    private List<ResolveInfo> launchableActivities(String packageName) {
+        Intent launchable = new Intent(Intent.ACTION_MAIN);
+        launchable.addCategory(Intent.CATEGORY_LAUNCHER);
+        if(packageName != null) {
+            launchable.setPackage(packageName);
+        }
+
+        List<ResolveInfo> infos = appContext.getPackageManager().queryIntentActivities(launchable, 0);
+        return infos != null ? infos : new ArrayList<ResolveInfo>();
+    }
+
+    private void addEntry(Map<String, Entry> entries, ResolveInfo info) {
+        if(info.activityInfo == null || entries.containsKey(info.activityInfo.packageName)) {
+            //one entry per app, for its first launcher activity (the one startApp opens).
+            return;
+        }
+
+        PackageManager packageManager = appContext.getPackageManager();
+        String packageName = info.activityInfo.packageName;
+        CharSequence label = info.loadLabel(packageManager);
+
+        File icon;
+        try {
+            PackageInfo packageInfo = packageManager.getPackageInfo(packageName, 0);
+            long versionCode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ?
+                    packageInfo.getLongVersionCode() : packageInfo.versionCode;
+            icon = cachedIcon(info, packageName, versionCode);
+        } catch(PackageManager.NameNotFoundException ex) {
+            //uninstalled since it was resolved; the removed broadcast follows.
+            return;
+        }
+
+        entries.put(packageName, new Entry(packageName, label != null ? label.toString() : packageName, icon));
+    }
+
+    /**
+     * @return the icon file for this version of the app, drawing it if it isn't cached yet; null if
+     * it couldn't be drawn.
+     */
+    private File cachedIcon(ResolveInfo info, String packageName, long versionCode) {
+        File icon = new File(iconDirectory, packageName + "_" + versionCode + ICON_EXTENSION);
+        if(icon.isFile()) {
+            return icon;
+        }
+
+        deleteIcons(packageName);
+        if(!iconDirectory.isDirectory() && !iconDirectory.mkdirs()) {
+            LOG.w("Unable to create ", iconDirectory);
+            return null;
+        }
+
+        Drawable drawable = info.loadIcon(appContext.getPackageManager());
+        if(drawable == null) {
+            return null;
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(ICON_SIZE_PX, ICON_SIZE_PX, Bitmap.Config.ARGB_8888);
+        try {
+            drawable.setBounds(0, 0, ICON_SIZE_PX, ICON_SIZE_PX);
+            drawable.draw(new Canvas(bitmap));
+
+            //written aside and renamed, so a half written icon is never picked up.
+            File temp = new File(iconDirectory, icon.getName() + ".tmp");
+            FileOutputStream out = new FileOutputStream(temp);
+            boolean written;
+            try {
+                written = bitmap.compress(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ?
+                        Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.WEBP, 100, out);
+            } finally {
+                out.close();
+            }
+
+            if(!written || !temp.renameTo(icon)) {
+                LOG.w("Unable to cache icon for ", packageName);
+                temp.delete();
+                return null;
+            }
+            return icon;
+        } catch(IOException ex) {
+            LOG.e("Unable to cache icon for " + packageName, ex);
+            return null;
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    private void deleteIcons(String packageName) {
+        File[] icons = iconDirectory.listFiles();
+        if(icons == null) {
+            return;
+        }
+
+        String prefix = packageName + "_";
+        for(File icon : icons) {
+            String name = icon.getName();
+            //only digits may follow the prefix, or it is the icon of another package with a longer name.
+            if(name.startsWith(prefix) && name.endsWith(ICON_EXTENSION) &&
+                    name.substring(prefix.length(), name.length() - ICON_EXTENSION.length()).matches("\\d+") &&
+                    !icon.delete()) {
+                LOG.w("Unable to delete ", icon.getName());
+            }
+        }
+    }
+
+    private final BroadcastReceiver packageChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if(data == null) {
+                return;
+            }
+
+            //only noted here; the next list reads the package again, without holding up the main thread.
+            synchronized(changedPackages) {
+                changedPackages.add(data.getSchemeSpecificPart());
+            }
+        }
+    };
+}
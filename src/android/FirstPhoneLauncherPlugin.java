@@ -1,160 +1,214 @@
 package com.homedepot.cordova.plugin.firstphone.launcher;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.ServiceConnection;
-import android.content.pm.ResolveInfo;
 import android.net.Uri;
-import android.os.Build;
-import android.os.IBinder;
-import android.os.RemoteException;
-import android.util.Log;
 
-import android.view.inputmethod.InputMethodManager;
-import com.homedepot.ngfp.session.service.IRemoteSessionService;
 import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+import com.homedepot.ngfp.session.support.SharedSessionData;
 import com.homedepot.ngfp.session.support.SharedUserSessionData;
 
 import org.apache.cordova.CallbackContext;
-import org.apache.cordova.CordovaInterface;
 import org.apache.cordova.CordovaPlugin;
-import org.apache.cordova.CordovaWebView;
 import org.apache.cordova.PluginResult;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.lang.reflect.Method;
-
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 
 public class FirstPhoneLauncherPlugin extends CordovaPlugin {
 
     private static final String PLUGIN_ACTION_START_APP_SESSION = "startApp";
     private static final String PLUGIN_ACTION_GET_DEVICE_SESSION = "getDevice";
     private static final String PLUGIN_ACTION_GET_USER_SESSION = "getUser";
+    private static final String PLUGIN_ACTION_GET_SSO_TOKEN = "getSsoToken";
     private static final String PLUGIN_ACTION_GET_SETTINGS = "getSettings";
     private static final String PLUGIN_ACTION_EXIT = "exit";
     private static final String PLUGIN_ACTION_GOTO_HOME = "goHome";
     private static final String PLUGIN_ACTION_DIAL = "dial";
     private static final String PLUGIN_ACTION_SHOW_KEYBOARD = "showKeyboard";
     private static final String PLUGIN_ACTION_HIDE_KEYBOARD = "hideKeyboard";
-
-    private static final String INTENT_ACTION_REQUEST_APP_SHUTDOWN = "com.homedepot.ACTION_REQUEST_APP_SHUTDOWN";
-    private static final String INTENT_EXTRA_DEVICE_SESSION = "com.homedepot.EXTRA_DEVICE_SESSION";
-    private static final String INTENT_EXTRA_USER_SESSION = "com.homedepot.EXTRA_USER_SESSION";
+    private static final String PLUGIN_ACTION_WATCH_KEYBOARD = "watchKeyboard";
+    private static final String PLUGIN_ACTION_CLEAR_KEYBOARD_WATCH = "clearKeyboardWatch";
+    private static final String PLUGIN_ACTION_GET_START_PAYLOAD = "getStartPayload";
+    private static final String PLUGIN_ACTION_SEARCH_DIRECTORY = "searchDirectory";
+    private static final String PLUGIN_ACTION_GET_VOICE_SETTINGS = "getVoiceSettings";
+    private static final String PLUGIN_ACTION_WATCH_PTT_CHANNELS = "watchPttChannels";
+    private static final String PLUGIN_ACTION_CLEAR_PTT_CHANNEL_WATCH = "clearPttChannelWatch";
+    private static final String PLUGIN_ACTION_GET_STARTUP_TIMELINE = "getStartupTimeline";
+    private static final String PLUGIN_ACTION_GET_SESSION_STATS = "getSessionStats";
+    private static final String PLUGIN_ACTION_WATCH_SHUTDOWN = "watchShutdown";
+    private static final String PLUGIN_ACTION_SAVE_CHECKPOINT = "saveCheckpoint";
+    private static final String PLUGIN_ACTION_RESTORE_CHECKPOINT = "restoreCheckpoint";
+    private static final String PLUGIN_ACTION_GET_APP_CATALOG = "getAppCatalog";
+
+    //searchDirectory limit when the caller doesn't give one.
+    private static final int DIRECTORY_SEARCH_DEFAULT_LIMIT = 20;
+
+    //startApp options; "extras" copies every parameter into the Intent, "sharedMemory" hands them over as one payload.
+    private static final String START_OPTION_PAYLOAD_MODE = "payloadMode";
+    private static final String PAYLOAD_MODE_SHARED_MEMORY = "sharedMemory";
+
+    //exit options; "finish" ends the activity, "suspend" only moves the app to the background.
+    private static final String EXIT_OPTION_MODE = "mode";
+    private static final String EXIT_MODE_SUSPEND = "suspend";
 
     public static final String ACTION_USER_SESSION_CHANGED = "com.homedepot.ngfp.ACTION_USER_SESSION_CHANGED";
     public static final String ACTION_DEVICE_SESSION_CHANGED = "com.homedepot.ngfp.ACTION_DEVICE_SESSION_CHANGED";
 
-    private SharedDeviceSessionData cachedDeviceSession = null;
-    private SharedUserSessionData cachedUserSession = null;
+    //shared preferences file for state the plugin keeps between runs.
+    static final String PREFS_NAME = "com.homedepot.cordova.plugin.firstphone.launcher";
+
+    //config.xml preference selecting when the launcher session service is bound.
+    private static final String PREFERENCE_STARTUP_MODE = "FirstPhoneLauncherStartupMode";
+    private static final String STARTUP_MODE_EAGER = "eager";
+    private static final String STARTUP_MODE_LAZY = "lazy";
+    private static final String STARTUP_MODE_IDLE = "idle";
+
+    //config.xml preference pinning the session service component, e.g. a stand-in service for load tests.
+    private static final String PREFERENCE_SESSION_SERVICE = "FirstPhoneLauncherSessionService";
+
+    //config.xml preference to unbind from the launcher while the app is in the background.
+    private static final String PREFERENCE_RELEASE_ON_PAUSE = "FirstPhoneLauncherReleaseOnPause";
+
+    //config.xml preference to record performance counters to an app-private file for the MDM agent.
+    private static final String PREFERENCE_TELEMETRY = "FirstPhoneLauncherTelemetry";
+
+    //config.xml preference to trace the cold start, see getStartupTimeline.
+    private static final String PREFERENCE_STARTUP_TRACE = "FirstPhoneLauncherStartupTrace";
+
     private Activity activity = null;
     private Context appContext = null;
 
-    private boolean isBound = false;
-    private IRemoteSessionService remoteSessionService = null;
+    //the most recent intent this app was (re)started with, read by getStartPayload.
+    private volatile Intent lastIntent = null;
+    //set by exit in suspend mode until the app is resumed; keeps the launcher bound while in the background.
+    private volatile boolean suspended = false;
+    //shared with the plugin instances of any other WebViews in the process.
+    private SessionRepository sessionRepository = null;
+    private KeyboardController keyboardController = null;
+    private KeyboardVisibilityMonitor keyboardVisibilityMonitor = null;
+    private StoreDirectory storeDirectory = null;
+    private AppCatalog appCatalog = null;
+    private final PttChannelWatcher pttChannelWatcher = new PttChannelWatcher();
+    private ShutdownCheckpoint shutdownCheckpoint = null;
+    //maps each action to its handler and the thread it runs on; see registerActions.
+    private ActionRouter actionRouter = null;
 
     private static final String TAG = FirstPhoneLauncherPlugin.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
 
 
+    /**
+     * Only the work needed no matter the startup mode happens here; with onload set this runs on the
+     * UI thread while the WebView is coming up.  Everything else is deferred to
+     * {@link SessionRepository#warmUp(Intent)}:
+     * <ul>
+     *     <li>eager - warm up on a background thread right away.</li>
+     *     <li>lazy - warm up on the first session action.</li>
+     *     <li>idle - warm up once the first page has finished loading (default).</li>
+     * </ul>
+     * The repository is shared with every other WebView's plugin, so only the first of them
+     * actually warms it up.
+     */
     @Override
-    public void initialize(CordovaInterface cordova, CordovaWebView webView) {
-        super.initialize(cordova, webView);
-
-        activity = cordova.getActivity();
-        appContext = cordova.getActivity().getApplicationContext();
-
-        Intent i = activity.getIntent();
+    protected void pluginInitialize() {
+        if(preferences.getBoolean(PREFERENCE_STARTUP_TRACE, false)) {
+            StartupTrace.enable();
+        }
 
-        if(i != null) {
-            //though I wouldn't expect init to be called unless this activity had just been created,
-            //there's a chance the activity no longer has access to the start intent.
-            if(i.getParcelableExtra(INTENT_EXTRA_DEVICE_SESSION) != null) {
-                cachedDeviceSession = i.getParcelableExtra(INTENT_EXTRA_DEVICE_SESSION);
-                Log.i(TAG, "Device session data provided in start intent. Caching provided object.");
-            } else {
-                Log.w(TAG, "Device session data not provided in start intent.");
+        boolean traced = StartupTrace.begin(StartupTrace.Milestone.PLUGIN_INITIALIZE);
+        try {
+            activity = cordova.getActivity();
+            appContext = cordova.getActivity().getApplicationContext();
+
+            String pinnedService = preferences.getString(PREFERENCE_SESSION_SERVICE, null);
+            sessionRepository = SessionRepository.acquire(appContext,
+                    pinnedService != null ? ComponentName.unflattenFromString(pinnedService) : null, repositoryHolder);
+            keyboardController = new KeyboardController(activity, webView.getView());
+            keyboardVisibilityMonitor = new KeyboardVisibilityMonitor(webView.getView());
+            storeDirectory = new StoreDirectory(appContext);
+            appCatalog = new AppCatalog(appContext);
+            shutdownCheckpoint = new ShutdownCheckpoint(appContext, checkpointKey());
+            actionRouter = new ActionRouter(cordova);
+            registerActions(actionRouter);
+            sessionRepository.addDeviceSessionListener(pttChannelWatcher);
+
+            if(preferences.getBoolean(PREFERENCE_TELEMETRY, false)) {
+                sessionRepository.enableTelemetry();
             }
 
-            if(i.getParcelableExtra(INTENT_EXTRA_USER_SESSION) != null) {
-                cachedUserSession = i.getParcelableExtra(INTENT_EXTRA_USER_SESSION);
-                Log.i(TAG, "User session data provided in start intent. Caching provided object.");
-            } else {
-                Log.i(TAG, "User session data not provided in start intent.");
+            if(STARTUP_MODE_EAGER.equalsIgnoreCase(startupMode())) {
+                sessionRepository.warmUpInBackground(activity.getIntent());
+            }
+        } finally {
+            if(traced) {
+                StartupTrace.end(StartupTrace.Milestone.PLUGIN_INITIALIZE);
             }
         }
+    }
 
-        activity.registerReceiver(appShutdownReceiver, new IntentFilter(INTENT_ACTION_REQUEST_APP_SHUTDOWN));
-
-
-        IntentFilter filter = new IntentFilter();
-        filter.addAction(ACTION_DEVICE_SESSION_CHANGED);
-        filter.addAction(ACTION_USER_SESSION_CHANGED);
-        activity.registerReceiver(sessionChangedReceiver, filter);
-
-        isBound = createServiceIntent();
-
-        if(isBound && remoteSessionService == null) {
-            //Since init gets called just before the first method call, let's try to make sure the
-            //service has time for binding.
-            try {
-                Thread.sleep(250);
-            } catch(InterruptedException ex) {
-                Log.e(TAG, "Interrupted while waiting for service binding.");
-            }
+    @Override
+    public Object onMessage(String id, Object data) {
+        if("onPageFinished".equals(id) && STARTUP_MODE_IDLE.equalsIgnoreCase(startupMode())) {
+            sessionRepository.warmUpInBackground(activity.getIntent());
         }
 
+        return null;
     }
 
+    private String startupMode() {
+        return preferences.getString(PREFERENCE_STARTUP_MODE, STARTUP_MODE_IDLE);
+    }
 
     /**
-     * Lollipop and above, bound service must be started with an explicit intent
-     * @return boolean result of bound service connection.
+     * Optionally lets go of the launcher while the app is in the background; see
+     * {@link SessionRepository#pause(SessionRepository.Holder, boolean)}.  The cache is revalidated
+     * on resume.  An app suspended by exit stays bound until memory runs low.
      */
-    private boolean createServiceIntent() {
-
-        boolean result = false;
+    @Override
+    public void onPause(boolean multitasking) {
+        sessionRepository.pause(repositoryHolder,
+                !suspended && preferences.getBoolean(PREFERENCE_RELEASE_ON_PAUSE, false));
+    }
 
-        if (appContext.getApplicationInfo().targetSdkVersion >= Build.VERSION_CODES.LOLLIPOP) {
-            Intent explicitIntent = new Intent(IRemoteSessionService.class.getName());
-            ResolveInfo info = appContext.getPackageManager().resolveService(explicitIntent, 0);
-            explicitIntent.setComponent(new ComponentName(info.serviceInfo.packageName,info.serviceInfo.name));
-            result = appContext.bindService(explicitIntent, sessionServiceConnection, Context.BIND_AUTO_CREATE);
-        } else {
-            result = activity.bindService(new Intent(IRemoteSessionService.class.getName()),
-                    sessionServiceConnection, Context.BIND_AUTO_CREATE);
-            Log.w(TAG, "Implicit intents with startService are not safe");
-        }
+    @Override
+    public void onResume(boolean multitasking) {
+        suspended = false;
+        sessionRepository.resume(repositoryHolder);
+    }
 
-        return result;
+    /**
+     * The launcher may hand a running app fresh session data by re-delivering its start intent.
+     * @param intent
+     */
+    @Override
+    public void onNewIntent(final Intent intent) {
+        lastIntent = intent;
+        sessionRepository.onNewIntent(intent);
     }
 
     @Override
     public void onDestroy() {
-        try {
-            activity.unregisterReceiver(appShutdownReceiver);
-        } catch(Exception ex) {
-            Log.e(TAG, "Exception during unregistration: " + ex.getMessage(), ex);
+        pttChannelWatcher.stop();
+        if(shutdownCheckpoint != null) {
+            shutdownCheckpoint.stop();
         }
-
-        try {
-            activity.unregisterReceiver(sessionChangedReceiver);
-        } catch(Exception ex) {
-            Log.e(TAG, "Exception during unregistration: " + ex.getMessage(), ex);
+        if(appCatalog != null) {
+            appCatalog.close();
+        }
+        if(sessionRepository != null) {
+            sessionRepository.removeDeviceSessionListener(pttChannelWatcher);
+            sessionRepository.release(repositoryHolder);
         }
 
-        try {
-            activity.unbindService(sessionServiceConnection);
-        } catch(Exception ex) {
-            Log.e(TAG, "Exception while unbinding from service: " + ex.getMessage(), ex);
+        if(keyboardVisibilityMonitor != null) {
+            keyboardVisibilityMonitor.stop();
         }
 
         super.onDestroy();
@@ -162,57 +216,204 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
 
     @Override
     public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
-        try {
-            if(PLUGIN_ACTION_START_APP_SESSION.equals(action)) {
-                return handleStartApp(args, callbackContext);
-            } else if(PLUGIN_ACTION_GET_DEVICE_SESSION.equals(action)) {
-                return handleGetDevice(callbackContext);
-            } else if(PLUGIN_ACTION_GET_USER_SESSION.equals(action)) {
-                return handleGetUser(callbackContext);
-            } else if(PLUGIN_ACTION_GET_SETTINGS.equals(action)) {
-                return handleGetSettings(callbackContext);
-            } else if(PLUGIN_ACTION_DIAL.equals(action)) {
+        if(actionRouter.route(action, args, callbackContext)) {
+            return true;
+        }
+
+        PluginResult result = new PluginResult(PluginResult.Status.INVALID_ACTION);
+        if(!result.getKeepCallback()) {
+            callbackContext.sendPluginResult(result);
+        }
+
+        return false;
+    }
+
+    /**
+     * Registers every action with the thread it runs on: launcher and file access in the
+     * background, activity and view work on the UI thread, and plugin bookkeeping inline.
+     * @param router
+     */
+    private void registerActions(ActionRouter router) {
+        router.register(PLUGIN_ACTION_START_APP_SESSION, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleStartApp(args, callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GET_DEVICE_SESSION, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleGetDevice(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GET_USER_SESSION, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleGetUser(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GET_SSO_TOKEN, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleGetSsoToken(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GET_SETTINGS, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                //the first settings result is usually what the app's first screen is waiting on.
+                boolean traced = StartupTrace.begin(StartupTrace.Milestone.FIRST_SETTINGS);
+                try {
+                    handleGetSettings(callbackContext);
+                } finally {
+                    if(traced) {
+                        StartupTrace.end(StartupTrace.Milestone.FIRST_SETTINGS);
+                    }
+                }
+            }
+        }).register(PLUGIN_ACTION_GET_VOICE_SETTINGS, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleGetVoiceSettings(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_WATCH_PTT_CHANNELS, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleWatchPttChannels(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_CLEAR_PTT_CHANNEL_WATCH, ActionRouter.Policy.INLINE, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                pttChannelWatcher.stop();
+                callbackContext.success();
+            }
+        }).register(PLUGIN_ACTION_GET_STARTUP_TIMELINE, ActionRouter.Policy.INLINE, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.success(StartupTrace.timeline());
+            }
+        }).register(PLUGIN_ACTION_GET_SESSION_STATS, ActionRouter.Policy.INLINE, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.success(sessionRepository.stats());
+            }
+        }).register(PLUGIN_ACTION_WATCH_SHUTDOWN, ActionRouter.Policy.INLINE, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                shutdownCheckpoint.watch(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_SAVE_CHECKPOINT, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleSaveCheckpoint(args.optString(0, ""), callbackContext);
+            }
+        }).register(PLUGIN_ACTION_RESTORE_CHECKPOINT, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleRestoreCheckpoint(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GET_START_PAYLOAD, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleGetStartPayload(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_SEARCH_DIRECTORY, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleSearchDirectory(args.optString(0, ""),
+                        args.optInt(1, DIRECTORY_SEARCH_DEFAULT_LIMIT), callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GET_APP_CATALOG, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleGetAppCatalog(args.optString(0, ""), callbackContext);
+            }
+        }).register(PLUGIN_ACTION_DIAL, ActionRouter.Policy.BACKGROUND, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) throws JSONException {
                 String number = "";
                 if(args != null && args.length() > 0) {
+                    if(args.get(0) instanceof JSONObject && ((JSONObject) args.get(0)).has("entryId")) {
+                        handleDialEntry(((JSONObject) args.get(0)).getString("entryId"), callbackContext);
+                        return;
+                    }
                     number = String.valueOf(args.get(0));
                 }
-                return handleDial(number, callbackContext);
-            } else if(PLUGIN_ACTION_EXIT.equals(action)) {
-                return handleExit(callbackContext);
-            } else if(PLUGIN_ACTION_GOTO_HOME.equals(action)) {
-                return handleNavigateHome(callbackContext);
-            } else if (PLUGIN_ACTION_SHOW_KEYBOARD.equals(action)){
-                return handleShowKeyboard(callbackContext);
-            } else if (PLUGIN_ACTION_HIDE_KEYBOARD.equals(action)){
-                return handleHideKeyboard(callbackContext);
-            } else {
-                PluginResult result = new PluginResult(PluginResult.Status.INVALID_ACTION);
-                if(!result.getKeepCallback()) {
-                    callbackContext.sendPluginResult(result);
-                }
-
-                return false;
+                handleDial(number, callbackContext);
             }
-        } catch(Exception ex) {
-            callbackContext.error("Exception: " + ex.getMessage());
-            return false;
-        }
+        }).register(PLUGIN_ACTION_EXIT, ActionRouter.Policy.UI, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                JSONObject options = args.optJSONObject(0);
+                handleExit(options != null && EXIT_MODE_SUSPEND.equals(options.optString(EXIT_OPTION_MODE)),
+                        callbackContext);
+            }
+        }).register(PLUGIN_ACTION_GOTO_HOME, ActionRouter.Policy.UI, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleNavigateHome(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_SHOW_KEYBOARD, ActionRouter.Policy.UI, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleShowKeyboard(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_HIDE_KEYBOARD, ActionRouter.Policy.UI, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleHideKeyboard(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_WATCH_KEYBOARD, ActionRouter.Policy.UI, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleWatchKeyboard(callbackContext);
+            }
+        }).register(PLUGIN_ACTION_CLEAR_KEYBOARD_WATCH, ActionRouter.Policy.UI, new ActionRouter.Handler() {
+            @Override
+            public void handle(JSONArray args, CallbackContext callbackContext) {
+                handleClearKeyboardWatch(callbackContext);
+            }
+        });
     }
 
-    private boolean handleShowKeyboard(CallbackContext callbackContext){
-        InputMethodManager mgr = (InputMethodManager) cordova.getActivity().getSystemService(Context.INPUT_METHOD_SERVICE);
-        mgr.showSoftInput(webView.getView(), InputMethodManager.SHOW_IMPLICIT);
+    private void handleShowKeyboard(CallbackContext callbackContext){
+        keyboardController.show(callbackContext);
+    }
 
-        ((InputMethodManager) cordova.getActivity().getSystemService(Context.INPUT_METHOD_SERVICE)).showSoftInput(webView.getView(), 0);
+    private void handleHideKeyboard(CallbackContext callbackContext){
+        keyboardController.hide(callbackContext);
+    }
 
-        return true;
+    /**
+     * Keeps the callback alive and sends it an event every time the soft keyboard is shown, hidden
+     * or resized.
+     * @param callbackContext
+     */
+    private void handleWatchKeyboard(CallbackContext callbackContext){
+        keyboardVisibilityMonitor.watch(callbackContext);
     }
 
-    private boolean handleHideKeyboard(CallbackContext callbackContext){
-        InputMethodManager mgr = (InputMethodManager) cordova.getActivity().getSystemService(Context.INPUT_METHOD_SERVICE);
-        mgr.hideSoftInputFromWindow(webView.getView().getWindowToken(), 0);
+    private void handleClearKeyboardWatch(CallbackContext callbackContext){
+        keyboardVisibilityMonitor.stop();
+        callbackContext.success();
+    }
+
+    /**
+     * Returns the parameters another app handed to this one with startApp in sharedMemory mode, as
+     * a JSON string.  Returns an empty result if this app wasn't started that way.
+     * @param callbackContext
+     */
+    private void handleGetStartPayload(CallbackContext callbackContext) {
+        Intent intent = lastIntent != null ? lastIntent : activity.getIntent();
 
-        return true;
+        //reading the payload is a binder call into the launching app, hence the background policy.
+        try {
+            String payload = PayloadHandoff.read(intent);
+            if(payload != null) {
+                callbackContext.success(payload);
+            } else {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK));
+            }
+        } catch(IOException ex) {
+            LOG.e("Unable to read start payload.", ex);
+            callbackContext.error("Unable to read start payload: " + ex.getMessage());
+        }
     }
 
     /**
@@ -222,31 +423,31 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
      *
      * @param args
      * @param callbackContext
-     * @return
      */
 
-    private synchronized boolean handleStartApp(JSONArray args, CallbackContext callback) {
+    private synchronized void handleStartApp(JSONArray args, CallbackContext callback) {
         String com_name = null;
-        String activity = null;
         Intent LaunchIntent;
 
         try {
             if (args.get(0) instanceof JSONArray) {
-                JSONObject jsonObject = ((JSONArray) args.get(0)).getJSONObject(0);
                 com_name = ((JSONArray) args.get(0)).getJSONObject(0).getString("packageName");
             } else {
                 com_name = args.getString(0);
-                System.out.println("PackageName" + com_name);
             }
 
             LaunchIntent = this.cordova.getActivity().getPackageManager().getLaunchIntentForPackage(com_name);
 
+            JSONObject options = args.optJSONObject(2);
+            boolean sharedMemory = options != null &&
+                    PAYLOAD_MODE_SHARED_MEMORY.equals(options.optString(START_OPTION_PAYLOAD_MODE));
+            JSONObject payload = new JSONObject();
+
             /**
              * put arguments
              */
             if(args.length() > 1) {
                 JSONArray params = args.getJSONArray(1);
-                JSONObject key_value;
                 String key;
                 String value;
 
@@ -257,8 +458,14 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
                             key = iter.next();
                             try {
                                 value = params.getJSONObject(i).getString(key);
+                                if(sharedMemory) {
+                                    payload.put(key, value);
+                                    continue;
+                                }
                                 LaunchIntent.putExtra(key, value);
-                                System.out.println("Key: " + key + "; Value: " + value);
+                                if(LOG.isDebugEnabled()) {
+                                    LOG.d("Key: " + key + "; Value: " + value);
+                                }
                             } catch (JSONException e) {
                                 callback.error("json params: " + e.toString());
                             }
@@ -270,6 +477,11 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
                 }
             }
 
+            if(sharedMemory) {
+                //large parameter sets would overflow the binder transaction buffer as Intent extras.
+                PayloadHandoff.attach(this.cordova.getActivity(), LaunchIntent, payload.toString());
+            }
+
             this.cordova.getActivity().startActivity(LaunchIntent);
             callback.success();
 
@@ -278,7 +490,6 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
         } catch (Exception e) {
             callback.error("intent: " + e.toString());
         }
-        return true;
     }
 
     /**
@@ -286,28 +497,31 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
      * via the callback context.
      *
      * @param callbackContext
-     * @return
      */
-    private synchronized boolean handleGetDevice(CallbackContext callbackContext) {
+    private void handleGetDevice(CallbackContext callbackContext) {
         PluginResult result = null;
-        boolean success = true;
-
-        if(cachedDeviceSession == null) {
-            refreshCachedDevice();
-        }
-
-        if(cachedDeviceSession == null) {
-            success = false;
-            result = new PluginResult(PluginResult.Status.ERROR); //Can't use no result here because we should _always_ have a device session (need store # no matter what).
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        sessionRepository.ensureServiceReady(activity.getIntent());
+
+        SessionRepository.Result<SharedDeviceSessionData> session = sessionRepository.deviceSession(startNanos);
+        SharedDeviceSessionData device = session.getSession();
+        if(device == null) {
+            //Can't use no result here because we should _always_ have a device session (need store # no matter what).
+            error = sessionError(session, SessionError.NO_DEVICE_SESSION);
+            result = error.toPluginResult("Device session unavailable.");
         } else {
-            result = new PluginResult(PluginResult.Status.OK, deviceSessionToJson(cachedDeviceSession));
+            result = new PluginResult(PluginResult.Status.OK, deviceSessionToJson(device));
         }
 
+        sessionRepository.getTelemetry().record(TelemetryRecorder.EVENT_GET_DEVICE, startWallMs, startNanos,
+                session.getCacheOutcome(), error);
+
         if(!result.getKeepCallback()) {
             callbackContext.sendPluginResult(result);
         }
-
-        return success;
     }
 
     /**
@@ -315,178 +529,372 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
      * via the callback context.
      *
      * @param callbackContext
-     * @return
      */
-    private synchronized boolean handleGetUser(CallbackContext callbackContext) {
+    private void handleGetUser(CallbackContext callbackContext) {
         PluginResult result = null;
-        boolean success = true;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        sessionRepository.ensureServiceReady(activity.getIntent());
+        sessionRepository.noteUserSessionDemanded();
+
+        SessionRepository.Result<SharedUserSessionData> session = sessionRepository.userSession(startNanos);
+        SharedUserSessionData user = session.getSession();
+        if(user == null) {
+            error = sessionError(session, SessionError.NO_USER_SESSION);
+            result = error.toPluginResult("User session unavailable.");
+        } else {
+            result = new PluginResult(PluginResult.Status.OK, sessionRepository.userSessionJson(user));
+        }
 
-        if(cachedUserSession == null) {
-            refreshCachedUser();
+        sessionRepository.getTelemetry().record(TelemetryRecorder.EVENT_GET_USER, startWallMs, startNanos,
+                session.getCacheOutcome(), error);
+
+        if(!result.getKeepCallback()) {
+            callbackContext.sendPluginResult(result);
         }
+    }
 
-        if(cachedUserSession == null) {
-            result = new PluginResult(PluginResult.Status.ERROR);
+    /**
+     * Returns the logged in user's THD SSO token to the caller.  The token is kept out of the
+     * getUser result so it only crosses the bridge when an app actually asks for it.
+     *
+     * @param callbackContext
+     */
+    private void handleGetSsoToken(CallbackContext callbackContext) {
+        PluginResult result = null;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        sessionRepository.ensureServiceReady(activity.getIntent());
+        sessionRepository.noteUserSessionDemanded();
+
+        SessionRepository.Result<SharedUserSessionData> session = sessionRepository.userSession(startNanos);
+        SharedUserSessionData user = session.getSession();
+        char[] token = user != null ? user.copyThdSsoToken() : null;
+        if(user == null) {
+            error = sessionError(session, SessionError.NO_USER_SESSION);
+            result = error.toPluginResult("User session unavailable.");
+        } else if(token == null) {
+            //the session ended while we were reading it.
+            error = SessionError.NO_USER_SESSION;
+            result = error.toPluginResult("No SSO token for the user session.");
         } else {
-            result = new PluginResult(PluginResult.Status.OK, userSessionToJson(cachedUserSession));
+            //the bridge only carries Strings, so the WebView gets one; the plugin keeps no reference to it.
+            result = new PluginResult(PluginResult.Status.OK, new String(token));
+            Arrays.fill(token, '\0');
         }
 
+        sessionRepository.getTelemetry().record(TelemetryRecorder.EVENT_GET_SSO_TOKEN, startWallMs, startNanos,
+                session.getCacheOutcome(), error);
 
         if(!result.getKeepCallback()) {
             callbackContext.sendPluginResult(result);
         }
-
-        return success;
     }
 
-    private synchronized boolean handleGetSettings(CallbackContext callbackContext) {
+    private void handleGetSettings(CallbackContext callbackContext) {
         PluginResult result = null;
-        boolean success = true;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
 
-        if(cachedDeviceSession == null) {
-            refreshCachedDevice();
-        }
+        sessionRepository.ensureServiceReady(activity.getIntent());
+        sessionRepository.noteUserSessionDemanded();
 
-        if(cachedUserSession == null) {
-            refreshCachedUser();
-        }
+        SessionRepository.Result<SharedSessionData> session = sessionRepository.sessions(startNanos);
+        SharedDeviceSessionData device = session.getSession().getDeviceSession();
+        SharedUserSessionData user = session.getSession().getUserSession();
 
-        if(cachedDeviceSession == null) {
+        if(device == null) {
             //If the device session is null, we really have no business being in an application as we don't
             //know store number or other device details.  This equals a failure.
-            Log.e(TAG, "Device session is null, unable to return device data to cordova plugin.");
-            result = new PluginResult(PluginResult.Status.ERROR);
+            LOG.eRateLimited("Device session is null, unable to return device data to cordova plugin.", null);
+            error = sessionError(session, SessionError.NO_DEVICE_SESSION);
+            result = error.toPluginResult("Device session unavailable.");
+        } else if(session.getError() != null) {
+            //the user session couldn't be fetched, which is not the same as nobody being logged in.
+            LOG.eRateLimited("User session could not be fetched, unable to return settings to cordova plugin.", null);
+            error = session.getError();
+            result = error.toPluginResult("User session unavailable.");
         } else {
             //Note that user session can be null if the user is not logged in - several apps are available
             //in that state.  We will return a settings object with as much data as possible based on the
             //state of the device.
-            Log.i(TAG, "Session data has been retrieved or is cached, returning to cordova plugin.");
+            LOG.d("Session data has been retrieved or is cached, returning to cordova plugin.");
             result = new PluginResult(PluginResult.Status.OK,
-                    sessionDataToFrameworkSettingsJson(cachedUserSession, cachedDeviceSession));
+                    sessionDataToFrameworkSettingsJson(user, device));
         }
 
+        sessionRepository.getTelemetry().record(TelemetryRecorder.EVENT_GET_SETTINGS, startWallMs, startNanos,
+                session.getCacheOutcome(), error);
+
         if(!result.getKeepCallback()) {
             callbackContext.sendPluginResult(result);
         }
-
-        return success;
     }
 
     /**
-     * Attempts to get device info using the launcher service
+     * Returns the device's VoIP registration code and push-to-talk channels.
+     *
+     * @param callbackContext
      */
-    private void refreshCachedDevice() {
-        SharedDeviceSessionData deviceSession = deviceSessionFromService();
+    private void handleGetVoiceSettings(CallbackContext callbackContext) {
+        PluginResult result = null;
 
-        //make sure device session isn't empty
-        if(validateDeviceSession(deviceSession)) {
-            //validated, cache it.
-            cachedDeviceSession = deviceSessionFromService();
+        sessionRepository.ensureServiceReady(activity.getIntent());
+
+        SessionRepository.Result<SharedDeviceSessionData> session = sessionRepository.deviceSession();
+        SharedDeviceSessionData device = session.getSession();
+        if(device == null) {
+            result = sessionError(session, SessionError.NO_DEVICE_SESSION).toPluginResult("Device session unavailable.");
         } else {
-            cachedDeviceSession = null;
+            result = new PluginResult(PluginResult.Status.OK, voiceSettingsToJson(device));
         }
 
+        if(!result.getKeepCallback()) {
+            callbackContext.sendPluginResult(result);
+        }
     }
 
     /**
-     * Attempts to get user info using the launcher service
+     * Keeps the callback alive and sends it the push-to-talk channels added and removed whenever
+     * the device session is refreshed; the first event lists every channel as added.
+     * @param callbackContext
      */
-    private void refreshCachedUser() {
-        SharedUserSessionData userSession = userSessionFromService();
+    private void handleWatchPttChannels(CallbackContext callbackContext) {
+        sessionRepository.ensureServiceReady(activity.getIntent());
+        SharedDeviceSessionData device = sessionRepository.deviceSession().getSession();
+        //the watcher starts from whichever is newer, this session or one cached since.  With no device
+        //session yet, the first event is sent once one is fetched.
+        pttChannelWatcher.watch(callbackContext, device);
+    }
 
-        //make sure user session isn't empty
-        if(validateUserSession(userSession)) {
-            //validated, cache it.
-            cachedUserSession = userSessionFromService();
-        } else {
-            cachedUserSession = null;
+    /**
+     * Saves the app's state for the current user, e.g. in answer to a shutdown request from
+     * watchShutdown, which then goes ahead.
+     * @param state - the state as a JSON string.
+     * @param callbackContext
+     */
+    private void handleSaveCheckpoint(String state, CallbackContext callbackContext) {
+        //a shutdown deadline may be running, so the user is only taken from the cache; asking the
+        //launcher could wait on the binding or the rate limit past it.
+        SessionRepository.Result<SharedUserSessionData> user = sessionRepository.peekUserSession();
+        if(user == null) {
+            LOG.w("User session not cached, not saving checkpoint.");
+            shutdownCheckpoint.proceed();
+            callbackContext.error("Unable to save checkpoint: user session not available.");
+            return;
+        }
+
+        try {
+            shutdownCheckpoint.save(user.getSession() != null ? user.getSession().getUserId() : null, state);
+        } catch(IOException ex) {
+            LOG.e("Unable to save checkpoint.", ex);
+            callbackContext.error("Unable to save checkpoint: " + ex.getMessage());
+            return;
         }
+
+        callbackContext.success();
     }
 
     /**
-     * Validate the device session.  The device ID and store number should be present. Note that
-     * it is a valid scenario for no store number to exist, though users should not be able to get into
-     * applications when this occurs.
-     * @param device
-     * @return
+     * Returns the state saved with saveCheckpoint before the app was last shut down, as a JSON
+     * string, and forgets it.  Returns an empty result if there is none, or it was saved for
+     * another user.
+     * @param callbackContext
      */
-    private boolean validateDeviceSession(SharedDeviceSessionData device) {
-        if(device != null && device.getDeviceId() != null && !device.getDeviceId().isEmpty() &&
-                device.getStoreNumber() != null && !device.getStoreNumber().isEmpty()) {
-            return true;
-        } else {
-            return false;
+    private void handleRestoreCheckpoint(CallbackContext callbackContext) {
+        try {
+            String state = shutdownCheckpoint.restore(currentUserId());
+            if(state != null) {
+                callbackContext.success(state);
+            } else {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK));
+            }
+        } catch(IOException ex) {
+            LOG.e("Unable to restore checkpoint.", ex);
+            callbackContext.error("Unable to restore checkpoint: " + ex.getMessage());
         }
     }
 
     /**
-     * Validate the user session - the user ID, at the very least, should be present.
-     * @param user
+     * @return the key of this WebView's checkpoint: the activity and the WebView's view ID, which
+     * are the same from one start to the next.
+     */
+    private String checkpointKey() {
+        return activity.getClass().getName() + "-" + webView.getView().getId();
+    }
+
+    /**
+     * @return the ID of the user logged in, or null if there is none or the launcher can't say.
+     */
+    private String currentUserId() {
+        sessionRepository.ensureServiceReady(activity.getIntent());
+        SharedUserSessionData user = sessionRepository.userSession().getSession();
+        return user != null ? user.getUserId() : null;
+    }
+
+    /**
+     * Picks the error for a session that couldn't be served.  A failure talking to the launcher
+     * takes precedence over the session simply being absent.
+     * @param session - the read that came back without a session.
+     * @param absent - the error to report if the launcher answered but had no valid session.
      * @return
      */
-    private boolean validateUserSession(SharedUserSessionData user) {
-        if(user != null && user.getUserId() != null && !user.getUserId().isEmpty()) {
-            return true;
-        } else {
-            return false;
-        }
+    private static SessionError sessionError(SessionRepository.Result<?> session, SessionError absent) {
+        return session.getError() != null ? session.getError() : absent;
     }
 
 
     /**
      * Forces the application / activity to exit at request of the caller.
+     *
+     * Suspending moves the app's task to the background instead of finishing the activity, so the
+     * WebView, the session cache and the launcher binding are still there when the app is next
+     * launched; the system takes them back in stages if it needs the memory (see
+     * {@link SessionRepository}).
+     * @param suspend - whether to suspend rather than finish.
      * @param callbackContext
-     * @return
      */
-    private boolean handleExit(CallbackContext callbackContext) {
+    private void handleExit(boolean suspend, CallbackContext callbackContext) {
         PluginResult result = new PluginResult(PluginResult.Status.OK);
         callbackContext.sendPluginResult(result);
 
-        activity.finish();
+        if(suspend) {
+            suspended = true;
+            if(activity.moveTaskToBack(true)) {
+                return;
+            }
+            suspended = false;
+            LOG.w("Unable to move the task to the background, finishing instead.");
+        }
 
-        return true;
+        activity.finish();
     }
 
 
     /**
      * Forces the application to close without exiting and show home screen.
      * @param callbackContext
-     * @return
      */
-    private boolean handleNavigateHome(CallbackContext callbackContext) {
+    private void handleNavigateHome(CallbackContext callbackContext) {
 
-        Log.i(TAG, "handleNavigateHome method called");        
+        LOG.d("handleNavigateHome method called");
 
         try {
           Intent i = new Intent(Intent.ACTION_MAIN);
           i.addCategory(Intent.CATEGORY_HOME);
           activity.startActivity(i);
         } catch (Exception e) {
-          Log.e(TAG, "Exception occurred: ".concat(e.getMessage()));
-          return false;
+          LOG.e("Exception occurred while navigating home.", e);
+          callbackContext.error("Unable to navigate home: " + e.getMessage());
+          return;
         }
 
         PluginResult result = new PluginResult(PluginResult.Status.OK);
         callbackContext.sendPluginResult(result);
-
-        return true;
     }
     
     /**
      * Brings up the default system dialer with the number specified already entered.
      * @param phoneNumber
      * @param callbackContext
-     * @return
      */
-    private boolean handleDial(String phoneNumber, CallbackContext callbackContext) {
+    private void handleDial(String phoneNumber, CallbackContext callbackContext) {
         Intent i = new Intent(Intent.ACTION_DIAL);
         i.setData(Uri.parse(phoneNumber));
         activity.startActivity(i);
 
         PluginResult result = new PluginResult(PluginResult.Status.OK);
         callbackContext.sendPluginResult(result);
+    }
+
+    /**
+     * Brings up the dialer with the number of a store directory entry, resolved here rather than
+     * in JS.
+     * @param entryId - the id of an entry returned by searchDirectory.
+     * @param callbackContext
+     */
+    private void handleDialEntry(String entryId, CallbackContext callbackContext) {
+        StoreDirectory.Index index = storeDirectoryIndex(callbackContext);
+        if(index == null) {
+            return;
+        }
 
-        return true;
+        String number = index.numberFor(entryId);
+        if(number == null) {
+            callbackContext.error("No directory entry " + entryId);
+            return;
+        }
+
+        handleDial("tel:" + number, callbackContext);
+    }
+
+    /**
+     * Searches the store phone directory for entries whose name or extension starts with the
+     * prefix, and returns them as [{id, name, extension}].
+     * @param prefix
+     * @param limit - the most entries to return.
+     * @param callbackContext
+     */
+    private void handleSearchDirectory(String prefix, int limit, CallbackContext callbackContext) {
+        StoreDirectory.Index index = storeDirectoryIndex(callbackContext);
+        if(index == null) {
+            return;
+        }
+
+        try {
+            callbackContext.success(index.search(prefix, limit));
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert directory entries to JSON.", ex);
+            callbackContext.error("Unable to search directory.");
+        }
+    }
+
+    /**
+     * Lists the apps that can be launched with startApp, as [{packageName, label, icon}], where icon
+     * is a file URL of a cached WebP image.
+     * @param packagePrefix - only apps whose package starts with this; empty for all.
+     * @param callbackContext
+     */
+    private void handleGetAppCatalog(String packagePrefix, CallbackContext callbackContext) {
+        try {
+            callbackContext.success(appCatalog.list(packagePrefix));
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert app catalog to JSON.", ex);
+            callbackContext.error("Unable to list apps.");
+        }
+    }
+
+    /**
+     * Returns the directory index for the device's store, or sends the error to the caller.  Only
+     * called from background actions, as it may read the directory and the device session.
+     * @param callbackContext
+     * @return
+     */
+    private StoreDirectory.Index storeDirectoryIndex(CallbackContext callbackContext) {
+        sessionRepository.ensureServiceReady(activity.getIntent());
+        SessionRepository.Result<SharedDeviceSessionData> session = sessionRepository.deviceSession();
+        SharedDeviceSessionData device = session.getSession();
+        if(device == null) {
+            callbackContext.sendPluginResult(sessionError(session, SessionError.NO_DEVICE_SESSION)
+                    .toPluginResult("Device session unavailable."));
+            return null;
+        }
+
+        try {
+            return storeDirectory.indexFor(device.getStoreNumber());
+        } catch(IOException ex) {
+            LOG.e("Unable to read store directory.", ex);
+            callbackContext.error("Store directory unavailable.");
+        } catch(JSONException ex) {
+            LOG.e("Store directory is malformed.", ex);
+            callbackContext.error("Store directory unavailable.");
+        }
+        return null;
     }
 
     /**
@@ -506,46 +914,28 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
                 asJson.put("ipAddress", device.getIpAddress());
                 asJson.put("locale", device.getLocale());
             } catch(JSONException ex) {
-                Log.e(TAG, "Unable to convert device session object to JSON.", ex);
+                LOG.e("Unable to convert device session object to JSON.", ex);
             }
         }
 
         return asJson;
     }
 
-    /**
-     * Converts the user session object cached in this class to a JSON string. JSON Fields here will
-     * match the field names on the input POJO - these may not necessarily match the object structure
-     * and format expected by the HTML5 application framework.
-     * @return
-     */
-    private JSONObject userSessionToJson(SharedUserSessionData user) {
+    private JSONObject voiceSettingsToJson(SharedDeviceSessionData device) {
         JSONObject asJson = new JSONObject();
-        if(user != null) {
-            try {
-                asJson.put("departmentNumber", user.getDepartmentNumber());
-                asJson.put("firstName", user.getFirstName());
-                asJson.put("middleName", user.getMiddleName());
-                asJson.put("lastName", user.getLastName());
-                asJson.put("thdSsoToken", user.getThdSsoToken());
+        try {
+            asJson.put("voipRegistrationCode", device.getVoipRegistrationCode() != null ?
+                    device.getVoipRegistrationCode() : JSONObject.NULL);
 
-                if(user.getLdapGroups() != null) {
-                    JSONArray ldapGroupArray = new JSONArray();
-                    for(String group : user.getLdapGroups()) {
-                        ldapGroupArray.put(group);
-                    }
-                    asJson.put("ldapGroups", ldapGroupArray);
+            JSONArray channels = new JSONArray();
+            if(device.getPttChannelList() != null) {
+                for(String channel : device.getPttChannelList()) {
+                    channels.put(channel);
                 }
-
-                asJson.put("locationNumber", user.getLocationNumber());
-                asJson.put("locationType", user.getLocationType());
-                asJson.put("associateUserID", user.getUserId());
-                asJson.put("userType", user.getUserType());
-                asJson.put("imsUserLevel", user.getImsUserLevel());
-            } catch(JSONException ex) {
-                Log.e(TAG, "Unable to convert user session object to JSON.", ex);
-                asJson = null;
             }
+            asJson.put("pttChannelList", channels);
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert voice settings to JSON.", ex);
         }
 
         return asJson;
@@ -612,90 +1002,45 @@ public class FirstPhoneLauncherPlugin extends CordovaPlugin {
             settings.putOpt("services", services);
             settings.putOpt("estimatorServiceUri", estimatorServiceUri);
         } catch(JSONException jex) {
-            Log.e(TAG, "Error writing objects to JSON, unable to return session object.", jex);
+            LOG.e("Error writing objects to JSON, unable to return session object.", jex);
         }
 
         return settings;
     }
 
-    /**
-     * Attempts to retrieve device session from AIDL service. Returns null if an exception occurs or
-     * service is not bound / available.
-     * @return
-     */
-    private SharedDeviceSessionData deviceSessionFromService() {
-        SharedDeviceSessionData data = null;
-        if(remoteSessionService != null) {
-            try {
-                data = remoteSessionService.getDeviceData();
-            } catch(RemoteException ex) {
-                Log.e(TAG, "Remote exception thrown while attempting to retrieve device data from AIDL service.", ex);
-                data = null;
-            }
-        } else {
-            Log.e(TAG, "Attempt to retrieve device data when session service null (not bound/available).");
-            data = null;
-        }
-
-        return data;
-    }
-
-    /**
-     * Attempts to retrieve user session from AIDL service. Returns null if an exception occurs or
-     * service is not bound / available.
-     * @return
-     */
-    private SharedUserSessionData userSessionFromService() {
-        SharedUserSessionData data = null;
-        if(remoteSessionService != null) {
-            try {
-                data = remoteSessionService.getUserData();
-            } catch(RemoteException ex) {
-                Log.e(TAG, "Remote exception thrown while attempting to retrieve user data from AIDL service.", ex);
-                data = null;
-            }
-        } else {
-            Log.e(TAG, "Attempt to retrieve user data when session service null (not bound/available).");
-            data = null;
-        }
-
-        return data;
-    }
-
-    private final BroadcastReceiver appShutdownReceiver = new BroadcastReceiver() {
+    private final Runnable finishOnShutdown = new Runnable() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            Log.i(TAG, "Application shutdown request received.  Calling 'finish()' on Phonegap activity.");
+        public void run() {
+            LOG.i("Application shutdown request received.  Calling 'finish()' on Phonegap activity.");
 
             if(activity != null) {
                 activity.finish();
             } else {
-                Log.e(TAG, "Activity is null when attempting to shutdown.  Unable to call finish()");
+                LOG.e("Activity is null when attempting to shutdown.  Unable to call finish()");
             }
         }
     };
 
-    private final BroadcastReceiver sessionChangedReceiver = new BroadcastReceiver() {
+    private final SessionRepository.Holder repositoryHolder = new SessionRepository.Holder() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            //Make sure we clear the cache when the session has changed.  This will force a pull from
-            //the Launcher IPC service next time an app requests session data.  Note that an app's
-            //process should be killed as well for most session change events, so that would effectively
-            //force a re-retrieval as well.
-            cachedDeviceSession = null;
-            cachedUserSession = null;
-        }
-    };
+        public void onAppShutdownRequested() {
+            if(shutdownCheckpoint == null) {
+                finishOnShutdown.run();
+                return;
+            }
 
-    private ServiceConnection sessionServiceConnection = new ServiceConnection() {
-        @Override
-        public void onServiceConnected(ComponentName name, IBinder service) {
-            remoteSessionService = IRemoteSessionService.Stub.asInterface(service);
+            //JS watching for the shutdown gets a chance to save its state first.
+            shutdownCheckpoint.requestShutdown(finishOnShutdown);
         }
 
         @Override
-        public void onServiceDisconnected(ComponentName name) {
-            remoteSessionService = null;
+        public void onTrimMemory(int level) {
+            if(storeDirectory != null) {
+                storeDirectory.trim();
+            }
+            if(appCatalog != null) {
+                appCatalog.trim();
+            }
         }
     };
 }
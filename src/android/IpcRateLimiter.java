@@ -0,0 +1,47 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.os.SystemClock;
+
+/**
+ * A token bucket limiting how many calls this process makes to the launcher's session service.
+ *
+ * Every app on the device shares the launcher's binder threads, so a page that fires dozens of
+ * session actions at once shouldn't be able to tie them all up.  Up to {@code capacity} calls may
+ * go out back to back; after that they are let through at {@code perSecond}.
+ */
+class IpcRateLimiter {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    //guarded by this.
+    private double tokens;
+    private long refilledAtNanos;
+
+    /**
+     * @param capacity - the most calls let through in a burst.
+     * @param perSecond - the sustained rate once the burst is used up.
+     */
+    IpcRateLimiter(int capacity, double perSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = perSecond / 1000000000.0;
+        this.tokens = capacity;
+        this.refilledAtNanos = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Takes a token for one call, if there is one.
+     * @return true if the call may go out.
+     */
+    synchronized boolean tryAcquire() {
+        long now = SystemClock.elapsedRealtimeNanos();
+        tokens = Math.min(capacity, tokens + (now - refilledAtNanos) * tokensPerNano);
+        refilledAtNanos = now;
+
+        if(tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,165 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ResultReceiver;
+import android.view.View;
+import android.view.inputmethod.InputMethodManager;
+
+import org.apache.cordova.CallbackContext;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows and hides the soft keyboard for the WebView.
+ *
+ * Requests are applied on the UI thread after a short delay so that a burst of show / hide calls
+ * (scanner driven focus changes on our forms) collapses into a single request for the last state
+ * asked for.  Every caller in the burst is completed with the visibility reported back by the input
+ * method.  The input method doesn't always report back - it may be switched or die, or the window
+ * may lose focus - so callers still waiting after {@link #RESULT_TIMEOUT_MS} are completed with the
+ * visibility read from the window insets instead.
+ */
+class KeyboardController {
+
+    private static final String TAG = KeyboardController.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final long COALESCE_DELAY_MS = 50;
+
+    //how long the input method has to report the result of a request.
+    static final long RESULT_TIMEOUT_MS = 500;
+
+    private final Activity activity;
+    private final View view;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    //only touched on the UI thread.
+    private InputMethodManager inputMethodManager = null;
+
+    private boolean requestedVisible = false;
+    private final List<CallbackContext> pendingCallbacks = new ArrayList<CallbackContext>();
+
+    KeyboardController(Activity activity, View view) {
+        this.activity = activity;
+        this.view = view;
+    }
+
+    void show(CallbackContext callbackContext) {
+        request(true, callbackContext);
+    }
+
+    void hide(CallbackContext callbackContext) {
+        request(false, callbackContext);
+    }
+
+    private synchronized void request(boolean visible, CallbackContext callbackContext) {
+        requestedVisible = visible;
+        pendingCallbacks.add(callbackContext);
+
+        mainHandler.removeCallbacks(applyRequest);
+        mainHandler.postDelayed(applyRequest, COALESCE_DELAY_MS);
+    }
+
+    private InputMethodManager inputMethodManager() {
+        if(inputMethodManager == null) {
+            inputMethodManager = (InputMethodManager) activity.getSystemService(Context.INPUT_METHOD_SERVICE);
+        }
+        return inputMethodManager;
+    }
+
+    private final Runnable applyRequest = new Runnable() {
+        @Override
+        public void run() {
+            final boolean visible;
+            final List<CallbackContext> callbacks;
+            synchronized(KeyboardController.this) {
+                visible = requestedVisible;
+                callbacks = new ArrayList<CallbackContext>(pendingCallbacks);
+                pendingCallbacks.clear();
+            }
+
+            AppliedRequest request = new AppliedRequest(callbacks);
+            InputMethodManager mgr = inputMethodManager();
+            if(visible) {
+                boolean accepted = mgr.showSoftInput(view, InputMethodManager.SHOW_IMPLICIT, request);
+                if(!accepted && view.requestFocus()) {
+                    //the WebView has to be the focused view for the input method to accept it.
+                    accepted = mgr.showSoftInput(view, InputMethodManager.SHOW_IMPLICIT, request);
+                }
+
+                if(!accepted) {
+                    LOG.w("Input method did not accept the show keyboard request.");
+                    fail(callbacks, "Unable to show keyboard.");
+                    return;
+                }
+            } else if(!mgr.hideSoftInputFromWindow(view.getWindowToken(), 0, request)) {
+                //nothing to hide.
+                complete(callbacks, false);
+                return;
+            }
+
+            mainHandler.postDelayed(request, RESULT_TIMEOUT_MS);
+        }
+    };
+
+    /**
+     * The callbacks of a request the input method accepted.  They are completed once, with the
+     * result the input method reports back or, if it doesn't in time, with the visibility at that
+     * point.  Only touched on the UI thread.
+     */
+    private class AppliedRequest extends ResultReceiver implements Runnable {
+        private final List<CallbackContext> callbacks;
+        private boolean completed = false;
+
+        AppliedRequest(List<CallbackContext> callbacks) {
+            super(mainHandler);
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        protected void onReceiveResult(int resultCode, Bundle resultData) {
+            mainHandler.removeCallbacks(this);
+            finish(resultCode == InputMethodManager.RESULT_SHOWN ||
+                    resultCode == InputMethodManager.RESULT_UNCHANGED_SHOWN);
+        }
+
+        @Override
+        public void run() {
+            LOG.w("Input method did not report back, completing keyboard request with the current state.");
+            finish(KeyboardVisibilityMonitor.keyboardHeight(view.getRootView()) > 0);
+        }
+
+        private void finish(boolean visible) {
+            if(!completed) {
+                completed = true;
+                complete(callbacks, visible);
+            }
+        }
+    }
+
+    private void complete(List<CallbackContext> callbacks, boolean visible) {
+        JSONObject state = new JSONObject();
+        try {
+            state.put("visible", visible);
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert keyboard state to JSON.", ex);
+        }
+
+        for(CallbackContext callback : callbacks) {
+            callback.success(state);
+        }
+    }
+
+    private void fail(List<CallbackContext> callbacks, String message) {
+        for(CallbackContext callback : callbacks) {
+            callback.error(message);
+        }
+    }
+}
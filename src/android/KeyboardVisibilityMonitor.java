@@ -0,0 +1,175 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.graphics.Insets;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.WindowInsets;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pushes soft keyboard show / hide events for the WebView to a kept-alive callback, so the HTML5
+ * applications don't need to poll layout height.
+ *
+ * The keyboard state is read from the root window insets (or the visible display frame before
+ * Marshmallow) after every layout pass of the WebView's root view.  Layout passes are debounced,
+ * and an event is only sent when the visibility or keyboard height actually changed.
+ */
+class KeyboardVisibilityMonitor {
+
+    private static final String TAG = KeyboardVisibilityMonitor.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final long DEBOUNCE_MS = 100;
+
+    //below API 30 a bottom inset smaller than this share of the root view is a navigation bar, not a keyboard.
+    private static final float MIN_KEYBOARD_HEIGHT_RATIO = 0.15f;
+
+    private final View view;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private CallbackContext callbackContext = null;
+
+    //only touched on the UI thread.
+    private boolean listening = false;
+    private boolean lastVisible = false;
+    private int lastHeight = -1;
+
+    KeyboardVisibilityMonitor(View view) {
+        this.view = view;
+    }
+
+    /**
+     * Starts sending keyboard events to the given callback, replacing any previous watcher.  The
+     * current state is sent right away.
+     */
+    synchronized void watch(CallbackContext callbackContext) {
+        if(this.callbackContext != null) {
+            this.callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+        }
+        this.callbackContext = callbackContext;
+
+        PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+        result.setKeepCallback(true);
+        callbackContext.sendPluginResult(result);
+
+        mainHandler.post(startListening);
+    }
+
+    /**
+     * Stops sending keyboard events and releases the current callback.
+     */
+    synchronized void stop() {
+        if(callbackContext != null) {
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+            callbackContext = null;
+        }
+
+        mainHandler.post(stopListening);
+    }
+
+    private final Runnable startListening = new Runnable() {
+        @Override
+        public void run() {
+            lastHeight = -1;
+            if(!listening) {
+                view.getRootView().getViewTreeObserver().addOnGlobalLayoutListener(layoutListener);
+                listening = true;
+            }
+            mainHandler.removeCallbacks(publishState);
+            mainHandler.post(publishState);
+        }
+    };
+
+    private final Runnable stopListening = new Runnable() {
+        @Override
+        public void run() {
+            mainHandler.removeCallbacks(publishState);
+            if(listening) {
+                ViewTreeObserver observer = view.getRootView().getViewTreeObserver();
+                if(observer.isAlive()) {
+                    observer.removeOnGlobalLayoutListener(layoutListener);
+                }
+                listening = false;
+            }
+        }
+    };
+
+    private final ViewTreeObserver.OnGlobalLayoutListener layoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            mainHandler.removeCallbacks(publishState);
+            mainHandler.postDelayed(publishState, DEBOUNCE_MS);
+        }
+    };
+
+    private final Runnable publishState = new Runnable() {
+        @Override
+        public void run() {
+            View root = view.getRootView();
+            int height = keyboardHeight(root);
+            boolean visible = height > 0;
+
+            if(visible == lastVisible && height == lastHeight) {
+                return;
+            }
+            lastVisible = visible;
+            lastHeight = height;
+
+            JSONObject event = new JSONObject();
+            try {
+                event.put("visible", visible);
+                //JS works in CSS pixels, which track density independent pixels on Android.
+                event.put("height", Math.round(height / root.getResources().getDisplayMetrics().density));
+            } catch(JSONException ex) {
+                LOG.e("Unable to convert keyboard state to JSON.", ex);
+            }
+
+            synchronized(KeyboardVisibilityMonitor.this) {
+                if(callbackContext != null) {
+                    PluginResult result = new PluginResult(PluginResult.Status.OK, event);
+                    result.setKeepCallback(true);
+                    callbackContext.sendPluginResult(result);
+                }
+            }
+        }
+    };
+
+    /**
+     * @return the keyboard height in pixels, 0 if the keyboard is hidden.
+     */
+    static int keyboardHeight(View root) {
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            WindowInsets insets = root.getRootWindowInsets();
+            if(insets == null || !insets.isVisible(WindowInsets.Type.ime())) {
+                return 0;
+            }
+
+            Insets ime = insets.getInsets(WindowInsets.Type.ime());
+            Insets systemBars = insets.getInsets(WindowInsets.Type.systemBars());
+            return Math.max(0, ime.bottom - systemBars.bottom);
+        }
+
+        int bottomInset;
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            WindowInsets insets = root.getRootWindowInsets();
+            if(insets == null) {
+                return 0;
+            }
+            bottomInset = insets.getSystemWindowInsetBottom() - insets.getStableInsetBottom();
+        } else {
+            Rect visibleFrame = new Rect();
+            root.getWindowVisibleDisplayFrame(visibleFrame);
+            bottomInset = root.getHeight() - visibleFrame.bottom;
+        }
+
+        return bottomInset > root.getHeight() * MIN_KEYBOARD_HEIGHT_RATIO ? bottomInset : 0;
+    }
+}
@@ -0,0 +1,326 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
+import android.os.Parcelable;
+import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hands a large startApp payload to the launched app without copying it into the Intent.
+ *
+ * A payload of up to {@link #INLINE_MAX_BYTES} is simply put in the Intent, which the system keeps
+ * for the launched app however long it takes to read it.  A larger payload is written once to a
+ * shared memory region (Oreo MR1 and above) or an app-private file.  Intents can't carry file
+ * descriptors, so the Intent only carries a small binder; the receiving app calls it once to get a read-only descriptor for the region, maps it and decodes
+ * the payload straight from the mapping.  The sending side keeps the region available for
+ * {@link #HANDOFF_TTL_MS}, long enough for the launched app to start and read it.  Payload files
+ * left behind by a process that died before then are swept on the next attach.
+ *
+ * The region lives in the sending process.  If that process dies before the launched app has read
+ * the payload - the launching app is killed, or finishes and is reclaimed - or the TTL passes
+ * first, the payload is gone and {@link #read(Intent)} fails.  The launched app should read it as
+ * soon as it starts.
+ */
+class PayloadHandoff {
+
+    static final String EXTRA_PAYLOAD_HANDOFF = "com.homedepot.EXTRA_PAYLOAD_HANDOFF";
+
+    private static final String TAG = PayloadHandoff.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final String KEY_BINDER = "binder";
+    private static final String KEY_PAYLOAD = "payload";
+    private static final String DESCRIPTOR = "com.homedepot.cordova.plugin.firstphone.launcher.PayloadHandoff";
+    private static final int TRANSACTION_OPEN = IBinder.FIRST_CALL_TRANSACTION;
+
+    private static final int REGION_SHARED_MEMORY = 1;
+    private static final int REGION_FILE = 2;
+
+    private static final long HANDOFF_TTL_MS = 60000;
+
+    //payloads up to this size go in the Intent; well under the binder transaction buffer.
+    static final int INLINE_MAX_BYTES = 32 * 1024;
+
+    private static final String FILE_PREFIX = "startApp";
+    private static final String FILE_SUFFIX = ".payload";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    //keeps offered regions (and their binders) alive until they expire.
+    private static final Set<Region> offered = new HashSet<Region>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private PayloadHandoff() {
+    }
+
+    /**
+     * Writes the payload to a new region and attaches a handle for it to the intent.
+     * @param context - used for the app-private file below Oreo MR1.
+     * @param intent - the intent that will start the receiving app.
+     * @param payload - the payload, read back with {@link #read(Intent)}.
+     * @throws IOException if the region couldn't be created or written.
+     */
+    static void attach(Context context, Intent intent, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(UTF_8);
+        sweepExpiredFiles(context.getCacheDir());
+
+        Bundle handoff = new Bundle();
+        if(bytes.length <= INLINE_MAX_BYTES) {
+            handoff.putString(KEY_PAYLOAD, payload);
+            intent.putExtra(EXTRA_PAYLOAD_HANDOFF, handoff);
+            return;
+        }
+
+        final Region region;
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            region = new SharedMemoryRegion(bytes);
+        } else {
+            region = new FileRegion(context, bytes);
+        }
+
+        synchronized(offered) {
+            offered.add(region);
+        }
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                synchronized(offered) {
+                    offered.remove(region);
+                }
+                region.release();
+            }
+        }, HANDOFF_TTL_MS);
+
+        handoff.putBinder(KEY_BINDER, region);
+        intent.putExtra(EXTRA_PAYLOAD_HANDOFF, handoff);
+    }
+
+    /**
+     * Deletes payload files older than {@link #HANDOFF_TTL_MS}.  Files of live handoffs are younger
+     * than that and released by their own timer; older ones were left by a process that died first.
+     * @param directory - the directory payload files are written to.
+     */
+    private static void sweepExpiredFiles(File directory) {
+        File[] files = directory.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        long expiredBefore = System.currentTimeMillis() - HANDOFF_TTL_MS;
+        for(File file : files) {
+            String name = file.getName();
+            if(name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX) &&
+                    file.lastModified() < expiredBefore && !file.delete()) {
+                LOG.w("Unable to delete expired payload file ", name);
+            }
+        }
+    }
+
+    /**
+     * Reads a payload handed over with {@link #attach(Context, Intent, String)}.
+     * @param intent - the intent this app was started with.
+     * @return the payload, or null if the intent carries none.
+     * @throws IOException if the sending app is gone, the region expired or couldn't be mapped.
+     */
+    static String read(Intent intent) throws IOException {
+        Bundle handoff = intent != null ? intent.getBundleExtra(EXTRA_PAYLOAD_HANDOFF) : null;
+        String inline = handoff != null ? handoff.getString(KEY_PAYLOAD) : null;
+        if(inline != null) {
+            return inline;
+        }
+
+        IBinder binder = handoff != null ? handoff.getBinder(KEY_BINDER) : null;
+        if(binder == null) {
+            return null;
+        }
+
+        Parcel data = Parcel.obtain();
+        Parcel reply = Parcel.obtain();
+        try {
+            data.writeInterfaceToken(DESCRIPTOR);
+            if(!binder.transact(TRANSACTION_OPEN, data, reply, 0)) {
+                throw new IOException("Payload handoff has expired.");
+            }
+            reply.readException();
+
+            int kind = reply.readInt();
+            if(kind == REGION_SHARED_MEMORY && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                return readSharedMemory(SharedMemory.CREATOR.createFromParcel(reply));
+            } else if(kind == REGION_FILE) {
+                return readFile(ParcelFileDescriptor.CREATOR.createFromParcel(reply));
+            } else {
+                throw new IOException("Unknown payload region type " + kind);
+            }
+        } catch(RemoteException ex) {
+            throw new IOException("Sending app is no longer available.", ex);
+        } finally {
+            data.recycle();
+            reply.recycle();
+        }
+    }
+
+    private static String readSharedMemory(SharedMemory memory) throws IOException {
+        try {
+            ByteBuffer mapping = memory.mapReadOnly();
+            try {
+                return UTF_8.decode(mapping).toString();
+            } finally {
+                SharedMemory.unmap(mapping);
+            }
+        } catch(ErrnoException ex) {
+            throw new IOException("Unable to map payload.", ex);
+        } finally {
+            memory.close();
+        }
+    }
+
+    private static String readFile(ParcelFileDescriptor descriptor) throws IOException {
+        FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(descriptor);
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return UTF_8.decode(mapping).toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A written payload, served to the receiving app through this binder.
+     */
+    private abstract static class Region extends Binder {
+
+        @Override
+        protected boolean onTransact(int code, Parcel data, Parcel reply, int flags) throws RemoteException {
+            if(code != TRANSACTION_OPEN) {
+                return super.onTransact(code, data, reply, flags);
+            }
+
+            data.enforceInterface(DESCRIPTOR);
+
+            Parcelable descriptor;
+            try {
+                descriptor = open();
+            } catch(IOException ex) {
+                LOG.e("Unable to open payload region for handoff.", ex);
+                descriptor = null;
+            }
+
+            if(descriptor == null) {
+                //an expired handoff reads the same as an unknown transaction.
+                return false;
+            }
+
+            reply.writeNoException();
+            reply.writeInt(kind());
+            descriptor.writeToParcel(reply, Parcelable.PARCELABLE_WRITE_RETURN_VALUE);
+            return true;
+        }
+
+        abstract int kind();
+
+        /**
+         * @return a read-only descriptor for the region, or null once released.
+         */
+        abstract Parcelable open() throws IOException;
+
+        abstract void release();
+    }
+
+    private static class SharedMemoryRegion extends Region {
+        private SharedMemory memory;
+
+        SharedMemoryRegion(byte[] bytes) throws IOException {
+            try {
+                memory = SharedMemory.create("startApp payload", Math.max(1, bytes.length));
+                ByteBuffer mapping = memory.mapReadWrite();
+                mapping.put(bytes);
+                SharedMemory.unmap(mapping);
+                //the receiving app only gets a read-only view.
+                memory.setProtect(OsConstants.PROT_READ);
+            } catch(ErrnoException ex) {
+                if(memory != null) {
+                    memory.close();
+                }
+                throw new IOException("Unable to create shared memory for payload.", ex);
+            }
+        }
+
+        @Override
+        int kind() {
+            return REGION_SHARED_MEMORY;
+        }
+
+        @Override
+        synchronized Parcelable open() {
+            //writing a SharedMemory to a parcel duplicates its descriptor, so ours stays open.
+            return memory;
+        }
+
+        @Override
+        synchronized void release() {
+            if(memory != null) {
+                memory.close();
+                memory = null;
+            }
+        }
+    }
+
+    private static class FileRegion extends Region {
+        private File file;
+
+        FileRegion(Context context, byte[] bytes) throws IOException {
+            file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, context.getCacheDir());
+
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes.length).put(bytes);
+            } finally {
+                out.close();
+            }
+        }
+
+        @Override
+        int kind() {
+            return REGION_FILE;
+        }
+
+        @Override
+        synchronized Parcelable open() throws IOException {
+            //closed again once written to the reply (PARCELABLE_WRITE_RETURN_VALUE).
+            return file != null ? ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY) : null;
+        }
+
+        @Override
+        synchronized void release() {
+            if(file != null) {
+                if(!file.delete()) {
+                    LOG.w("Unable to delete payload file ", file.getName());
+                }
+                file = null;
+            }
+        }
+    }
+}
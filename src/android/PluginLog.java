@@ -0,0 +1,176 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Logging for the plugin that costs next to nothing when a level is off.
+ *
+ * <ul>
+ *     <li>Levels below {@link #MIN_LEVEL} (debug, in release builds) are compiled out; the calls
+ *     stay in the source but their bodies are dead code.  Lower MIN_LEVEL to get them back.</li>
+ *     <li>Info is checked against {@link Log#isLoggable(String, int)} once per tag, so it can be
+ *     silenced on a device with {@code setprop log.tag.<TAG> WARN} (or SUPPRESS) and an app
+ *     restart.  With MIN_LEVEL lowered, {@code DEBUG} turns debug lines on the same way.</li>
+ *     <li>Messages are only built once the level check has passed: pass the constant part and an
+ *     argument to append, or a {@link Message} for anything more expensive.</li>
+ *     <li>Errors that repeat on every call (e.g. the session service not being bound) can be
+ *     rate limited; the suppressed count is added to the next line that gets through.</li>
+ * </ul>
+ */
+final class PluginLog {
+
+    /**
+     * Builds a log message; only called if the message is actually logged.
+     */
+    interface Message {
+        String get();
+    }
+
+    //levels below this are compiled out.
+    static final int MIN_LEVEL = Log.INFO;
+
+    private static final boolean DEBUG_COMPILED = MIN_LEVEL <= Log.DEBUG;
+    private static final boolean INFO_COMPILED = MIN_LEVEL <= Log.INFO;
+
+    //a rate limited message is logged at most once per window.
+    private static final long RATE_LIMIT_WINDOW_MS = 10000;
+
+    private final String tag;
+    private final int level;
+
+    //keyed by message; guarded by itself.
+    private final Map<String, long[]> rateLimits = new HashMap<String, long[]>();
+
+    private PluginLog(String tag) {
+        this.tag = tag;
+
+        //nothing below ASSERT loggable means the tag is suppressed.
+        int loggable = Log.ASSERT;
+        try {
+            for(int candidate = MIN_LEVEL; candidate < Log.ASSERT; candidate++) {
+                if(Log.isLoggable(tag, candidate)) {
+                    loggable = candidate;
+                    break;
+                }
+            }
+        } catch(IllegalArgumentException ex) {
+            //tags over 23 characters can't be checked before Nougat; use the platform default.
+            loggable = Log.INFO;
+        }
+        //warnings and errors are always logged.
+        this.level = Math.min(loggable, Log.WARN);
+    }
+
+    static PluginLog forTag(String tag) {
+        return new PluginLog(tag);
+    }
+
+    boolean isDebugEnabled() {
+        return DEBUG_COMPILED && level <= Log.DEBUG;
+    }
+
+    boolean isInfoEnabled() {
+        return INFO_COMPILED && level <= Log.INFO;
+    }
+
+    void d(String message) {
+        if(isDebugEnabled()) {
+            Log.d(tag, message);
+        }
+    }
+
+    void d(String message, Object arg) {
+        if(isDebugEnabled()) {
+            Log.d(tag, message + arg);
+        }
+    }
+
+    void d(Message message) {
+        if(isDebugEnabled()) {
+            Log.d(tag, message.get());
+        }
+    }
+
+    void i(String message) {
+        if(isInfoEnabled()) {
+            Log.i(tag, message);
+        }
+    }
+
+    void i(String message, Object arg) {
+        if(isInfoEnabled()) {
+            Log.i(tag, message + arg);
+        }
+    }
+
+    void i(Message message) {
+        if(isInfoEnabled()) {
+            Log.i(tag, message.get());
+        }
+    }
+
+    void w(String message) {
+        Log.w(tag, message);
+    }
+
+    void w(String message, Object arg) {
+        Log.w(tag, message + arg);
+    }
+
+    void w(Message message) {
+        Log.w(tag, message.get());
+    }
+
+    void e(String message) {
+        Log.e(tag, message);
+    }
+
+    void e(String message, Throwable tr) {
+        Log.e(tag, message, tr);
+    }
+
+    void e(String message, Object arg) {
+        Log.e(tag, message + arg);
+    }
+
+    void e(String message, Object arg, Throwable tr) {
+        Log.e(tag, message + arg, tr);
+    }
+
+    void e(Message message, Throwable tr) {
+        Log.e(tag, message.get(), tr);
+    }
+
+    /**
+     * Logs an error at most once per {@link #RATE_LIMIT_WINDOW_MS} for the same message.
+     * @param message - a constant message; it is also the rate limiting key.
+     * @param tr - the cause, or null.
+     */
+    void eRateLimited(String message, Throwable tr) {
+        long now = SystemClock.elapsedRealtime();
+        int suppressed;
+        synchronized(rateLimits) {
+            //[0] = last logged at, [1] = suppressed since.
+            long[] state = rateLimits.get(message);
+            if(state == null) {
+                state = new long[] { now - RATE_LIMIT_WINDOW_MS, 0 };
+                rateLimits.put(message, state);
+            }
+
+            if(now - state[0] < RATE_LIMIT_WINDOW_MS) {
+                state[1]++;
+                return;
+            }
+
+            suppressed = (int) state[1];
+            state[0] = now;
+            state[1] = 0;
+        }
+
+        Log.e(tag, suppressed > 0 ? message + " (" + suppressed + " more suppressed)" : message, tr);
+    }
+}
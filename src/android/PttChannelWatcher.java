@@ -0,0 +1,135 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Pushes changes to the device's push-to-talk channels and VoIP registration code to a kept-alive
+ * callback.
+ *
+ * The first event carries every channel as added; after that, each refresh of the device session
+ * is compared with the last one sent and only the channels added or removed are pushed.  The VoIP
+ * registration code is included only when it changed.  Refreshes that change neither send
+ * nothing.
+ *
+ * The watcher keeps the last device session it was told about, so a callback installed while a
+ * refresh is being published starts from that refresh rather than from the older session the
+ * caller read, and no lock has to be held across reading the session and calling {@link #watch}.
+ */
+class PttChannelWatcher implements SessionRepository.DeviceSessionListener {
+
+    private static final String TAG = PttChannelWatcher.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    //all guarded by this.
+    private CallbackContext callbackContext = null;
+    private Set<String> lastChannels = null;
+    private String lastVoipRegistrationCode = null;
+    //the last device session cached, told about whether or not a callback is installed.
+    private SharedDeviceSessionData latest = null;
+
+    /**
+     * Starts sending channel changes to the given callback, replacing any previous watcher.
+     * @param callbackContext
+     * @param current - the device session the caller read, sent right away as the first event unless
+     *                a newer one has been cached since; may be null.
+     */
+    synchronized void watch(CallbackContext callbackContext, SharedDeviceSessionData current) {
+        if(this.callbackContext != null) {
+            this.callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+        }
+        this.callbackContext = callbackContext;
+        lastChannels = null;
+        lastVoipRegistrationCode = null;
+
+        PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+        result.setKeepCallback(true);
+        callbackContext.sendPluginResult(result);
+
+        if(current != null) {
+            //listeners are told in the order sessions are cached, so latest is never older than current
+            //once current has been told about.
+            sendChanges(latest != null ? latest : current);
+        }
+    }
+
+    /**
+     * Stops sending channel changes and releases the current callback.
+     */
+    synchronized void stop() {
+        if(callbackContext != null) {
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+            callbackContext = null;
+        }
+        lastChannels = null;
+    }
+
+    @Override
+    public synchronized void onDeviceSessionChanged(SharedDeviceSessionData device) {
+        latest = device;
+        if(callbackContext == null) {
+            return;
+        }
+        sendChanges(device);
+    }
+
+    //only called under this.
+    private void sendChanges(SharedDeviceSessionData device) {
+
+        Set<String> channels = new LinkedHashSet<String>();
+        if(device.getPttChannelList() != null) {
+            channels.addAll(device.getPttChannelList());
+        }
+        String voipRegistrationCode = device.getVoipRegistrationCode();
+
+        JSONArray added = new JSONArray();
+        for(String channel : channels) {
+            if(lastChannels == null || !lastChannels.contains(channel)) {
+                added.put(channel);
+            }
+        }
+
+        JSONArray removed = new JSONArray();
+        if(lastChannels != null) {
+            for(String channel : lastChannels) {
+                if(!channels.contains(channel)) {
+                    removed.put(channel);
+                }
+            }
+        }
+
+        boolean first = lastChannels == null;
+        boolean voipChanged = first || (voipRegistrationCode != null ?
+                !voipRegistrationCode.equals(lastVoipRegistrationCode) : lastVoipRegistrationCode != null);
+        lastChannels = channels;
+        lastVoipRegistrationCode = voipRegistrationCode;
+
+        if(!first && added.length() == 0 && removed.length() == 0 && !voipChanged) {
+            return;
+        }
+
+        JSONObject event = new JSONObject();
+        try {
+            event.put("added", added);
+            event.put("removed", removed);
+            if(voipChanged) {
+                event.put("voipRegistrationCode", voipRegistrationCode != null ? voipRegistrationCode : JSONObject.NULL);
+            }
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert channel changes to JSON.", ex);
+            return;
+        }
+
+        PluginResult result = new PluginResult(PluginResult.Status.OK, event);
+        result.setKeepCallback(true);
+        callbackContext.sendPluginResult(result);
+    }
+}
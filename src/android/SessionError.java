@@ -0,0 +1,70 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reasons a session action can fail, returned to JS as the error payload so that callers can tell
+ * a launcher that is still connecting from a user that simply isn't logged in.  Each reason says
+ * whether the same call may succeed later and how long to wait before trying again.
+ */
+enum SessionError {
+
+    /** The launcher session service is being bound but hasn't connected yet. */
+    SERVICE_NOT_BOUND(true, 500),
+
+    /** No launcher exporting the session service could be bound. */
+    SERVICE_UNAVAILABLE(true, 5000),
+
+    /** The call to the launcher session service failed. */
+    REMOTE_EXCEPTION(true, 1000),
+
+    /** The launcher has no complete device session, e.g. it is still starting up. */
+    NO_DEVICE_SESSION(true, 2000),
+
+    /** No user is logged into the device; retrying won't help until a login happens. */
+    NO_USER_SESSION(false, 0),
+
+    /** This app is calling the launcher too often and has no earlier session to fall back on. */
+    RATE_LIMITED(true, 1000);
+
+    private static final String TAG = SessionError.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private final boolean retryable;
+    private final long retryAfterMs;
+
+    SessionError(boolean retryable, long retryAfterMs) {
+        this.retryable = retryable;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    boolean isRetryable() {
+        return retryable;
+    }
+
+    long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /**
+     * Builds the error result sent back to JS.
+     * @param message - a description for logs / developers.
+     * @return an ERROR result carrying code, message, retryable and retryAfterMs.
+     */
+    PluginResult toPluginResult(String message) {
+        JSONObject error = new JSONObject();
+        try {
+            error.put("code", name());
+            error.put("message", message);
+            error.put("retryable", retryable);
+            error.put("retryAfterMs", retryAfterMs);
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert session error to JSON.", ex);
+        }
+
+        return new PluginResult(PluginResult.Status.ERROR, error);
+    }
+}
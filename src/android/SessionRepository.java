@@ -0,0 +1,1597 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.RemoteException;
+
+import com.homedepot.ngfp.session.service.IRemoteSessionService;
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+import com.homedepot.ngfp.session.support.SharedSessionData;
+import com.homedepot.ngfp.session.support.SharedUserSessionData;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The launcher sessions, shared by every plugin instance in the process.
+ *
+ * Cordova creates one plugin per WebView, so an app with a second WebView (e.g. an InAppBrowser for a
+ * vendor portal) would otherwise bind the launcher, register the broadcast receivers and cache the
+ * sessions once per WebView.  Plugins acquire the repository when they are initialized and release
+ * it when destroyed; one binding, one pair of receivers and one cache serve all of them, and the last
+ * release tears everything down.
+ *
+ * Session reads return a {@link Result}: the session, why it is missing and whether it came from
+ * the cache, so callers don't need a lock to match an error to the fetch that caused it.  A cache
+ * hit only reads the cache fields.  A miss first gives a binding that is still connecting a short
+ * while, holding no lock, and then fetches under fetchLock, which serializes the calls to the
+ * launcher.  The repository's own lock only guards its lifecycle (warm-up, pause, shutdown) and is
+ * never held across a launcher call, so shutting down on the main thread doesn't wait for one.
+ *
+ * The cache is written by the session changed receiver on the main thread, by fetches made under
+ * fetchLock (session actions on the bridge or thread pool, prefetch, resume) and by intents
+ * handed over on the session executor.  cacheLock only guards the cache fields themselves, so an
+ * invalidation never waits for a launcher call.  This holds up because:
+ * <ul>
+ *     <li>every invalidation bumps a generation, and a fetch only publishes its result if the
+ *     generation it started under is still current, so nothing stale is cached after an
+ *     invalidation;</li>
+ *     <li>the sessions and their version are read and written together under cacheLock, so no
+ *     caller sees a device session and a user session or version from different snapshots;</li>
+ *     <li>device sessions are only published, and listeners told, under fetchLock, so listeners
+ *     see them in the order they were cached;</li>
+ *     <li>each launcher call reads the connection from the binder once, so a disconnect during a
+ *     call fails that call with an error rather than an exception.</li>
+ * </ul>
+ * SessionRepositoryInterleavingTest steps through the interleavings these guard against.
+ *
+ * Calls to the launcher are limited per process by an {@link IpcRateLimiter}.  Session actions
+ * that miss the cache at the same time are coalesced: the fetches are serialized by fetchLock
+ * anyway, so a caller that was already waiting when a fetch started takes that fetch's result,
+ * including its error, instead of making its own call.  A caller over the limit
+ * gets the last device session the launcher gave us; a user session is never served once
+ * invalidated, as that means the user logged out.  "Nobody logged in" is cached like a user
+ * session, so a logged out device doesn't call the launcher on every action, and is also what a
+ * caller over the limit gets if it was the launcher's last answer.
+ *
+ * Under memory pressure (onTrimMemory) the repository gives memory back in stages, so that an app
+ * suspended in the background stays warm for as long as the system allows.  The running levels
+ * (while in the foreground) and the background levels are separate scales, and
+ * {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN} is sent every time the app goes to the
+ * background, so it never trims anything:
+ * <ul>
+ *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} or
+ *     {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL} in the foreground, or
+ *     {@link ComponentCallbacks2#TRIM_MEMORY_BACKGROUND} and up in the background - caches that
+ *     are cheap to rebuild are dropped: the user session JSON here, and whatever the holders
+ *     keep.</li>
+ *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_MODERATE} and up - the launcher is let go as in
+ *     {@link #pause(Holder, boolean)}, once every holder is paused, and revalidated on resume.</li>
+ *     <li>{@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE} or low memory - the cached sessions are
+ *     dropped and the SSO token wiped.</li>
+ * </ul>
+ */
+class SessionRepository {
+
+    /**
+     * A plugin instance holding the repository.
+     */
+    interface Holder {
+        /**
+         * The launcher asked the app to shut down.  Called on the main thread.
+         */
+        void onAppShutdownRequested();
+
+        /**
+         * The system asked the process to trim its memory; drop caches that are cheap to rebuild.
+         * Called on the main thread.
+         * @param level - a ComponentCallbacks2 TRIM_MEMORY_ level.
+         */
+        void onTrimMemory(int level);
+    }
+
+    /**
+     * Told about every new device session cached, whether fetched, prefetched or handed over in an
+     * intent.  Called on the thread that cached it.
+     */
+    interface DeviceSessionListener {
+        void onDeviceSessionChanged(SharedDeviceSessionData device);
+    }
+
+    /**
+     * A session read, with why it is missing and where it came from.
+     * @param <T> - the session type.
+     */
+    static final class Result<T> {
+        private final T session;
+        private final SessionError error;
+        private final byte cacheOutcome;
+
+        private Result(T session, SessionError error, byte cacheOutcome) {
+            this.session = session;
+            this.error = error;
+            this.cacheOutcome = cacheOutcome;
+        }
+
+        /**
+         * @return the session, or null if there is none or the launcher couldn't be reached.
+         */
+        T getSession() {
+            return session;
+        }
+
+        /**
+         * @return why the launcher couldn't be asked or didn't answer, or null if it answered.
+         */
+        SessionError getError() {
+            return error;
+        }
+
+        /**
+         * @return whether the session was served from the cache, as a TelemetryRecorder outcome.
+         */
+        byte getCacheOutcome() {
+            return cacheOutcome;
+        }
+    }
+
+    /**
+     * A fetch from the launcher and what it returned, for callers that queued up behind it.
+     */
+    private final class Flight<T> {
+        private final long startedNanos;
+        private final int deviceGeneration;
+        private final int userGeneration;
+        private final Result<T> result;
+
+        private Flight(long startedNanos, int deviceGeneration, int userGeneration, Result<T> result) {
+            this.startedNanos = startedNanos;
+            this.deviceGeneration = deviceGeneration;
+            this.userGeneration = userGeneration;
+            this.result = result;
+        }
+
+        /**
+         * @return whether a caller that arrived at arrivedNanos can take this result as its own: the
+         * fetch started after it arrived, and nothing was invalidated since.
+         */
+        private boolean sharedWith(long arrivedNanos, int deviceGeneration, int userGeneration) {
+            return startedNanos - arrivedNanos >= 0 && this.deviceGeneration == deviceGeneration &&
+                    this.userGeneration == userGeneration;
+        }
+
+        /**
+         * Hands the result to another caller, as if it had made the fetch itself.
+         */
+        private Result<T> share() {
+            coalescedFetches++;
+            return new Result<T>(result.session, result.error, TelemetryRecorder.OUTCOME_COALESCED);
+        }
+    }
+
+    private static final String TAG = SessionRepository.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final String INTENT_ACTION_REQUEST_APP_SHUTDOWN = "com.homedepot.ACTION_REQUEST_APP_SHUTDOWN";
+    private static final String INTENT_EXTRA_DEVICE_SESSION = "com.homedepot.EXTRA_DEVICE_SESSION";
+    private static final String INTENT_EXTRA_USER_SESSION = "com.homedepot.EXTRA_USER_SESSION";
+
+    private static final String PREF_USER_SESSION_DEMANDED = "userSessionDemanded";
+
+    //session changed broadcasts arriving within this window are handled as a single change.
+    private static final long SESSION_CHANGE_COALESCE_MS = 500;
+
+    //a user session that isn't populated yet right after a login broadcast is fetched again after
+    //this delay, doubling for each of the retries.
+    private static final long USER_PREFETCH_RETRY_MS = 250;
+    private static final int USER_PREFETCH_MAX_RETRIES = 3;
+
+    //how long a session action will wait for a pending binding to connect.
+    private static final long SERVICE_CONNECT_WAIT_MS = 250;
+
+    //calls to the launcher allowed back to back, and per second after that; see IpcRateLimiter.
+    private static final int IPC_BURST = 10;
+    private static final double IPC_PER_SECOND = 5;
+
+    //guarded by SessionRepository.class.
+    private static SessionRepository instance = null;
+
+    private final Context appContext;
+    private final ComponentName pinnedComponent;
+
+    //guarded by SessionRepository.class.
+    private final List<Holder> holders = new ArrayList<Holder>();
+    private final List<DeviceSessionListener> deviceSessionListeners = new CopyOnWriteArrayList<DeviceSessionListener>();
+
+    private volatile SharedDeviceSessionData cachedDeviceSession = null;
+    private volatile SharedUserSessionData cachedUserSession = null;
+    private volatile JSONObject cachedUserJson = null;
+    private volatile long cachedSessionVersion = 0;
+    //whether the launcher said nobody is logged in, cached like a user session: written with
+    //cachedUserSession under cacheLock and dropped when the user session is invalidated.
+    private volatile boolean cachedNoUser = false;
+
+    //guards cache writes against invalidation; a fetch only publishes if its generation is unchanged.
+    private final Object cacheLock = new Object();
+    private volatile int deviceSessionGeneration = 0;
+    private volatile int userSessionGeneration = 0;
+    private boolean deviceSessionChangePending = false;
+    private boolean userSessionChangePending = false;
+
+    //whether this app reads user data at all; only then is the user session prefetched.
+    private volatile boolean userSessionDemanded = false;
+
+    //written under this; read without it for the fast path of ensureServiceReady.
+    private volatile boolean warmedUp = false;
+    private boolean releasedWhilePaused = false;
+    private boolean shutDown = false;
+    private Intent newIntent = null;
+    private final Set<Holder> pausedHolders = new HashSet<Holder>();
+    private boolean releaseOnPause = false;
+    private volatile boolean combinedSessionsSupported = true;
+    private final SessionServiceBinder sessionServiceBinder;
+    private final TelemetryRecorder telemetry = new TelemetryRecorder();
+    private final IpcRateLimiter ipcLimiter = new IpcRateLimiter(IPC_BURST, IPC_PER_SECOND);
+
+    //serializes calls to the launcher, and the publishing of device sessions to listeners.
+    private final Object fetchLock = new Object();
+
+    //the last fetch of each kind, shared with callers that queued up behind it; guarded by fetchLock.
+    private Flight<SharedDeviceSessionData> lastDeviceFlight = null;
+    private Flight<SharedUserSessionData> lastUserFlight = null;
+    private Flight<SharedSessionData> lastSessionsFlight = null;
+
+    //the last valid device session the launcher gave us, served when calls are rate limited.
+    private volatile SharedDeviceSessionData lastKnownDeviceSession = null;
+    //whether the launcher last told us nobody is logged in; then "no user" is served when rate limited.
+    //Only written under cacheLock by a fetch whose user session generation is still current, so an
+    //answer from before a login can't stand in for the launcher.
+    private volatile boolean lastKnownNoUser = false;
+
+    //only written under fetchLock, so they can be read without it.
+    private volatile long ipcCalls = 0;
+    private volatile long coalescedFetches = 0;
+    private volatile long rateLimitedCalls = 0;
+    private volatile long snapshotsServed = 0;
+    //hits are read without any lock, so they are counted on their own.
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    //serializes warmup, lifecycle and prefetch work off the UI thread.
+    private final ExecutorService sessionExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private SessionRepository(Context appContext, ComponentName pinnedComponent) {
+        this.appContext = appContext;
+        this.pinnedComponent = pinnedComponent;
+
+        sessionServiceBinder = new SessionServiceBinder(appContext, sessionServiceListener, pinnedComponent);
+        userSessionDemanded = appContext.getSharedPreferences(FirstPhoneLauncherPlugin.PREFS_NAME, Context.MODE_PRIVATE)
+                .getBoolean(PREF_USER_SESSION_DEMANDED, false);
+    }
+
+    /**
+     * Returns the process-wide repository, creating it for the first holder.
+     * @param context - any context; the application context is kept.
+     * @param pinnedComponent - the only session service component to bind, or null to discover one.
+     *                        Only the first holder's choice takes effect.
+     * @param holder - released again with {@link #release(Holder)}.
+     * @return the shared repository.
+     */
+    static synchronized SessionRepository acquire(Context context, ComponentName pinnedComponent, Holder holder) {
+        if(instance == null) {
+            instance = new SessionRepository(context.getApplicationContext(), pinnedComponent);
+            instance.registerAppShutdownReceiver();
+            instance.appContext.registerComponentCallbacks(instance.memoryCallbacks);
+        } else if(pinnedComponent != null && !pinnedComponent.equals(instance.pinnedComponent)) {
+            LOG.w("Session repository already created, ignoring pinned service ", pinnedComponent.flattenToShortString());
+        }
+
+        if(!instance.holders.contains(holder)) {
+            instance.holders.add(holder);
+        }
+        return instance;
+    }
+
+    /**
+     * Lets go of the repository.  The last holder to release it unbinds the session service,
+     * unregisters the receivers and wipes the cache.
+     * @param holder
+     */
+    void release(final Holder holder) {
+        synchronized(SessionRepository.class) {
+            if(!holders.remove(holder)) {
+                return;
+            }
+
+            if(!holders.isEmpty()) {
+                //the remaining holders may all be paused now.
+                execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        releaseIfAllPaused();
+                    }
+                });
+                return;
+            }
+
+            if(instance == this) {
+                instance = null;
+            }
+        }
+
+        shutDown();
+    }
+
+    private void registerAppShutdownReceiver() {
+        appContext.registerReceiver(appShutdownReceiver, new IntentFilter(INTENT_ACTION_REQUEST_APP_SHUTDOWN));
+    }
+
+    private void shutDown() {
+        try {
+            appContext.unregisterReceiver(appShutdownReceiver);
+        } catch(Exception ex) {
+            LOG.e("Exception during unregistration.", ex);
+        }
+        appContext.unregisterComponentCallbacks(memoryCallbacks);
+
+        synchronized(this) {
+            shutDown = true;
+            if(warmedUp && !releasedWhilePaused) {
+                try {
+                    appContext.unregisterReceiver(sessionChangedReceiver);
+                } catch(Exception ex) {
+                    LOG.e("Exception during unregistration.", ex);
+                }
+            }
+        }
+
+        sessionServiceBinder.unbind();
+
+        mainHandler.removeCallbacks(sessionChangeSettled);
+        //writes out the last events off the UI thread; queued work still runs after shutdown.
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                telemetry.close();
+            }
+        });
+        sessionExecutor.shutdown();
+
+        SharedUserSessionData user = cachedUserSession;
+        if(user != null) {
+            user.wipeThdSsoToken();
+        }
+    }
+
+    /**
+     * Starts recording performance counters to an app-private file; see {@link TelemetryRecorder}.
+     */
+    void enableTelemetry() {
+        telemetry.start(appContext.getFilesDir());
+    }
+
+    TelemetryRecorder getTelemetry() {
+        return telemetry;
+    }
+
+    void addDeviceSessionListener(DeviceSessionListener listener) {
+        deviceSessionListeners.add(listener);
+    }
+
+    void removeDeviceSessionListener(DeviceSessionListener listener) {
+        deviceSessionListeners.remove(listener);
+    }
+
+    private void notifyDeviceSessionChanged(SharedDeviceSessionData device) {
+        for(DeviceSessionListener listener : deviceSessionListeners) {
+            listener.onDeviceSessionChanged(device);
+        }
+    }
+
+    void warmUpInBackground(final Intent startIntent) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                warmUp(startIntent);
+            }
+        });
+    }
+
+    /**
+     * Caches any session data handed over in the start intent, starts listening for session changes
+     * and binds the launcher session service.  Runs once for the process; later calls return
+     * immediately.
+     * @param startIntent - the intent the calling activity was started with.
+     */
+    synchronized void warmUp(Intent startIntent) {
+        if(warmedUp || shutDown) {
+            return;
+        }
+        warmedUp = true;
+
+        boolean traced = StartupTrace.begin(StartupTrace.Milestone.WARM_UP);
+        try {
+            registerSessionChangedReceiver();
+
+            //the activity may no longer have access to the start intent.
+            cacheSessionsFromIntent(newIntent != null ? newIntent : startIntent);
+            newIntent = null;
+
+            StartupTrace.beginAsync(StartupTrace.Milestone.BIND_SERVICE);
+            sessionServiceBinder.bind();
+        } finally {
+            if(traced) {
+                StartupTrace.end(StartupTrace.Milestone.WARM_UP);
+            }
+        }
+    }
+
+    private void registerSessionChangedReceiver() {
+        boolean traced = StartupTrace.begin(StartupTrace.Milestone.REGISTER_RECEIVERS);
+        try {
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(FirstPhoneLauncherPlugin.ACTION_DEVICE_SESSION_CHANGED);
+            filter.addAction(FirstPhoneLauncherPlugin.ACTION_USER_SESSION_CHANGED);
+            appContext.registerReceiver(sessionChangedReceiver, filter);
+        } finally {
+            if(traced) {
+                StartupTrace.end(StartupTrace.Milestone.REGISTER_RECEIVERS);
+            }
+        }
+    }
+
+    /**
+     * The launcher may hand a running app fresh session data by re-delivering its start intent.
+     * @param intent
+     */
+    void onNewIntent(final Intent intent) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean cache;
+                synchronized(SessionRepository.this) {
+                    cache = warmedUp;
+                    if(!warmedUp) {
+                        //picked up by warmUp instead of the now outdated start intent.
+                        newIntent = intent;
+                    }
+                }
+
+                if(cache) {
+                    //not under this repository's lock, as it may wait for a launcher call in flight.
+                    cacheSessionsFromIntent(intent);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the cached sessions with those handed over by the launcher in an intent, if any.
+     * @param i
+     */
+    private void cacheSessionsFromIntent(Intent i) {
+        if(i == null) {
+            return;
+        }
+
+        SharedDeviceSessionData deviceSession = i.getParcelableExtra(INTENT_EXTRA_DEVICE_SESSION);
+        if(deviceSession != null) {
+            synchronized(fetchLock) {
+                synchronized(cacheLock) {
+                    deviceSessionGeneration++;
+                    cachedDeviceSession = deviceSession;
+                    cachedSessionVersion = 0;
+                }
+                lastKnownDeviceSession = deviceSession;
+                LOG.i("Device session data provided in start intent. Caching provided object.");
+                notifyDeviceSessionChanged(deviceSession);
+            }
+        } else {
+            LOG.w("Device session data not provided in start intent.");
+        }
+
+        SharedUserSessionData userSession = i.getParcelableExtra(INTENT_EXTRA_USER_SESSION);
+        if(userSession != null) {
+            SharedUserSessionData previousUser;
+            synchronized(cacheLock) {
+                userSessionGeneration++;
+                previousUser = cachedUserSession;
+                cachedUserSession = userSession;
+                cachedUserJson = null;
+                cachedNoUser = false;
+                lastKnownNoUser = false;
+                cachedSessionVersion = 0;
+            }
+            if(previousUser != null && previousUser != userSession) {
+                previousUser.wipeThdSsoToken();
+            }
+            LOG.i("User session data provided in start intent. Caching provided object.");
+        } else {
+            LOG.i("User session data not provided in start intent.");
+        }
+    }
+
+    /**
+     * Makes sure the repository is warmed up before a session action reads the cache.  Once it is,
+     * this returns without taking any lock.
+     * @param startIntent - the intent the calling activity was started with.
+     */
+    void ensureServiceReady(Intent startIntent) {
+        if(!warmedUp) {
+            warmUp(startIntent);
+        }
+    }
+
+    /**
+     * Gives a binding that is still connecting a short while to finish, before a fetch.  Never
+     * called under a lock of this repository, so waiting holds up nobody else.
+     */
+    private void awaitPendingService() {
+        if(sessionServiceBinder.getService() == null && sessionServiceBinder.isBound()) {
+            sessionServiceBinder.awaitService(SERVICE_CONNECT_WAIT_MS);
+        }
+    }
+
+    /**
+     * A holder's activity went to the background.  The launcher is only let go once every holder is
+     * paused, and only if that holder asked for it.
+     * @param holder
+     * @param releaseOnPause - whether to unbind from the launcher while in the background.
+     */
+    void pause(final Holder holder, final boolean releaseOnPause) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized(SessionRepository.this) {
+                    pausedHolders.add(holder);
+                    SessionRepository.this.releaseOnPause = releaseOnPause;
+                }
+                releaseIfAllPaused();
+                //the app may be killed in the background.
+                telemetry.flushAsync();
+            }
+        });
+    }
+
+    void resume(final Holder holder) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized(SessionRepository.this) {
+                    pausedHolders.remove(holder);
+                }
+                revalidateOnResume();
+            }
+        });
+    }
+
+    private void releaseIfAllPaused() {
+        synchronized(SessionRepository.class) {
+            synchronized(this) {
+                pausedHolders.retainAll(holders);
+                if(releaseOnPause && !holders.isEmpty() && pausedHolders.size() == holders.size()) {
+                    releaseWhilePaused();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets go of the launcher while the app is in the background: the session changed receiver is
+     * unregistered and the service unbound, which frees the binding's memory in the launcher.  The
+     * cache is revalidated on resume.
+     */
+    private synchronized void releaseWhilePaused() {
+        if(!warmedUp || releasedWhilePaused || shutDown) {
+            return;
+        }
+        releasedWhilePaused = true;
+
+        try {
+            appContext.unregisterReceiver(sessionChangedReceiver);
+        } catch(Exception ex) {
+            LOG.e("Exception during unregistration.", ex);
+        }
+
+        sessionServiceBinder.unbind();
+    }
+
+    /**
+     * Makes sure the cache still matches the launcher after the app comes back to the foreground.
+     * Rather than re-fetching the sessions, only the launcher's session version is read and the
+     * cache is dropped if it changed.  If the launcher can't report a version, the cache is only
+     * dropped when session changed broadcasts may have been missed.
+     */
+    private void revalidateOnResume() {
+        boolean mayHaveMissedChanges;
+        synchronized(this) {
+            if(!warmedUp || shutDown) {
+                return;
+            }
+
+            mayHaveMissedChanges = releasedWhilePaused;
+            if(releasedWhilePaused) {
+                releasedWhilePaused = false;
+                registerSessionChangedReceiver();
+                sessionServiceBinder.bind();
+            }
+        }
+
+        if(cachedDeviceSession == null && cachedUserSession == null) {
+            return;
+        }
+
+        awaitPendingService();
+
+        boolean changed;
+        synchronized(fetchLock) {
+            int deviceGeneration = deviceSessionGeneration;
+            int userGeneration = userSessionGeneration;
+            long version = sessionVersionFromService();
+            if(version == 0) {
+                if(mayHaveMissedChanges) {
+                    LOG.i("Session version unavailable after release, clearing cached sessions.");
+                    clearCachedSessions();
+                }
+                return;
+            }
+
+            synchronized(cacheLock) {
+                if(deviceGeneration != deviceSessionGeneration || userGeneration != userSessionGeneration) {
+                    //a broadcast invalidated the cache meanwhile; whatever is cached now is newer than version.
+                    return;
+                }
+
+                changed = version != cachedSessionVersion && (cachedSessionVersion != 0 || mayHaveMissedChanges);
+                if(!changed) {
+                    //cache came from the start intent or separate calls and no change was broadcast since.
+                    cachedSessionVersion = version;
+                }
+            }
+        }
+
+        if(changed) {
+            LOG.i("Session version changed while paused, clearing cached sessions.");
+            clearCachedSessions();
+        }
+    }
+
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(final int level) {
+            if(!isMemoryPressure(level)) {
+                return;
+            }
+
+            List<Holder> current;
+            synchronized(SessionRepository.class) {
+                current = new ArrayList<Holder>(holders);
+            }
+            for(Holder holder : current) {
+                holder.onTrimMemory(level);
+            }
+
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    trimMemory(level);
+                }
+            });
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    /**
+     * @return whether a trim level asks for memory back, rather than only reporting that the app
+     * went to the background or the device is a little short.
+     */
+    private static boolean isMemoryPressure(int level) {
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return true;
+        }
+        return level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+    }
+
+    /**
+     * Gives memory back according to how hard the system is pressed; see the class comment.
+     * @param level - a ComponentCallbacks2 TRIM_MEMORY_ level.
+     */
+    private void trimMemory(int level) {
+        synchronized(cacheLock) {
+            cachedUserJson = null;
+        }
+
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            synchronized(SessionRepository.class) {
+                synchronized(this) {
+                    pausedHolders.retainAll(holders);
+                    if(!holders.isEmpty() && pausedHolders.size() == holders.size()) {
+                        LOG.i("Memory is low, releasing the launcher until resumed.");
+                        releaseWhilePaused();
+                    }
+                }
+            }
+        }
+
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            LOG.i("Memory is critically low, clearing cached sessions.");
+            clearCachedSessions();
+        }
+    }
+
+    private void clearCachedSessions() {
+        invalidateDeviceSession();
+        invalidateUserSession();
+    }
+
+    /**
+     * Drops the cached device session.  A fetch already in flight will not cache its result.
+     */
+    private void invalidateDeviceSession() {
+        synchronized(cacheLock) {
+            deviceSessionGeneration++;
+            cachedDeviceSession = null;
+            cachedSessionVersion = 0;
+        }
+    }
+
+    /**
+     * Drops the cached user session and wipes its SSO token.  A fetch already in flight will not
+     * cache its result.
+     */
+    private void invalidateUserSession() {
+        SharedUserSessionData previousUser;
+        synchronized(cacheLock) {
+            userSessionGeneration++;
+            previousUser = cachedUserSession;
+            cachedUserSession = null;
+            cachedUserJson = null;
+            cachedNoUser = false;
+            cachedSessionVersion = 0;
+        }
+
+        if(previousUser != null) {
+            previousUser.wipeThdSsoToken();
+        }
+    }
+
+    /**
+     * Fetches the sessions invalidated by the last burst of session changed broadcasts, so the next
+     * call from JS finds them cached.  The user session is only prefetched for apps that read user
+     * data, and it is served with its JSON already built - the first call after a login is the one
+     * the associate is waiting on.
+     */
+    private void prefetchChangedSessions() {
+        boolean device;
+        boolean user;
+        synchronized(cacheLock) {
+            device = deviceSessionChangePending && cachedDeviceSession == null;
+            user = userSessionChangePending && cachedUserSession == null && userSessionDemanded;
+            deviceSessionChangePending = false;
+            userSessionChangePending = false;
+        }
+
+        if(sessionServiceBinder.getService() == null) {
+            //not bound (lazy startup, released while paused); the next session action fetches.
+            return;
+        }
+
+        synchronized(fetchLock) {
+            if(device && user) {
+                SharedSessionData sessions = refreshCachedSessions(true).getSession();
+                if(sessions != null) {
+                    if(sessions.getUserSession() == null) {
+                        scheduleUserPrefetchRetry(1);
+                    }
+                    return;
+                }
+            }
+
+            if(device) {
+                refreshCachedDevice();
+            }
+
+            if(user && refreshCachedUser(true).getSession() == null) {
+                scheduleUserPrefetchRetry(1);
+            }
+        }
+    }
+
+    /**
+     * The launcher broadcasts a login before the new user session is complete, so a prefetch that
+     * doesn't validate is tried again a few times with a growing delay.  A retry is dropped once the
+     * user session has been fetched by someone else or changed again.
+     * @param attempt - the retry number, starting at 1.
+     */
+    private void scheduleUserPrefetchRetry(final int attempt) {
+        if(attempt > USER_PREFETCH_MAX_RETRIES) {
+            LOG.i("No valid user session after login broadcast, leaving it to the next request.");
+            return;
+        }
+
+        final int generation = userSessionGeneration;
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        retryUserPrefetch(attempt, generation);
+                    }
+                });
+            }
+        }, USER_PREFETCH_RETRY_MS << (attempt - 1));
+    }
+
+    private void retryUserPrefetch(int attempt, int generation) {
+        synchronized(fetchLock) {
+            if(generation != userSessionGeneration || cachedUserSession != null ||
+                    sessionServiceBinder.getService() == null) {
+                return;
+            }
+
+            if(refreshCachedUser(true).getSession() == null) {
+                scheduleUserPrefetchRetry(attempt + 1);
+            }
+        }
+    }
+
+    /**
+     * Remembers, across runs, that this app reads user data.
+     */
+    void noteUserSessionDemanded() {
+        if(!userSessionDemanded) {
+            userSessionDemanded = true;
+            appContext.getSharedPreferences(FirstPhoneLauncherPlugin.PREFS_NAME, Context.MODE_PRIVATE).edit()
+                    .putBoolean(PREF_USER_SESSION_DEMANDED, true).apply();
+        }
+    }
+
+    /**
+     * @return the cached device session, fetching it from the launcher if there is none; no session
+     * if the launcher has no valid device session or couldn't be reached.
+     */
+    Result<SharedDeviceSessionData> deviceSession() {
+        return deviceSession(System.nanoTime());
+    }
+
+    /**
+     * As {@link #deviceSession()}, sharing the result of a fetch that started after the caller
+     * arrived.
+     * @param arrivedNanos - System.nanoTime() when the caller started waiting for this repository.
+     */
+    Result<SharedDeviceSessionData> deviceSession(long arrivedNanos) {
+        SharedDeviceSessionData device = cachedDeviceSession;
+        if(device != null) {
+            return hit(device);
+        }
+
+        awaitPendingService();
+        synchronized(fetchLock) {
+            //fetched by whoever held the lock before us.
+            device = cachedDeviceSession;
+            if(device != null) {
+                return hit(device);
+            }
+            return fetchDevice(arrivedNanos);
+        }
+    }
+
+    /**
+     * @return the cached user session, fetching it from the launcher if there is none; no session if
+     * no user is logged in or the launcher couldn't be reached.
+     */
+    Result<SharedUserSessionData> userSession() {
+        return userSession(System.nanoTime());
+    }
+
+    /**
+     * As {@link #userSession()}, sharing the result of a fetch that started after the caller
+     * arrived.
+     * @param arrivedNanos - System.nanoTime() when the caller started waiting for this repository.
+     */
+    Result<SharedUserSessionData> userSession(long arrivedNanos) {
+        SharedUserSessionData user = cachedUserSession;
+        if(user != null || cachedNoUser) {
+            return hit(user);
+        }
+
+        awaitPendingService();
+        synchronized(fetchLock) {
+            user = cachedUserSession;
+            if(user != null || cachedNoUser) {
+                return hit(user);
+            }
+            return fetchUser(arrivedNanos);
+        }
+    }
+
+    /**
+     * Reads the user session from the cache only, for callers that can't wait on the launcher.
+     * @return the cached user session, whose session is null if nobody is logged in, or null if the
+     * user session isn't cached.
+     */
+    Result<SharedUserSessionData> peekUserSession() {
+        synchronized(cacheLock) {
+            SharedUserSessionData user = cachedUserSession;
+            if(user == null && !cachedNoUser) {
+                return null;
+            }
+            return new Result<SharedUserSessionData>(user, null, TelemetryRecorder.OUTCOME_CACHE_HIT);
+        }
+    }
+
+    /**
+     * Returns both sessions, from the cache where possible.  On a cold cache both are read in one
+     * transaction when the launcher supports it.
+     * @return the sessions, either of which may be null, and the error of the first that couldn't be
+     * fetched, so a user session that is null with no error means nobody is logged in; the
+     * SharedSessionData is never null.
+     */
+    Result<SharedSessionData> sessions() {
+        return sessions(System.nanoTime());
+    }
+
+    /**
+     * As {@link #sessions()}, sharing the result of a fetch that started after the caller arrived.
+     * @param arrivedNanos - System.nanoTime() when the caller started waiting for this repository.
+     */
+    Result<SharedSessionData> sessions(long arrivedNanos) {
+        Result<SharedSessionData> cached = cachedSessions();
+        if(cached != null) {
+            return cached;
+        }
+
+        awaitPendingService();
+        synchronized(fetchLock) {
+            cached = cachedSessions();
+            if(cached != null) {
+                return cached;
+            }
+
+            SharedDeviceSessionData device;
+            SharedUserSessionData user;
+            boolean userCached;
+            synchronized(cacheLock) {
+                //one snapshot, not a device session from before an invalidation and a user session from after.
+                device = cachedDeviceSession;
+                user = cachedUserSession;
+                userCached = user != null || cachedNoUser;
+            }
+
+            if(device == null && !userCached) {
+                Result<SharedSessionData> combined;
+                Flight<SharedSessionData> flight = lastSessionsFlight;
+                if(flight != null && flight.sharedWith(arrivedNanos, deviceSessionGeneration, userSessionGeneration)) {
+                    combined = flight.share();
+                } else {
+                    combined = refreshCachedSessions(false);
+                }
+
+                if(combined.session != null) {
+                    return combined;
+                }
+
+                if(combined.error == SessionError.RATE_LIMITED) {
+                    //separate calls would only be turned away too.
+                    Result<SharedDeviceSessionData> snapshot = deviceSnapshotIfRateLimited(
+                            new Result<SharedDeviceSessionData>(null, combined.error, combined.cacheOutcome));
+                    Result<SharedUserSessionData> noUser = userSnapshotIfRateLimited(
+                            new Result<SharedUserSessionData>(null, combined.error, combined.cacheOutcome));
+                    return new Result<SharedSessionData>(new SharedSessionData(0, snapshot.session, null),
+                            snapshot.error != null ? snapshot.error : noUser.error, snapshot.cacheOutcome);
+                }
+            }
+
+            Result<SharedUserSessionData> userResult = userCached ?
+                    new Result<SharedUserSessionData>(user, null, TelemetryRecorder.OUTCOME_CACHE_HIT) :
+                    fetchUser(arrivedNanos);
+            Result<SharedDeviceSessionData> deviceResult = device != null ?
+                    new Result<SharedDeviceSessionData>(device, null, TelemetryRecorder.OUTCOME_CACHE_HIT) :
+                    fetchDevice(arrivedNanos);
+            device = deviceResult.session;
+            user = userResult.session;
+
+            long version;
+            synchronized(cacheLock) {
+                //the version only describes the pair if both are still the ones cached under it.
+                version = device == cachedDeviceSession && user == cachedUserSession ? cachedSessionVersion : 0;
+            }
+
+            SessionError error = deviceResult.error != null ? deviceResult.error : userResult.error;
+            byte outcome = deviceResult.cacheOutcome != TelemetryRecorder.OUTCOME_CACHE_HIT ?
+                    deviceResult.cacheOutcome : userResult.cacheOutcome;
+            return new Result<SharedSessionData>(new SharedSessionData(version, device, user), error, outcome);
+        }
+    }
+
+    /**
+     * @return both sessions and their version if both are cached, counting "nobody logged in" as a
+     * cached user session, else null.
+     */
+    private Result<SharedSessionData> cachedSessions() {
+        synchronized(cacheLock) {
+            if(cachedDeviceSession == null || (cachedUserSession == null && !cachedNoUser)) {
+                return null;
+            }
+            return hit(new SharedSessionData(cachedSessionVersion, cachedDeviceSession, cachedUserSession));
+        }
+    }
+
+    /**
+     * @return a session served from the cache, counted for {@link #stats()}.
+     */
+    private <T> Result<T> hit(T session) {
+        cacheHits.incrementAndGet();
+        return new Result<T>(session, null, TelemetryRecorder.OUTCOME_CACHE_HIT);
+    }
+
+    /**
+     * Fetches the device session, or takes the result of a fetch that started after the caller
+     * arrived; over the rate limit, falls back to the last known device session.  Only called under
+     * fetchLock.
+     */
+    private Result<SharedDeviceSessionData> fetchDevice(long arrivedNanos) {
+        Result<SharedDeviceSessionData> result;
+        Flight<SharedDeviceSessionData> flight = lastDeviceFlight;
+        if(flight != null && flight.sharedWith(arrivedNanos, deviceSessionGeneration, flight.userGeneration)) {
+            result = flight.share();
+        } else {
+            result = refreshCachedDevice();
+        }
+
+        return result.session != null ? result : deviceSnapshotIfRateLimited(result);
+    }
+
+    /**
+     * Fetches the user session, or takes the result of a fetch that started after the caller
+     * arrived; over the rate limit, answers that nobody is logged in if that was the launcher's last
+     * answer.  Only called under fetchLock.
+     */
+    private Result<SharedUserSessionData> fetchUser(long arrivedNanos) {
+        Result<SharedUserSessionData> result;
+        Flight<SharedUserSessionData> flight = lastUserFlight;
+        if(flight != null && flight.sharedWith(arrivedNanos, flight.deviceGeneration, userSessionGeneration)) {
+            result = flight.share();
+        } else {
+            result = refreshCachedUser(false);
+        }
+
+        return userSnapshotIfRateLimited(result);
+    }
+
+    /**
+     * @param failed - a device session fetch that came back empty.
+     * @return the last known device session if that fetch was rate limited, else the failure itself.
+     */
+    private Result<SharedDeviceSessionData> deviceSnapshotIfRateLimited(Result<SharedDeviceSessionData> failed) {
+        SharedDeviceSessionData snapshot = lastKnownDeviceSession;
+        if(failed.error != SessionError.RATE_LIMITED || snapshot == null) {
+            return failed;
+        }
+
+        snapshotsServed++;
+        return new Result<SharedDeviceSessionData>(snapshot, null, TelemetryRecorder.OUTCOME_SNAPSHOT);
+    }
+
+    /**
+     * @param fetched - a user session fetch.
+     * @return no user and no error if that fetch was rate limited and the launcher last told us
+     * nobody is logged in, else the fetch itself.  A user session is never served this way, as it
+     * may have logged out since.
+     */
+    private Result<SharedUserSessionData> userSnapshotIfRateLimited(Result<SharedUserSessionData> fetched) {
+        if(fetched.error != SessionError.RATE_LIMITED || !lastKnownNoUser) {
+            return fetched;
+        }
+
+        snapshotsServed++;
+        return new Result<SharedUserSessionData>(null, null, TelemetryRecorder.OUTCOME_SNAPSHOT);
+    }
+
+    /**
+     * Takes a token for a call to the launcher.  Without one, the caller reports the call as rate
+     * limited.  Only called under fetchLock.
+     * @return true if the call may go out.
+     */
+    private boolean admitCall() {
+        if(ipcLimiter.tryAcquire()) {
+            ipcCalls++;
+            return true;
+        }
+
+        rateLimitedCalls++;
+        return false;
+    }
+
+    /**
+     * @return the launcher call counters: {cacheHits, ipcCalls, coalesced, rateLimited, servedFromSnapshot}.
+     */
+    JSONObject stats() throws JSONException {
+        JSONObject stats = new JSONObject();
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("ipcCalls", ipcCalls);
+        stats.put("coalesced", coalescedFetches);
+        stats.put("rateLimited", rateLimitedCalls);
+        stats.put("servedFromSnapshot", snapshotsServed);
+        return stats;
+    }
+
+    /**
+     * Returns the JSON for a user session, reusing the copy built when the session was cached.
+     * @param user
+     * @return
+     */
+    JSONObject userSessionJson(SharedUserSessionData user) {
+        synchronized(cacheLock) {
+            if(user == cachedUserSession && cachedUserJson != null) {
+                return cachedUserJson;
+            }
+        }
+
+        JSONObject asJson = userSessionToJson(user);
+
+        synchronized(cacheLock) {
+            if(user == cachedUserSession) {
+                cachedUserJson = asJson;
+            }
+        }
+
+        return asJson;
+    }
+
+    /**
+     * Attempts to get device info using the launcher service.  The result is not cached if the device
+     * session was invalidated while the call was in flight.  Only called under fetchLock.
+     * @return the validated device session, or null, and why.
+     */
+    private Result<SharedDeviceSessionData> refreshCachedDevice() {
+        long startedNanos = System.nanoTime();
+        int generation = deviceSessionGeneration;
+        Result<SharedDeviceSessionData> fetched = deviceSessionFromService();
+        SharedDeviceSessionData deviceSession = fetched.session;
+
+        //make sure device session isn't empty
+        if(!validateDeviceSession(deviceSession)) {
+            deviceSession = null;
+        } else {
+            lastKnownDeviceSession = deviceSession;
+        }
+        Result<SharedDeviceSessionData> result = new Result<SharedDeviceSessionData>(deviceSession, fetched.error,
+                TelemetryRecorder.OUTCOME_CACHE_MISS);
+        lastDeviceFlight = new Flight<SharedDeviceSessionData>(startedNanos, generation, 0, result);
+
+        boolean published = false;
+        synchronized(cacheLock) {
+            if(generation == deviceSessionGeneration) {
+                cachedDeviceSession = deviceSession;
+                published = deviceSession != null;
+            }
+        }
+
+        if(published) {
+            notifyDeviceSessionChanged(deviceSession);
+        }
+
+        return result;
+    }
+
+    /**
+     * Attempts to get user info using the launcher service.  The result is not cached if the user
+     * session was invalidated while the call was in flight.
+     * @param buildJson - whether to build the session's JSON now rather than on the first getUser;
+     * only worth it when prefetching, since it decodes every field of a lazily decoded session.
+     * Only called under fetchLock.
+     * @return the validated user session, or null, and why.
+     */
+    private Result<SharedUserSessionData> refreshCachedUser(boolean buildJson) {
+        long startedNanos = System.nanoTime();
+        int generation = userSessionGeneration;
+        Result<SharedUserSessionData> fetched = userSessionFromService();
+        SharedUserSessionData userSession = fetched.session;
+
+        //make sure user session isn't empty
+        if(!validateUserSession(userSession)) {
+            userSession = null;
+        }
+        Result<SharedUserSessionData> result = new Result<SharedUserSessionData>(userSession, fetched.error,
+                TelemetryRecorder.OUTCOME_CACHE_MISS);
+        lastUserFlight = new Flight<SharedUserSessionData>(startedNanos, 0, generation, result);
+        JSONObject userJson = buildJson && userSession != null ? userSessionToJson(userSession) : null;
+
+        boolean noUser = userSession == null && fetched.error == null;
+        synchronized(cacheLock) {
+            if(generation == userSessionGeneration) {
+                cachedUserSession = userSession;
+                cachedUserJson = userJson;
+                cachedNoUser = noUser;
+                if(fetched.error == null) {
+                    lastKnownNoUser = noUser;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Attempts to get device and user info together using the launcher service's combined call.
+     * Only called under fetchLock.
+     * @return the sessions, each validated (null if invalid), or no sessions if the call failed or
+     * the combined call isn't available and the sessions have to be fetched separately.
+     * @param buildJson - as for {@link #refreshCachedUser(boolean)}.
+     */
+    private Result<SharedSessionData> refreshCachedSessions(boolean buildJson) {
+        if(!combinedSessionsSupported) {
+            return new Result<SharedSessionData>(null, null, TelemetryRecorder.OUTCOME_CACHE_MISS);
+        }
+
+        long startedNanos = System.nanoTime();
+        int deviceGeneration = deviceSessionGeneration;
+        int userGeneration = userSessionGeneration;
+        Result<SharedSessionData> fetched = sessionsFromService();
+        SharedSessionData sessions = fetched.session;
+        if(sessions == null) {
+            lastSessionsFlight = new Flight<SharedSessionData>(startedNanos, deviceGeneration, userGeneration, fetched);
+            return fetched;
+        }
+
+        SharedDeviceSessionData deviceSession = sessions.getDeviceSession();
+        if(!validateDeviceSession(deviceSession)) {
+            deviceSession = null;
+        } else {
+            lastKnownDeviceSession = deviceSession;
+        }
+
+        SharedUserSessionData userSession = sessions.getUserSession();
+        if(!validateUserSession(userSession)) {
+            userSession = null;
+        }
+        JSONObject userJson = buildJson && userSession != null ? userSessionToJson(userSession) : null;
+
+        boolean devicePublished;
+        synchronized(cacheLock) {
+            boolean deviceCurrent = deviceGeneration == deviceSessionGeneration;
+            devicePublished = deviceCurrent && deviceSession != null;
+            boolean userCurrent = userGeneration == userSessionGeneration;
+
+            if(deviceCurrent) {
+                cachedDeviceSession = deviceSession;
+            }
+
+            if(userCurrent) {
+                cachedUserSession = userSession;
+                cachedUserJson = userJson;
+                cachedNoUser = userSession == null;
+                lastKnownNoUser = userSession == null;
+            }
+
+            if(deviceCurrent && userCurrent) {
+                cachedSessionVersion = sessions.getVersion();
+            }
+        }
+
+        if(devicePublished) {
+            notifyDeviceSessionChanged(deviceSession);
+        }
+
+        Result<SharedSessionData> result = new Result<SharedSessionData>(
+                new SharedSessionData(sessions.getVersion(), deviceSession, userSession), null,
+                TelemetryRecorder.OUTCOME_CACHE_MISS);
+        lastSessionsFlight = new Flight<SharedSessionData>(startedNanos, deviceGeneration, userGeneration, result);
+        return result;
+    }
+
+    /**
+     * Validate the device session.  The device ID and store number should be present. Note that
+     * it is a valid scenario for no store number to exist, though users should not be able to get into
+     * applications when this occurs.
+     * @param device
+     * @return
+     */
+    private boolean validateDeviceSession(SharedDeviceSessionData device) {
+        if(device != null && device.getDeviceId() != null && !device.getDeviceId().isEmpty() &&
+                device.getStoreNumber() != null && !device.getStoreNumber().isEmpty()) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Validate the user session - the user ID, at the very least, should be present.
+     * @param user
+     * @return
+     */
+    private boolean validateUserSession(SharedUserSessionData user) {
+        if(user != null && user.getUserId() != null && !user.getUserId().isEmpty()) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Converts the user session object to JSON. JSON Fields here will match the field names on the
+     * input POJO - these may not necessarily match the object structure and format expected by the
+     * HTML5 application framework.
+     * @return
+     */
+    private static JSONObject userSessionToJson(SharedUserSessionData user) {
+        JSONObject asJson = new JSONObject();
+        if(user != null) {
+            try {
+                asJson.put("departmentNumber", user.getDepartmentNumber());
+                asJson.put("firstName", user.getFirstName());
+                asJson.put("middleName", user.getMiddleName());
+                asJson.put("lastName", user.getLastName());
+
+                if(user.getLdapGroups() != null) {
+                    JSONArray ldapGroupArray = new JSONArray();
+                    for(String group : user.getLdapGroups()) {
+                        ldapGroupArray.put(group);
+                    }
+                    asJson.put("ldapGroups", ldapGroupArray);
+                }
+
+                asJson.put("locationNumber", user.getLocationNumber());
+                asJson.put("locationType", user.getLocationType());
+                asJson.put("associateUserID", user.getUserId());
+                asJson.put("userType", user.getUserType());
+                asJson.put("imsUserLevel", user.getImsUserLevel());
+            } catch(JSONException ex) {
+                LOG.e("Unable to convert user session object to JSON.", ex);
+                asJson = null;
+            }
+        }
+
+        return asJson;
+    }
+
+    /**
+     * Attempts to retrieve device session from AIDL service. Returns no data, and why, if an
+     * exception occurs, service is not bound / available or the call is rate limited.
+     * @return
+     */
+    private Result<SharedDeviceSessionData> deviceSessionFromService() {
+        SharedDeviceSessionData data = null;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        IRemoteSessionService service = sessionServiceBinder.getService();
+        if(service != null && admitCall()) {
+            try {
+                data = service.getDeviceData();
+            } catch(RemoteException ex) {
+                LOG.eRateLimited("Remote exception thrown while attempting to retrieve device data from AIDL service.", ex);
+                error = SessionError.REMOTE_EXCEPTION;
+                data = null;
+            }
+        } else if(service == null) {
+            LOG.eRateLimited("Attempt to retrieve device data when session service null (not bound/available).", null);
+            error = sessionServiceBinder.isBound() ? SessionError.SERVICE_NOT_BOUND : SessionError.SERVICE_UNAVAILABLE;
+            data = null;
+        } else {
+            error = SessionError.RATE_LIMITED;
+        }
+
+        telemetry.record(TelemetryRecorder.EVENT_IPC_GET_DEVICE_DATA, startWallMs, startNanos, TelemetryRecorder.OUTCOME_NONE, error);
+
+        return new Result<SharedDeviceSessionData>(data, error, TelemetryRecorder.OUTCOME_CACHE_MISS);
+    }
+
+    /**
+     * Attempts to retrieve user session from AIDL service. Returns no data, and why, if an
+     * exception occurs, service is not bound / available or the call is rate limited.
+     * @return
+     */
+    private Result<SharedUserSessionData> userSessionFromService() {
+        SharedUserSessionData data = null;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        IRemoteSessionService service = sessionServiceBinder.getService();
+        if(service != null && admitCall()) {
+            try {
+                data = service.getUserData();
+            } catch(RemoteException ex) {
+                LOG.eRateLimited("Remote exception thrown while attempting to retrieve user data from AIDL service.", ex);
+                error = SessionError.REMOTE_EXCEPTION;
+                data = null;
+            }
+        } else if(service == null) {
+            LOG.eRateLimited("Attempt to retrieve user data when session service null (not bound/available).", null);
+            error = sessionServiceBinder.isBound() ? SessionError.SERVICE_NOT_BOUND : SessionError.SERVICE_UNAVAILABLE;
+            data = null;
+        } else {
+            error = SessionError.RATE_LIMITED;
+        }
+
+        telemetry.record(TelemetryRecorder.EVENT_IPC_GET_USER_DATA, startWallMs, startNanos, TelemetryRecorder.OUTCOME_NONE, error);
+
+        return new Result<SharedUserSessionData>(data, error, TelemetryRecorder.OUTCOME_CACHE_MISS);
+    }
+
+    /**
+     * Attempts to retrieve the launcher's session version from AIDL service.  Returns 0 if an
+     * exception occurs, service is not bound / available or the launcher predates the call.
+     * @return
+     */
+    private long sessionVersionFromService() {
+        long version = 0;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        IRemoteSessionService service = sessionServiceBinder.getService();
+        if(service != null && admitCall()) {
+            try {
+                version = service.getSessionVersion();
+            } catch(RemoteException ex) {
+                LOG.eRateLimited("Remote exception thrown while attempting to retrieve session version from AIDL service.", ex);
+                error = SessionError.REMOTE_EXCEPTION;
+                version = 0;
+            }
+        } else if(service == null) {
+            LOG.eRateLimited("Attempt to retrieve session version when session service null (not bound/available).", null);
+            error = sessionServiceBinder.isBound() ? SessionError.SERVICE_NOT_BOUND : SessionError.SERVICE_UNAVAILABLE;
+        } else {
+            error = SessionError.RATE_LIMITED;
+        }
+
+        telemetry.record(TelemetryRecorder.EVENT_IPC_GET_SESSION_VERSION, startWallMs, startNanos, TelemetryRecorder.OUTCOME_NONE, error);
+
+        return version;
+    }
+
+    /**
+     * Attempts to retrieve both sessions from AIDL service in one transaction.  Returns no data if an
+     * exception occurs, service is not bound / available, the call is rate limited or the launcher
+     * predates the combined call; in the last case, the only one without an error, the combined
+     * call is not attempted again until the service reconnects.
+     * @return
+     */
+    private Result<SharedSessionData> sessionsFromService() {
+        SharedSessionData data = null;
+        SessionError error = null;
+        long startWallMs = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        IRemoteSessionService service = sessionServiceBinder.getService();
+        if(service != null && admitCall()) {
+            try {
+                data = service.getSessions();
+
+                if(data == null) {
+                    //an unknown transaction comes back as an empty reply, which reads as null.
+                    LOG.i("Launcher does not support combined session retrieval, falling back to separate calls.");
+                    combinedSessionsSupported = false;
+                }
+            } catch(RemoteException ex) {
+                LOG.eRateLimited("Remote exception thrown while attempting to retrieve session data from AIDL service.", ex);
+                error = SessionError.REMOTE_EXCEPTION;
+                data = null;
+            }
+        } else if(service == null) {
+            LOG.eRateLimited("Attempt to retrieve session data when session service null (not bound/available).", null);
+            error = sessionServiceBinder.isBound() ? SessionError.SERVICE_NOT_BOUND : SessionError.SERVICE_UNAVAILABLE;
+            data = null;
+        } else {
+            error = SessionError.RATE_LIMITED;
+        }
+
+        telemetry.record(TelemetryRecorder.EVENT_IPC_GET_SESSIONS, startWallMs, startNanos, TelemetryRecorder.OUTCOME_NONE, error);
+
+        return new Result<SharedSessionData>(data, error, TelemetryRecorder.OUTCOME_CACHE_MISS);
+    }
+
+    /**
+     * Runs background work on the session executor, unless the repository has been shut down.
+     */
+    private void execute(Runnable task) {
+        if(sessionExecutor.isShutdown()) {
+            return;
+        }
+
+        try {
+            sessionExecutor.execute(task);
+        } catch(RejectedExecutionException ex) {
+            //shut down in the meantime.
+        }
+    }
+
+    private final BroadcastReceiver appShutdownReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            LOG.i("Application shutdown request received.  Notifying plugin instances.");
+
+            List<Holder> current;
+            synchronized(SessionRepository.class) {
+                current = new ArrayList<Holder>(holders);
+            }
+
+            for(Holder holder : current) {
+                holder.onAppShutdownRequested();
+            }
+        }
+    };
+
+    private final BroadcastReceiver sessionChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            //Make sure we clear the cached session when it has changed.  This will force a pull from
+            //the Launcher IPC service next time an app requests session data.  Note that an app's
+            //process should be killed as well for most session change events, so that would effectively
+            //force a re-retrieval as well.  Only the session named by the broadcast is dropped, and the
+            //burst of broadcasts the launcher sends (e.g. during login) is answered with a single
+            //prefetch once it settles.
+            String action = intent.getAction();
+            if(FirstPhoneLauncherPlugin.ACTION_DEVICE_SESSION_CHANGED.equals(action)) {
+                invalidateDeviceSession();
+                synchronized(cacheLock) {
+                    deviceSessionChangePending = true;
+                }
+            } else if(FirstPhoneLauncherPlugin.ACTION_USER_SESSION_CHANGED.equals(action)) {
+                invalidateUserSession();
+                synchronized(cacheLock) {
+                    userSessionChangePending = true;
+                }
+            }
+
+            mainHandler.removeCallbacks(sessionChangeSettled);
+            mainHandler.postDelayed(sessionChangeSettled, SESSION_CHANGE_COALESCE_MS);
+        }
+    };
+
+    private final Runnable sessionChangeSettled = new Runnable() {
+        @Override
+        public void run() {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    prefetchChangedSessions();
+                }
+            });
+        }
+    };
+
+    private final SessionServiceBinder.Listener sessionServiceListener = new SessionServiceBinder.Listener() {
+        @Override
+        public void onSessionServiceConnected(IRemoteSessionService service) {
+            //a different (or upgraded) launcher may have answered, check again for the combined call.
+            combinedSessionsSupported = true;
+
+            StartupTrace.endAsync(StartupTrace.Milestone.BIND_SERVICE);
+            StartupTrace.mark(StartupTrace.Milestone.SERVICE_CONNECTED);
+        }
+
+        @Override
+        public void onSessionServiceDisconnected() {
+            //calls check the binder's service, which is already cleared.
+        }
+    };
+}
@@ -0,0 +1,504 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.ServiceConnection;
+import android.content.SharedPreferences;
+import android.content.pm.ResolveInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.homedepot.ngfp.session.service.IRemoteSessionService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Discovers and binds to a launcher exporting {@link IRemoteSessionService}.
+ *
+ * Candidates are found with queryIntentServices and tried in priority order.  If the bound provider
+ * dies or does not connect in time, the next candidate is bound instead.  The highest priority
+ * provider is remembered in shared preferences once it has connected, so that a warm start can bind
+ * to it directly without resolving the service again.  A failover target is never remembered, so
+ * the next start goes back to the preferred provider.  The remembered provider is checked with
+ * queryIntentServices before it is bound, so an uninstalled or disabled one costs no bind attempt.
+ *
+ * Once every candidate has failed, they are resolved and bound again after a backoff, from
+ * {@link #RETRY_MIN_MS} doubling up to {@link #RETRY_MAX_MS}.  A package being installed or updated
+ * resolves them again right away, as it may have brought a provider.
+ *
+ * A pinned component skips discovery altogether; this is how a build is pointed at a stand-in
+ * session service instead of the production launcher.
+ */
+class SessionServiceBinder {
+
+    /**
+     * Receives connection state changes.  Callbacks are delivered on the main thread.
+     */
+    interface Listener {
+        void onSessionServiceConnected(IRemoteSessionService service);
+
+        void onSessionServiceDisconnected();
+    }
+
+    private static final String TAG = SessionServiceBinder.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    private static final String PREF_SESSION_SERVICE_COMPONENT = "sessionServiceComponent";
+
+    //how long a candidate gets to connect before we move on to the next one.
+    private static final long BIND_TIMEOUT_MS = 2000;
+    //how long to wait before binding again once every candidate has failed, doubling each time.
+    static final long RETRY_MIN_MS = 1000;
+    static final long RETRY_MAX_MS = 60000;
+
+    private final Context appContext;
+    private final Listener listener;
+    private final ComponentName pinnedComponent;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final List<ComponentName> candidates = new ArrayList<ComponentName>();
+    private int candidateIndex = -1;
+    private boolean candidatesResolved = false;
+    private boolean implicitBinding = false;
+    private ComponentName boundComponent = null;
+    //the highest priority provider found by the last resolve; null until resolved.
+    private ComponentName preferredComponent = null;
+    //whether a binding is wanted, i.e. between bind() and unbind().
+    private boolean started = false;
+    private long retryDelayMs = 0;
+    private boolean packageReceiverRegistered = false;
+
+    private volatile IRemoteSessionService service = null;
+
+    /**
+     * @param appContext - the application context to bind with.
+     * @param listener - receives connection state changes.
+     * @param pinnedComponent - the only component to bind, or null to discover providers.
+     */
+    SessionServiceBinder(Context appContext, Listener listener, ComponentName pinnedComponent) {
+        this.appContext = appContext;
+        this.listener = listener;
+        this.pinnedComponent = pinnedComponent;
+    }
+
+    /**
+     * Starts binding to the session service.  Safe to call from any thread; a call while already
+     * bound (or binding) is a no-op.
+     * @return true if a bind request is outstanding or connected.
+     */
+    synchronized boolean bind() {
+        if(boundComponent != null) {
+            return true;
+        }
+
+        started = true;
+        mainHandler.removeCallbacks(retryBind);
+
+        if(appContext.getApplicationInfo().targetSdkVersion < Build.VERSION_CODES.LOLLIPOP) {
+            //Lollipop and above, bound service must be started with an explicit intent
+            LOG.w("Implicit intents with startService are not safe");
+            boolean result = appContext.bindService(new Intent(IRemoteSessionService.class.getName()),
+                    connection, Context.BIND_AUTO_CREATE);
+            if(result) {
+                implicitBinding = true;
+                boundComponent = new ComponentName(appContext.getPackageName(), IRemoteSessionService.class.getName());
+            }
+            return result;
+        }
+
+        registerPackageReceiver();
+
+        candidates.clear();
+        candidateIndex = -1;
+        candidatesResolved = false;
+        preferredComponent = null;
+
+        if(pinnedComponent != null) {
+            candidates.add(pinnedComponent);
+            candidatesResolved = true;
+        } else {
+            ComponentName cached = readCachedComponent();
+            if(cached != null && !isExported(cached)) {
+                LOG.w("Remembered session service is no longer exported ", cached.flattenToShortString());
+                clearCachedComponent();
+                cached = null;
+            }
+
+            if(cached != null) {
+                candidates.add(cached);
+            } else {
+                resolveCandidates();
+            }
+        }
+
+        if(!bindNextCandidate()) {
+            scheduleRetry();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the current binding, if any.
+     */
+    synchronized void unbind() {
+        started = false;
+        retryDelayMs = 0;
+        mainHandler.removeCallbacks(bindTimeout);
+        mainHandler.removeCallbacks(retryBind);
+        unregisterPackageReceiver();
+
+        if(boundComponent != null) {
+            try {
+                appContext.unbindService(connection);
+            } catch(Exception ex) {
+                LOG.e("Exception while unbinding from service.", ex);
+            }
+        }
+
+        boundComponent = null;
+        implicitBinding = false;
+        candidates.clear();
+        candidateIndex = -1;
+        service = null;
+        notifyAll();
+    }
+
+    synchronized boolean isBound() {
+        return boundComponent != null;
+    }
+
+    /**
+     * @return the connected service, or null if not (yet) connected.
+     */
+    IRemoteSessionService getService() {
+        return service;
+    }
+
+    /**
+     * Blocks until the service connects, the binding is dropped or the timeout expires.  Returns
+     * immediately on the main thread, where connection callbacks are delivered.
+     * @param timeoutMs - the longest time to wait.
+     * @return the connected service, or null if not connected in time.
+     */
+    synchronized IRemoteSessionService awaitService(long timeoutMs) {
+        if(Looper.myLooper() == Looper.getMainLooper()) {
+            return service;
+        }
+
+        long deadline = SystemClock.uptimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while(service == null && boundComponent != null && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch(InterruptedException ex) {
+                LOG.e("Interrupted while waiting for service binding.");
+                Thread.currentThread().interrupt();
+                break;
+            }
+            remaining = deadline - SystemClock.uptimeMillis();
+        }
+
+        return service;
+    }
+
+    /**
+     * Binds the next untried candidate, resolving the full candidate list if the cached component
+     * turns out to be unusable.
+     * @return true if a bind request is outstanding.
+     */
+    private boolean bindNextCandidate() {
+        while(true) {
+            while(++candidateIndex < candidates.size()) {
+                ComponentName component = candidates.get(candidateIndex);
+                Intent explicitIntent = new Intent(IRemoteSessionService.class.getName());
+                explicitIntent.setComponent(component);
+
+                boolean result = false;
+                try {
+                    result = appContext.bindService(explicitIntent, connection, Context.BIND_AUTO_CREATE);
+                } catch(SecurityException ex) {
+                    LOG.e("Not permitted to bind to ", component.flattenToShortString(), ex);
+                }
+
+                if(result) {
+                    boundComponent = component;
+                    mainHandler.removeCallbacks(bindTimeout);
+                    mainHandler.postDelayed(bindTimeout, BIND_TIMEOUT_MS);
+                    return true;
+                }
+
+                LOG.w("Unable to bind to session service ", component.flattenToShortString());
+                try {
+                    //a failed bind may still leave the connection registered.
+                    appContext.unbindService(connection);
+                } catch(Exception ex) {
+                    //expected when nothing was registered.
+                }
+            }
+
+            if(candidatesResolved) {
+                LOG.e("No launcher exporting the session service could be bound.");
+                boundComponent = null;
+                return false;
+            }
+
+            //the cached component is gone (uninstalled, disabled); fall back to a full resolve.
+            clearCachedComponent();
+            candidateIndex = candidates.size() - 1;
+            resolveCandidates();
+        }
+    }
+
+    /**
+     * Moves on to the next candidate after the current one died or timed out.  If there is no other
+     * candidate, the current binding is kept (or re-established when rebind is set) so the system
+     * reconnects once the launcher comes back.
+     */
+    private synchronized void failOver(boolean rebind) {
+        if(boundComponent == null || implicitBinding) {
+            return;
+        }
+
+        if(!candidatesResolved) {
+            resolveCandidates();
+        }
+
+        ComponentName failed = boundComponent;
+        boolean hasAlternate = false;
+        for(int i = 0; i < candidates.size(); i++) {
+            if(!candidates.get(i).equals(failed)) {
+                hasAlternate = true;
+                break;
+            }
+        }
+
+        if(!hasAlternate && !rebind) {
+            LOG.w("No alternate session service, waiting for ", failed.flattenToShortString());
+            return;
+        }
+
+        LOG.w("Failing over from session service ", failed.flattenToShortString());
+        mainHandler.removeCallbacks(bindTimeout);
+        try {
+            appContext.unbindService(connection);
+        } catch(Exception ex) {
+            LOG.e("Exception while unbinding from service.", ex);
+        }
+        boundComponent = null;
+        service = null;
+
+        //rotate the failed provider to the back so every alternate is tried before it again.
+        candidates.remove(failed);
+        candidates.add(failed);
+        candidateIndex = -1;
+
+        if(!bindNextCandidate()) {
+            candidates.clear();
+            notifyAll();
+            scheduleRetry();
+        }
+    }
+
+    /**
+     * Binds again after a backoff, once every candidate has failed.
+     */
+    private void scheduleRetry() {
+        retryDelayMs = retryDelayMs == 0 ? RETRY_MIN_MS : Math.min(retryDelayMs * 2, RETRY_MAX_MS);
+        LOG.w("Binding the session service again in ms: ", retryDelayMs);
+        mainHandler.removeCallbacks(retryBind);
+        mainHandler.postDelayed(retryBind, retryDelayMs);
+    }
+
+    /**
+     * @return whether the component is still installed, enabled and exporting the session service.
+     */
+    private boolean isExported(ComponentName component) {
+        Intent intent = new Intent(IRemoteSessionService.class.getName());
+        intent.setComponent(component);
+        List<ResolveInfo> infos = appContext.getPackageManager().queryIntentServices(intent, 0);
+        return infos != null && !infos.isEmpty();
+    }
+
+    private void registerPackageReceiver() {
+        if(packageReceiverRegistered || pinnedComponent != null) {
+            return;
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        appContext.registerReceiver(packageReceiver, filter);
+        packageReceiverRegistered = true;
+    }
+
+    private void unregisterPackageReceiver() {
+        if(!packageReceiverRegistered) {
+            return;
+        }
+
+        try {
+            appContext.unregisterReceiver(packageReceiver);
+        } catch(Exception ex) {
+            LOG.e("Exception during unregistration.", ex);
+        }
+        packageReceiverRegistered = false;
+    }
+
+    /**
+     * Populates the candidate list with every exported session service, highest priority first.
+     * Components already in the list keep their position.
+     */
+    private void resolveCandidates() {
+        candidatesResolved = true;
+
+        List<ResolveInfo> infos = appContext.getPackageManager()
+                .queryIntentServices(new Intent(IRemoteSessionService.class.getName()), 0);
+        if(infos == null || infos.isEmpty()) {
+            return;
+        }
+
+        List<ResolveInfo> sorted = new ArrayList<ResolveInfo>(infos);
+        Collections.sort(sorted, new Comparator<ResolveInfo>() {
+            @Override
+            public int compare(ResolveInfo lhs, ResolveInfo rhs) {
+                return rhs.priority - lhs.priority;
+            }
+        });
+
+        for(ResolveInfo info : sorted) {
+            if(info.serviceInfo == null) {
+                continue;
+            }
+
+            ComponentName component = new ComponentName(info.serviceInfo.packageName, info.serviceInfo.name);
+            if(preferredComponent == null) {
+                preferredComponent = component;
+            }
+            if(!candidates.contains(component)) {
+                candidates.add(component);
+            }
+        }
+    }
+
+    private ComponentName readCachedComponent() {
+        String flattened = prefs().getString(PREF_SESSION_SERVICE_COMPONENT, null);
+        return flattened != null ? ComponentName.unflattenFromString(flattened) : null;
+    }
+
+    private void writeCachedComponent(ComponentName component) {
+        prefs().edit().putString(PREF_SESSION_SERVICE_COMPONENT, component.flattenToString()).apply();
+    }
+
+    private void clearCachedComponent() {
+        prefs().edit().remove(PREF_SESSION_SERVICE_COMPONENT).apply();
+    }
+
+    private SharedPreferences prefs() {
+        return appContext.getSharedPreferences(FirstPhoneLauncherPlugin.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private final Runnable retryBind = new Runnable() {
+        @Override
+        public void run() {
+            synchronized(SessionServiceBinder.this) {
+                if(started && boundComponent == null) {
+                    bind();
+                }
+            }
+        }
+    };
+
+    /**
+     * A package was installed or updated, and may have brought a provider: with nothing bound the
+     * candidates are resolved and bound right away, and a binding still waiting on a dead provider
+     * fails over if there now is an alternate.
+     */
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            synchronized(SessionServiceBinder.this) {
+                if(!started || implicitBinding) {
+                    return;
+                }
+
+                if(boundComponent == null) {
+                    retryDelayMs = 0;
+                    bind();
+                } else if(service == null) {
+                    preferredComponent = null;
+                    resolveCandidates();
+                    failOver(false);
+                }
+            }
+        }
+    };
+
+    private final Runnable bindTimeout = new Runnable() {
+        @Override
+        public void run() {
+            if(service == null) {
+                LOG.w("Timed out waiting for session service to connect.");
+                failOver(false);
+            }
+        }
+    };
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            IRemoteSessionService connected = IRemoteSessionService.Stub.asInterface(binder);
+            synchronized(SessionServiceBinder.this) {
+                mainHandler.removeCallbacks(bindTimeout);
+                service = connected;
+                retryDelayMs = 0;
+
+                if(!implicitBinding && pinnedComponent == null && candidatesResolved) {
+                    //a warm start binds the cached component straight away, so only the preferred
+                    //provider is cached; after a failover the next start resolves again.
+                    if(name.equals(preferredComponent)) {
+                        writeCachedComponent(name);
+                    } else {
+                        clearCachedComponent();
+                    }
+                }
+                SessionServiceBinder.this.notifyAll();
+            }
+
+            listener.onSessionServiceConnected(connected);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+            listener.onSessionServiceDisconnected();
+
+            failOver(false);
+        }
+
+        //API 26+, no @Override so older compile SDKs still build.
+        public void onBindingDied(ComponentName name) {
+            //the binding will never reconnect on its own, so a rebind is needed even without alternates.
+            service = null;
+            listener.onSessionServiceDisconnected();
+
+            failOver(true);
+        }
+
+        //API 28+
+        public void onNullBinding(ComponentName name) {
+            LOG.e("Null binding returned by session service ", name.flattenToShortString());
+            failOver(false);
+        }
+    };
+}
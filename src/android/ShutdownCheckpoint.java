@@ -0,0 +1,241 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Lets the app save its state when the launcher asks it to shut down, and get it back on the next
+ * start.
+ *
+ * When a shutdown is requested and JS is watching for it, the watcher is told how long it has, and
+ * the app is only finished once JS has saved a checkpoint or the deadline has passed.  Without a
+ * watcher the app is finished right away, as before.
+ *
+ * The checkpoint is written through a memory mapping of a temporary app-private file, which is then
+ * renamed over the previous one, so a process killed mid-write leaves the last complete checkpoint.
+ * It is tagged with the user it was saved for and only handed back to the same user, once.
+ *
+ * Each WebView keeps its own checkpoint, in a file named after the key it was created with, so the
+ * WebViews of a process can't hand each other's state back or delete it.  The key has to be the same
+ * from one start to the next.
+ *
+ * File format, big endian: magic "FPCK", then the user ID and the state, each as a length (int)
+ * followed by that many bytes of UTF-8.
+ */
+class ShutdownCheckpoint {
+
+    private static final String TAG = ShutdownCheckpoint.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    //how long JS gets to save its state before the app is finished anyway.
+    static final long SHUTDOWN_DEADLINE_MS = 2000;
+
+    private static final String FILE_PREFIX = "firstphone-checkpoint-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int MAGIC = 0x4650434B; //"FPCK"
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File directory;
+    private final String fileName;
+    private final String tempFileName;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    //all guarded by this.
+    private CallbackContext watcher = null;
+    private Runnable pendingShutdown = null;
+
+    /**
+     * @param appContext
+     * @param key - identifies the WebView; any characters that can't go in a file name are replaced.
+     */
+    ShutdownCheckpoint(Context appContext, String key) {
+        this.directory = appContext.getFilesDir();
+        this.fileName = FILE_PREFIX + key.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_SUFFIX;
+        this.tempFileName = fileName + ".tmp";
+    }
+
+    /**
+     * Sends shutdown requests to the given callback, replacing any previous watcher.
+     * @param callbackContext
+     */
+    synchronized void watch(CallbackContext callbackContext) {
+        if(watcher != null) {
+            watcher.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+        }
+        watcher = callbackContext;
+
+        PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+        result.setKeepCallback(true);
+        callbackContext.sendPluginResult(result);
+    }
+
+    /**
+     * Stops sending shutdown requests; the app is finished right away again.
+     */
+    synchronized void stop() {
+        if(watcher != null) {
+            watcher.sendPluginResult(new PluginResult(PluginResult.Status.NO_RESULT));
+            watcher = null;
+        }
+    }
+
+    /**
+     * The launcher asked the app to shut down.  Called on the main thread.
+     * @param finish - finishes the app; run on the main thread once JS has saved its state, the
+     *               deadline has passed or nobody is watching.
+     */
+    synchronized void requestShutdown(final Runnable finish) {
+        if(pendingShutdown != null) {
+            return;
+        }
+
+        if(watcher == null) {
+            finish.run();
+            return;
+        }
+
+        JSONObject event = new JSONObject();
+        try {
+            event.put("deadlineMs", SHUTDOWN_DEADLINE_MS);
+        } catch(JSONException ex) {
+            LOG.e("Unable to convert shutdown request to JSON.", ex);
+        }
+
+        pendingShutdown = new Runnable() {
+            @Override
+            public void run() {
+                synchronized(ShutdownCheckpoint.this) {
+                    if(pendingShutdown != this) {
+                        return;
+                    }
+                    pendingShutdown = null;
+                }
+                finish.run();
+            }
+        };
+        mainHandler.postDelayed(pendingShutdown, SHUTDOWN_DEADLINE_MS);
+
+        PluginResult result = new PluginResult(PluginResult.Status.OK, event);
+        result.setKeepCallback(true);
+        watcher.sendPluginResult(result);
+    }
+
+    /**
+     * Saves the app's state, and lets a pending shutdown go ahead.
+     * @param userId - the user the state belongs to, or null if none is logged in.
+     * @param state
+     * @throws IOException if the checkpoint couldn't be written; a pending shutdown still goes ahead.
+     */
+    void save(String userId, String state) throws IOException {
+        try {
+            write(userId != null ? userId : "", state);
+        } finally {
+            proceed();
+        }
+    }
+
+    /**
+     * Lets a pending shutdown go ahead without saving, e.g. when there is no state that could be
+     * handed back.
+     */
+    void proceed() {
+        Runnable shutdown;
+        synchronized(this) {
+            shutdown = pendingShutdown;
+        }
+        if(shutdown != null) {
+            mainHandler.removeCallbacks(shutdown);
+            mainHandler.post(shutdown);
+        }
+    }
+
+    /**
+     * Returns the saved state, if it was saved for the same user, and deletes it either way.
+     * @param userId - the current user, or null if none is logged in.
+     * @return the state, or null if there is none for this user.
+     * @throws IOException if there is a checkpoint but it can't be read.
+     */
+    synchronized String restore(String userId) throws IOException {
+        File file = new File(directory, fileName);
+        if(!file.isFile()) {
+            return null;
+        }
+
+        try {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = in.getChannel();
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if(buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a checkpoint file.");
+                }
+
+                String owner = readString(buffer);
+                String state = readString(buffer);
+                if(!owner.equals(userId != null ? userId : "")) {
+                    LOG.i("Discarding checkpoint saved for another user.");
+                    return null;
+                }
+                return state;
+            } finally {
+                in.close();
+            }
+        } finally {
+            if(!file.delete()) {
+                LOG.w("Unable to delete ", file.getName());
+            }
+        }
+    }
+
+    private synchronized void write(String userId, String state) throws IOException {
+        byte[] owner = userId.getBytes(UTF_8);
+        byte[] data = state.getBytes(UTF_8);
+
+        File temp = new File(directory, tempFileName);
+        RandomAccessFile out = new RandomAccessFile(temp, "rw");
+        try {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 12 + owner.length + data.length);
+            buffer.putInt(MAGIC);
+            buffer.putInt(owner.length).put(owner);
+            buffer.putInt(data.length).put(data);
+            buffer.force();
+        } finally {
+            out.close();
+        }
+
+        if(!temp.renameTo(new File(directory, fileName))) {
+            throw new IOException("Unable to replace " + fileName);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < 4) {
+            throw new IOException("Truncated checkpoint file.");
+        }
+        int length = buffer.getInt();
+        if(length < 0 || length > buffer.remaining()) {
+            throw new IOException("Truncated checkpoint file.");
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Traces the plugin's cold start: initialization, receiver registration, the session service
+ * binding and the first settings request.
+ *
+ * Each milestone is traced the first time it happens - as a Trace section, or an async section
+ * for the binding, which connects on another thread - so it shows up in Perfetto / systrace, and
+ * its start and duration are kept for {@link #timeline()}.  Until {@link #enable()} is called every
+ * method returns after a single volatile read.
+ */
+final class StartupTrace {
+
+    enum Milestone {
+        PLUGIN_INITIALIZE("pluginInitialize"),
+        WARM_UP("warmUp"),
+        REGISTER_RECEIVERS("registerReceivers"),
+        BIND_SERVICE("bindService"),
+        SERVICE_CONNECTED("onServiceConnected"),
+        FIRST_SETTINGS("firstGetSettings");
+
+        private final String sectionName;
+
+        Milestone(String sectionName) {
+            this.sectionName = sectionName;
+        }
+    }
+
+    private static final String SECTION_PREFIX = "FirstPhoneLauncher.";
+
+    private static volatile boolean enabled = false;
+
+    //elapsed realtime in nanos; 0 until the milestone starts / ends.  Guarded by StartupTrace.class.
+    private static final long[] starts = new long[Milestone.values().length];
+    private static final long[] ends = new long[Milestone.values().length];
+
+    private StartupTrace() {
+    }
+
+    static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Begins a synchronous section, the first time only.
+     * @return true if the section was begun, and {@link #end(Milestone)} must be called on the same thread.
+     */
+    static boolean begin(Milestone milestone) {
+        if(!enabled || !claimStart(milestone)) {
+            return false;
+        }
+
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(SECTION_PREFIX + milestone.sectionName);
+        }
+        return true;
+    }
+
+    static void end(Milestone milestone) {
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        claimEnd(milestone);
+    }
+
+    /**
+     * Begins a section that may end on another thread, the first time only.
+     */
+    static void beginAsync(Milestone milestone) {
+        if(!enabled || !claimStart(milestone)) {
+            return;
+        }
+
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(SECTION_PREFIX + milestone.sectionName, milestone.ordinal());
+        }
+    }
+
+    /**
+     * Ends a section begun with {@link #beginAsync(Milestone)}, if it is still open.
+     */
+    static void endAsync(Milestone milestone) {
+        if(!enabled) {
+            return;
+        }
+
+        synchronized(StartupTrace.class) {
+            if(starts[milestone.ordinal()] == 0 || ends[milestone.ordinal()] != 0) {
+                return;
+            }
+            ends[milestone.ordinal()] = SystemClock.elapsedRealtimeNanos();
+        }
+
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(SECTION_PREFIX + milestone.sectionName, milestone.ordinal());
+        }
+    }
+
+    /**
+     * Records a milestone that is a point in time rather than a section.
+     */
+    static void mark(Milestone milestone) {
+        if(enabled && claimStart(milestone)) {
+            claimEnd(milestone);
+        }
+    }
+
+    private static synchronized boolean claimStart(Milestone milestone) {
+        if(starts[milestone.ordinal()] != 0) {
+            return false;
+        }
+        starts[milestone.ordinal()] = SystemClock.elapsedRealtimeNanos();
+        return true;
+    }
+
+    private static synchronized void claimEnd(Milestone milestone) {
+        ends[milestone.ordinal()] = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * @return the milestones reached so far, in order, as [{name, startMs, durationMs}].  Times
+     * are relative to the process start where the platform reports it (Nougat and above), otherwise
+     * to the first milestone.  A section still open has no duration.
+     */
+    static synchronized JSONArray timeline() throws JSONException {
+        JSONArray timeline = new JSONArray();
+
+        long origin;
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            origin = Process.getStartElapsedRealtime() * 1000000L;
+        } else {
+            origin = Long.MAX_VALUE;
+            for(long start : starts) {
+                if(start != 0) {
+                    origin = Math.min(origin, start);
+                }
+            }
+        }
+
+        for(Milestone milestone : Milestone.values()) {
+            long start = starts[milestone.ordinal()];
+            if(start == 0) {
+                continue;
+            }
+
+            JSONObject entry = new JSONObject();
+            entry.put("name", milestone.sectionName);
+            entry.put("startMs", (start - origin) / 1000000.0);
+            long end = ends[milestone.ordinal()];
+            if(end != 0) {
+                entry.put("durationMs", (end - start) / 1000000.0);
+            }
+            timeline.put(entry);
+        }
+
+        return timeline;
+    }
+}
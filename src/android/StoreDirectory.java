@@ -0,0 +1,194 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The store phone directory, indexed for prefix search and for dialing by entry ID.
+ *
+ * The directory is read from firstphone-directory.json in the app's private files (where the MDM
+ * agent drops updates) or, failing that, from the copy bundled in www.  It is a JSON array of
+ * entries: {storeNumber, id, name, extension, number}.  Only the entries for the device's store
+ * are indexed, once, into a sorted array of search keys - every word of the name and the
+ * extension - so a prefix search is a binary search plus a short scan.
+ */
+class StoreDirectory {
+
+    static final String FILE_NAME = "firstphone-directory.json";
+    private static final String ASSET_PATH = "www/" + FILE_NAME;
+
+    private final Context appContext;
+
+    //replaced as a whole, so trim() on the main thread never waits for a load.
+    private volatile Index index = null;
+
+    StoreDirectory(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * @param storeNumber - the device's store.
+     * @return the index for the store, loading it on first use or when the store changed.
+     * @throws IOException if there is no directory file or it can't be read.
+     * @throws JSONException if the directory file is malformed.
+     */
+    synchronized Index indexFor(String storeNumber) throws IOException, JSONException {
+        Index current = index;
+        if(current == null || !storeNumber.equals(current.storeNumber)) {
+            current = new Index(new JSONArray(readDirectory()), storeNumber);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Drops the index to free its memory; it is rebuilt on the next search.  Doesn't wait for a load
+     * in progress.
+     */
+    void trim() {
+        index = null;
+    }
+
+    private String readDirectory() throws IOException {
+        File file = new File(appContext.getFilesDir(), FILE_NAME);
+        InputStream in = file.isFile() ? new FileInputStream(file) : appContext.getAssets().open(ASSET_PATH);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * One store's entries, held in parallel arrays.
+     */
+    static final class Index {
+        private final String storeNumber;
+        private final String[] ids;
+        private final String[] names;
+        private final String[] extensions;
+        private final String[] numbers;
+        private final Map<String, Integer> entriesById;
+
+        //search keys sorted, each with the entry it points at.
+        private final String[] keys;
+        private final int[] keyEntries;
+
+        private Index(JSONArray directory, String storeNumber) throws JSONException {
+            this.storeNumber = storeNumber;
+            List<JSONObject> entries = new ArrayList<JSONObject>();
+            for(int i = 0; i < directory.length(); i++) {
+                JSONObject entry = directory.getJSONObject(i);
+                if(storeNumber.equals(entry.optString("storeNumber"))) {
+                    entries.add(entry);
+                }
+            }
+
+            int count = entries.size();
+            ids = new String[count];
+            names = new String[count];
+            extensions = new String[count];
+            numbers = new String[count];
+            entriesById = new HashMap<String, Integer>(count * 2);
+
+            List<String> keyList = new ArrayList<String>();
+            for(int i = 0; i < count; i++) {
+                JSONObject entry = entries.get(i);
+                ids[i] = entry.getString("id");
+                names[i] = entry.optString("name");
+                extensions[i] = entry.optString("extension");
+                numbers[i] = entry.optString("number");
+                entriesById.put(ids[i], i);
+
+                for(String word : names[i].toLowerCase(Locale.US).split("[^\\p{L}\\p{N}]+")) {
+                    if(!word.isEmpty()) {
+                        keyList.add(word + '\0' + i);
+                    }
+                }
+                if(!extensions[i].isEmpty()) {
+                    keyList.add(extensions[i] + '\0' + i);
+                }
+            }
+
+            //the entry number rides along after a NUL so equal words stay distinct and sort together.
+            String[] sorted = keyList.toArray(new String[keyList.size()]);
+            Arrays.sort(sorted);
+            keys = new String[sorted.length];
+            keyEntries = new int[sorted.length];
+            for(int i = 0; i < sorted.length; i++) {
+                int separator = sorted[i].indexOf('\0');
+                keys[i] = sorted[i].substring(0, separator);
+                keyEntries[i] = Integer.parseInt(sorted[i].substring(separator + 1));
+            }
+        }
+
+        /**
+         * Finds the entries with a name word or extension starting with the prefix.
+         * @param prefix - case insensitive.
+         * @param limit - the most entries to return.
+         * @return the matching entries as {id, name, extension}, in key order.
+         */
+        JSONArray search(String prefix, int limit) throws JSONException {
+            JSONArray matches = new JSONArray();
+            String key = prefix.trim().toLowerCase(Locale.US);
+            if(key.isEmpty() || limit <= 0) {
+                return matches;
+            }
+
+            int i = Arrays.binarySearch(keys, key);
+            if(i < 0) {
+                i = -i - 1;
+            }
+            //binarySearch may land on any of several equal keys.
+            while(i > 0 && keys[i - 1].equals(key)) {
+                i--;
+            }
+
+            boolean[] added = new boolean[ids.length];
+            for(; i < keys.length && keys[i].startsWith(key) && matches.length() < limit; i++) {
+                int entry = keyEntries[i];
+                if(added[entry]) {
+                    continue;
+                }
+                added[entry] = true;
+
+                JSONObject match = new JSONObject();
+                match.put("id", ids[entry]);
+                match.put("name", names[entry]);
+                match.put("extension", extensions[entry]);
+                matches.put(match);
+            }
+
+            return matches;
+        }
+
+        /**
+         * @return the number to dial for an entry, or null if there is no such entry.
+         */
+        String numberFor(String id) {
+            Integer entry = entriesById.get(id);
+            return entry != null && !numbers[entry].isEmpty() ? numbers[entry] : null;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records plugin performance counters (action and launcher IPC latency, cache outcome, error) for
+ * collection by the MDM agent.
+ *
+ * Events are fixed-size binary records written into a preallocated ring buffer; recording does no
+ * allocation and no string formatting.  The buffer is flushed periodically, on pause and on close
+ * to an app-private file, which is rotated once it reaches {@link #MAX_FILE_BYTES}.  If the buffer
+ * fills up between flushes the oldest events are overwritten and a {@link #EVENT_DROPPED} record
+ * with the number lost is written on the next flush.
+ *
+ * File format, big endian: a header of magic "FPLT", version (short) and event size (short), then
+ * events of {@link #EVENT_SIZE} bytes - start wall clock time in ms (long), duration in
+ * microseconds (int), event code (short), cache outcome (byte) and error (byte; 0 for none,
+ * otherwise the {@link SessionError} ordinal + 1).
+ */
+class TelemetryRecorder {
+
+    static final short EVENT_GET_DEVICE = 1;
+    static final short EVENT_GET_USER = 2;
+    static final short EVENT_GET_SSO_TOKEN = 3;
+    static final short EVENT_GET_SETTINGS = 4;
+    static final short EVENT_IPC_GET_DEVICE_DATA = 10;
+    static final short EVENT_IPC_GET_USER_DATA = 11;
+    static final short EVENT_IPC_GET_SESSIONS = 12;
+    static final short EVENT_IPC_GET_SESSION_VERSION = 13;
+    static final short EVENT_DROPPED = 255;
+
+    static final byte OUTCOME_NONE = 0;
+    static final byte OUTCOME_CACHE_HIT = 1;
+    static final byte OUTCOME_CACHE_MISS = 2;
+    static final byte OUTCOME_COALESCED = 3;
+    static final byte OUTCOME_SNAPSHOT = 4;
+
+    private static final String TAG = TelemetryRecorder.class.getSimpleName();
+    private static final PluginLog LOG = PluginLog.forTag(TAG);
+
+    static final int EVENT_SIZE = 16;
+    static final int CAPACITY = 1024;
+
+    private static final int MAGIC = 0x46504C54; //"FPLT"
+    private static final short FORMAT_VERSION = 1;
+
+    private static final String DIRECTORY = "firstphone-telemetry";
+    private static final String FILE_NAME = "telemetry.bin";
+    static final long MAX_FILE_BYTES = 256 * 1024;
+    //the current file plus this many rotated ones (telemetry.1.bin is the newest).
+    static final int MAX_ROTATED_FILES = 2;
+
+    private static final long FLUSH_INTERVAL_MS = 60000;
+
+    private volatile boolean enabled = false;
+
+    //guarded by ring.
+    private final ByteBuffer ring = ByteBuffer.allocate(CAPACITY * EVENT_SIZE);
+    private int head = 0;
+    private int pending = 0;
+    private int dropped = 0;
+
+    //guarded by flushLock; flushes may run on the flush thread or the closing thread.
+    private final Object flushLock = new Object();
+    private final ByteBuffer flushBuffer = ByteBuffer.allocate((CAPACITY + 1) * EVENT_SIZE);
+    private volatile File directory = null;
+    private ScheduledExecutorService flushExecutor = null;
+
+    /**
+     * Starts recording to the given app-private directory.  Later calls do nothing.
+     * @param filesDir - e.g. Context.getFilesDir(); the events go into a subdirectory.
+     */
+    synchronized void start(File filesDir) {
+        if(flushExecutor != null) {
+            return;
+        }
+
+        directory = new File(filesDir, DIRECTORY);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        flushExecutor.scheduleWithFixedDelay(flushTask, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        enabled = true;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records one event.  Cheap enough to call on every action; does nothing unless started.
+     * @param event - one of the EVENT_ codes.
+     * @param startWallMs - System.currentTimeMillis() when the event started.
+     * @param startNanos - System.nanoTime() when the event started.
+     * @param outcome - one of the OUTCOME_ codes.
+     * @param error - the error reported, or null.
+     */
+    void record(short event, long startWallMs, long startNanos, byte outcome, SessionError error) {
+        if(!enabled) {
+            return;
+        }
+
+        long durationMicros = (System.nanoTime() - startNanos) / 1000;
+        synchronized(ring) {
+            int offset = head * EVENT_SIZE;
+            ring.putLong(offset, startWallMs);
+            ring.putInt(offset + 8, (int) Math.min(durationMicros, Integer.MAX_VALUE));
+            ring.putShort(offset + 12, event);
+            ring.put(offset + 14, outcome);
+            ring.put(offset + 15, error != null ? (byte) (error.ordinal() + 1) : 0);
+
+            head = (head + 1) % CAPACITY;
+            if(pending < CAPACITY) {
+                pending++;
+            } else {
+                dropped++;
+            }
+        }
+    }
+
+    /**
+     * Writes the recorded events out in the background, e.g. when the app goes to the background.
+     */
+    synchronized void flushAsync() {
+        if(flushExecutor == null) {
+            return;
+        }
+
+        try {
+            flushExecutor.execute(flushTask);
+        } catch(RejectedExecutionException ex) {
+            //closed in the meantime.
+        }
+    }
+
+    /**
+     * Stops recording and writes out what is left.
+     */
+    void close() {
+        ScheduledExecutorService executor;
+        synchronized(this) {
+            enabled = false;
+            executor = flushExecutor;
+            flushExecutor = null;
+        }
+
+        if(executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private void flush() {
+        synchronized(flushLock) {
+            if(directory != null) {
+                flushLocked();
+            }
+        }
+    }
+
+    private void flushLocked() {
+        flushBuffer.clear();
+        synchronized(ring) {
+            int tail = (head - pending + CAPACITY) % CAPACITY;
+            for(int i = 0; i < pending; i++) {
+                int offset = ((tail + i) % CAPACITY) * EVENT_SIZE;
+                for(int b = 0; b < EVENT_SIZE; b++) {
+                    flushBuffer.put(ring.get(offset + b));
+                }
+            }
+            if(dropped > 0) {
+                flushBuffer.putLong(System.currentTimeMillis()).putInt(dropped)
+                        .putShort(EVENT_DROPPED).put(OUTCOME_NONE).put((byte) 0);
+            }
+            pending = 0;
+            dropped = 0;
+        }
+        flushBuffer.flip();
+
+        if(!flushBuffer.hasRemaining()) {
+            return;
+        }
+
+        try {
+            write(flushBuffer);
+        } catch(IOException ex) {
+            LOG.e("Unable to write telemetry, events lost: ", flushBuffer.remaining() / EVENT_SIZE, ex);
+        }
+    }
+
+    private void write(ByteBuffer events) throws IOException {
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File file = new File(directory, FILE_NAME);
+        if(file.length() + events.remaining() > MAX_FILE_BYTES) {
+            rotate(file);
+        }
+
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            FileChannel channel = out.getChannel();
+            if(channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(8);
+                header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) EVENT_SIZE).flip();
+                channel.write(header);
+            }
+
+            while(events.hasRemaining()) {
+                channel.write(events);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void rotate(File current) {
+        File oldest = new File(directory, rotatedName(MAX_ROTATED_FILES));
+        if(oldest.exists() && !oldest.delete()) {
+            LOG.w("Unable to delete ", oldest.getName());
+        }
+
+        for(int i = MAX_ROTATED_FILES - 1; i >= 1; i--) {
+            File rotated = new File(directory, rotatedName(i));
+            if(rotated.exists() && !rotated.renameTo(new File(directory, rotatedName(i + 1)))) {
+                LOG.w("Unable to rotate ", rotated.getName());
+            }
+        }
+
+        if(!current.renameTo(new File(directory, rotatedName(1)))) {
+            LOG.w("Unable to rotate ", current.getName());
+        }
+    }
+
+    private static String rotatedName(int index) {
+        return "telemetry." + index + ".bin";
+    }
+}
@@ -0,0 +1,134 @@
+package com.homedepot.ngfp.session.support;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Immutable pairing of the device and user session data, read from the launcher's session stores in
+ * a single operation so that the two always belong together.  The version is bumped by the launcher
+ * every time either session changes, and can be compared by callers to find out whether a snapshot
+ * they hold is still current.
+ */
+public class SharedSessionData implements Parcelable {
+
+    private final long version;
+    private final SharedDeviceSessionData deviceSession;
+    private final SharedUserSessionData userSession;
+
+    /**
+     * Parameterized constructor to create an immutable SharedSessionData object.
+     *
+     * @param version - the launcher's session version at the time both sessions were read.
+     * @param deviceSession - the device session, or null if none exists.
+     * @param userSession - the user session, or null if no user is logged in.
+     */
+    public SharedSessionData(long version, SharedDeviceSessionData deviceSession,
+                             SharedUserSessionData userSession) {
+        this.version = version;
+        this.deviceSession = deviceSession;
+        this.userSession = userSession;
+    }
+
+    /**
+     * Parcel constructor.  This is used when objects of this type are shared through IPC and
+     * 'parceled' / 'deparceled' between processes.
+     * @param parcel
+     */
+    public SharedSessionData(Parcel parcel) {
+        this.version = parcel.readLong();
+        this.deviceSession = parcel.readByte() != 0 ? new SharedDeviceSessionData(parcel) : null;
+        this.userSession = parcel.readByte() != 0 ? SharedUserSessionData.CREATOR.createFromParcel(parcel) : null;
+    }
+
+    /**
+     * Gets the launcher's session version.
+     * @return the version both sessions were read at.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the device session.
+     * @return the device session, or null if none exists.
+     */
+    public SharedDeviceSessionData getDeviceSession() {
+        return deviceSession;
+    }
+
+    /**
+     * Gets the user session.
+     * @return the user session, or null if no user is logged in.
+     */
+    public SharedUserSessionData getUserSession() {
+        return userSession;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SharedSessionData that = (SharedSessionData) o;
+
+        if (version != that.version) return false;
+        if (deviceSession != null ? !deviceSession.equals(that.deviceSession) : that.deviceSession != null)
+            return false;
+        if (userSession != null ? !userSession.equals(that.userSession) : that.userSession != null)
+            return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (version ^ (version >>> 32));
+        result = 31 * result + (deviceSession != null ? deviceSession.hashCode() : 0);
+        result = 31 * result + (userSession != null ? userSession.hashCode() : 0);
+        return result;
+    }
+
+    // Methods / statics for Parcelable contract follow below:
+
+    /**
+     * CREATOR is part of the Parcelable contract.  This will be used by the Android system to
+     * serialize / deserialize session data.
+     */
+    public static final Creator<SharedSessionData> CREATOR =
+            new Creator<SharedSessionData>() {
+
+                @Override
+                public SharedSessionData createFromParcel(Parcel parcel) {
+                    return new SharedSessionData(parcel);
+                }
+
+                @Override
+                public SharedSessionData[] newArray(int i) {
+                    return new SharedSessionData[i];
+                }
+            };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /*
+    The nested sessions are written inline, each preceded by a presence flag, rather than through
+    writeParcelable - this keeps class names out of the payload.
+     */
+    @Override
+    public void writeToParcel(Parcel parcel, int i) {
+        parcel.writeLong(version);
+
+        parcel.writeByte((byte) (deviceSession != null ? 1 : 0));
+        if(deviceSession != null) {
+            deviceSession.writeToParcel(parcel, i);
+        }
+
+        parcel.writeByte((byte) (userSession != null ? 1 : 0));
+        if(userSession != null) {
+            userSession.writeToParcel(parcel, i);
+        }
+    }
+}
@@ -4,28 +4,53 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Immutable session data object to be passed over IPC to other applications that need (and are
  * permissioned for) this data.  This represents the user's session data elements that can be
  * shared with other applications, but does NOT contain all user session data.
+ *
+ * The THD SSO token is held in a char buffer rather than a String so that it can be wiped once the
+ * session is no longer current - see {@link #wipeThdSsoToken()}.  It is read from and written to
+ * parcels a word at a time, never as a String, so a session that came over IPC holds no copy of
+ * it the wipe can't reach.  It still exists as a String where a caller asks for one: passed to
+ * the String constructor or read with {@link #getThdSsoToken()}.  The binder buffer it arrived in
+ * belongs to the platform and is not wiped either.  A wiped token compares as null in
+ * {@link #equals(Object)}, and the token is left out of {@link #hashCode()} so that wiping it
+ * doesn't change the hash.
+ *
+ * An object read through {@link #CREATOR}, as the session service proxy and intents do, decodes
+ * the user ID, type, level, token and LDAP groups up front - what the settings are built from.
+ * The department, names, location and locale are kept as the parcel bytes they arrived in and
+ * decoded the first time any of them is read.  {@link #SharedUserSessionData(Parcel)} decodes
+ * everything up front.  The object reads, compares and parcels the same either way.
  */
 public class SharedUserSessionData implements Parcelable {
 
+    //number of strings parceled ahead of the user ID: department number through locale.
+    private static final int DETAIL_STRING_COUNT = 7;
+
     private final boolean empty;
-    private final String departmentNumber;
-    private final String firstName;
-    private final String middleName;
-    private final String lastName;
-    private final String locationNumber;
-    private final String locationType;
-    private final String locale;
     private final String userId;
     private final String userType;
     private final int imsUserLevel;
-    private final String thdSsoToken;
-    private final List<String> ldapGroups = new ArrayList<String>();
+    private final char[] thdSsoToken;
+    private boolean thdSsoTokenWiped = false;
+    private final List<String> ldapGroups;
+
+    //set once, either up front or by decodeDetails(); guarded by this.
+    private String departmentNumber;
+    private String firstName;
+    private String middleName;
+    private String lastName;
+    private String locationNumber;
+    private String locationType;
+    private String locale;
+
+    //the parcel bytes of the fields above until they are decoded, then null; guarded by this.
+    private byte[] encodedDetails = null;
 
     /**
      * Empty default constructor - should be used to create a session data payload when no user
@@ -44,6 +69,7 @@ public class SharedUserSessionData implements Parcelable {
         this.userType = null;
         this.imsUserLevel = 0;
         this.thdSsoToken = null;
+        this.ldapGroups = new ArrayList<String>();
     }
 
     /**
@@ -76,30 +102,49 @@ public class SharedUserSessionData implements Parcelable {
         this.userId = userId;
         this.userType = userType;
         this.imsUserLevel = imsUserLevel;
-        this.thdSsoToken = thdSsoToken;
-        this.ldapGroups.addAll(ldapGroups);
+        this.thdSsoToken = thdSsoToken != null ? thdSsoToken.toCharArray() : null;
+        this.ldapGroups = new ArrayList<String>(ldapGroups);
     }
 
     /**
      * Parcel constructor.  This is used when objects of this type are shared through IPC and
-     * 'parceled' / 'deparceled' between processes.
+     * 'parceled' / 'deparceled' between processes.  Every field is decoded up front.
      * @param parcel
      */
     public SharedUserSessionData(Parcel parcel) {
+        this(parcel, false);
+    }
+
+    /**
+     * Parcel constructor that can leave the department, names, location and locale undecoded
+     * until they are first read.
+     * @param parcel
+     * @param lazyDetails - whether to keep those fields as parcel bytes until first read.
+     */
+    public SharedUserSessionData(Parcel parcel, boolean lazyDetails) {
         this.empty = parcel.readByte() != 0;
 
         if(!this.empty) {
-            this.departmentNumber = parcel.readString();
-            this.firstName = parcel.readString();
-            this.middleName = parcel.readString();
-            this.lastName = parcel.readString();
-            this.locationNumber = parcel.readString();
-            this.locationType = parcel.readString();
-            this.locale = parcel.readString();
+            if(lazyDetails) {
+                int detailsStart = parcel.dataPosition();
+                for(int i = 0; i < DETAIL_STRING_COUNT; i++) {
+                    skipString(parcel);
+                }
+                this.encodedDetails = copyRange(parcel, detailsStart);
+            } else {
+                this.departmentNumber = parcel.readString();
+                this.firstName = parcel.readString();
+                this.middleName = parcel.readString();
+                this.lastName = parcel.readString();
+                this.locationNumber = parcel.readString();
+                this.locationType = parcel.readString();
+                this.locale = parcel.readString();
+            }
             this.userId = parcel.readString();
             this.userType = parcel.readString();
             this.imsUserLevel = parcel.readInt();
-            this.thdSsoToken = parcel.readString();
+            this.thdSsoToken = readChars(parcel);
+            this.ldapGroups = new ArrayList<String>();
             parcel.readStringList(this.ldapGroups);
         } else {
             this.departmentNumber = null;
@@ -113,6 +158,90 @@ public class SharedUserSessionData implements Parcelable {
             this.userType = null;
             this.imsUserLevel = 0;
             this.thdSsoToken = null;
+            this.ldapGroups = new ArrayList<String>();
+        }
+    }
+
+    /*
+    Parcel strings are a length in chars (-1 for null) followed by the UTF-16 chars and a null
+    terminator, padded to 4 bytes.
+     */
+    private static void skipString(Parcel parcel) {
+        int length = parcel.readInt();
+        if(length >= 0) {
+            parcel.setDataPosition(parcel.dataPosition() + (((length + 1) * 2 + 3) & ~3));
+        }
+    }
+
+    /*
+    Reads a string written with Parcel.writeString into a char array, without creating a String.
+    Parcels are in the device's byte order, which is little-endian on every Android ABI, so each
+    int holds two UTF-16 chars, the first in its low half.
+     */
+    private static char[] readChars(Parcel parcel) {
+        int length = parcel.readInt();
+        if(length < 0) {
+            return null;
+        }
+
+        char[] chars = new char[length];
+        for(int i = 0; i < length + 1; i += 2) {
+            int word = parcel.readInt();
+            if(i < length) {
+                chars[i] = (char) word;
+            }
+            if(i + 1 < length) {
+                chars[i + 1] = (char) (word >>> 16);
+            }
+        }
+        return chars;
+    }
+
+    /*
+    Writes a char array as Parcel.writeString would write it as a String, terminator and padding
+    included.
+     */
+    private static void writeChars(Parcel parcel, char[] chars) {
+        if(chars == null) {
+            parcel.writeInt(-1);
+            return;
+        }
+
+        parcel.writeInt(chars.length);
+        for(int i = 0; i < chars.length + 1; i += 2) {
+            int low = i < chars.length ? chars[i] : 0;
+            int high = i + 1 < chars.length ? chars[i + 1] : 0;
+            parcel.writeInt(low | high << 16);
+        }
+    }
+
+    private static byte[] copyRange(Parcel parcel, int start) {
+        Parcel range = Parcel.obtain();
+        try {
+            range.appendFrom(parcel, start, parcel.dataPosition() - start);
+            return range.marshall();
+        } finally {
+            range.recycle();
+        }
+    }
+
+    private synchronized void decodeDetails() {
+        if(encodedDetails != null) {
+            Parcel parcel = Parcel.obtain();
+            try {
+                parcel.unmarshall(encodedDetails, 0, encodedDetails.length);
+                parcel.setDataPosition(0);
+                departmentNumber = parcel.readString();
+                firstName = parcel.readString();
+                middleName = parcel.readString();
+                lastName = parcel.readString();
+                locationNumber = parcel.readString();
+                locationType = parcel.readString();
+                locale = parcel.readString();
+            } finally {
+                parcel.recycle();
+            }
+            encodedDetails = null;
         }
     }
 
@@ -120,7 +249,8 @@ public class SharedUserSessionData implements Parcelable {
      * Gets the department number.
      * @return
      */
-    public String getDepartmentNumber() {
+    public synchronized String getDepartmentNumber() {
+        decodeDetails();
         return departmentNumber;
     }
 
@@ -128,7 +258,8 @@ public class SharedUserSessionData implements Parcelable {
      * Gets the user's first name.
      * @return
      */
-    public String getFirstName() {
+    public synchronized String getFirstName() {
+        decodeDetails();
         return firstName;
     }
 
@@ -136,7 +267,8 @@ public class SharedUserSessionData implements Parcelable {
      * Get's the user's middle name.
      * @return
      */
-    public String getMiddleName() {
+    public synchronized String getMiddleName() {
+        decodeDetails();
         return middleName;
     }
 
@@ -144,7 +276,8 @@ public class SharedUserSessionData implements Parcelable {
      * Get's the user's last name.
      * @return
      */
-    public String getLastName() {
+    public synchronized String getLastName() {
+        decodeDetails();
         return lastName;
     }
 
@@ -152,7 +285,8 @@ public class SharedUserSessionData implements Parcelable {
      * Get's the user's location.
      * @return
      */
-    public String getLocationNumber() {
+    public synchronized String getLocationNumber() {
+        decodeDetails();
         return locationNumber;
     }
 
@@ -160,7 +294,8 @@ public class SharedUserSessionData implements Parcelable {
      * Get's the user's location type.
      * @return
      */
-    public String getLocationType() {
+    public synchronized String getLocationType() {
+        decodeDetails();
         return locationType;
     }
 
@@ -168,7 +303,8 @@ public class SharedUserSessionData implements Parcelable {
      * Get's the user's preferred locale, as a String.
      * @return
      */
-    public String getLocale() {
+    public synchronized String getLocale() {
+        decodeDetails();
         return locale;
     }
 
@@ -197,11 +333,44 @@ public class SharedUserSessionData implements Parcelable {
     }
 
     /**
-     * Get's the user's THD SSO Token.
-     * @return
+     * Get's the user's THD SSO Token.  Prefer {@link #copyThdSsoToken()}: the String returned here
+     * is a copy of the token that {@link #wipeThdSsoToken()} can't reach.
+     * @return the token, or null if there is none or it has been wiped.
      */
     public String getThdSsoToken() {
-        return thdSsoToken;
+        char[] token = copyThdSsoToken();
+        return token != null ? new String(token) : null;
+    }
+
+    /**
+     * Copies the user's THD SSO Token into a new buffer.  The caller should zero the buffer once it
+     * is done with it.
+     * @return a copy of the token, or null if there is none or it has been wiped.
+     */
+    public char[] copyThdSsoToken() {
+        if(thdSsoToken == null) {
+            return null;
+        }
+
+        synchronized(thdSsoToken) {
+            return thdSsoTokenWiped ? null : thdSsoToken.clone();
+        }
+    }
+
+    /**
+     * Zeroes the THD SSO Token held by this object.  This is the one exception to this object's
+     * immutability, meant for when the session it belongs to has ended; the token reads as null
+     * afterwards.
+     */
+    public void wipeThdSsoToken() {
+        if(thdSsoToken == null) {
+            return;
+        }
+
+        synchronized(thdSsoToken) {
+            Arrays.fill(thdSsoToken, '\0');
+            thdSsoTokenWiped = true;
+        }
     }
 
     /**
@@ -224,22 +393,22 @@ public class SharedUserSessionData implements Parcelable {
         if (empty != that.empty)
             return false;
         if (imsUserLevel != that.imsUserLevel) return false;
-        if (departmentNumber != null ? !departmentNumber.equals(that.departmentNumber) : that.departmentNumber != null)
+        if (getDepartmentNumber() != null ? !getDepartmentNumber().equals(that.getDepartmentNumber()) : that.getDepartmentNumber() != null)
             return false;
-        if (firstName != null ? !firstName.equals(that.firstName) : that.firstName != null)
+        if (getFirstName() != null ? !getFirstName().equals(that.getFirstName()) : that.getFirstName() != null)
             return false;
-        if (lastName != null ? !lastName.equals(that.lastName) : that.lastName != null)
+        if (getLastName() != null ? !getLastName().equals(that.getLastName()) : that.getLastName() != null)
             return false;
-        if (ldapGroups != null ? !ldapGroups.equals(that.ldapGroups) : that.ldapGroups != null)
+        if (getLdapGroups() != null ? !getLdapGroups().equals(that.getLdapGroups()) : that.getLdapGroups() != null)
             return false;
-        if (locale != null ? !locale.equals(that.locale) : that.locale != null) return false;
-        if (locationNumber != null ? !locationNumber.equals(that.locationNumber) : that.locationNumber != null)
+        if (getLocale() != null ? !getLocale().equals(that.getLocale()) : that.getLocale() != null) return false;
+        if (getLocationNumber() != null ? !getLocationNumber().equals(that.getLocationNumber()) : that.getLocationNumber() != null)
             return false;
-        if (locationType != null ? !locationType.equals(that.locationType) : that.locationType != null)
+        if (getLocationType() != null ? !getLocationType().equals(that.getLocationType()) : that.getLocationType() != null)
             return false;
-        if (middleName != null ? !middleName.equals(that.middleName) : that.middleName != null)
+        if (getMiddleName() != null ? !getMiddleName().equals(that.getMiddleName()) : that.getMiddleName() != null)
             return false;
-        if (thdSsoToken != null ? !thdSsoToken.equals(that.thdSsoToken) : that.thdSsoToken != null)
+        if (!thdSsoTokenEquals(that))
             return false;
         if (userId != null ? !userId.equals(that.userId) : that.userId != null) return false;
         if (userType != null ? !userType.equals(that.userType) : that.userType != null)
@@ -248,24 +417,43 @@ public class SharedUserSessionData implements Parcelable {
         return true;
     }
 
+    /**
+     * Compares the tokens through copies taken under their locks, so a wipe is never seen half done;
+     * a wiped token compares as null.
+     */
+    private boolean thdSsoTokenEquals(SharedUserSessionData that) {
+        char[] token = copyThdSsoToken();
+        char[] otherToken = that.copyThdSsoToken();
+        try {
+            return Arrays.equals(token, otherToken);
+        } finally {
+            if(token != null) {
+                Arrays.fill(token, '\0');
+            }
+            if(otherToken != null) {
+                Arrays.fill(otherToken, '\0');
+            }
+        }
+    }
+
     /*
-    Auto-generated hashCode method.
+    Auto-generated hashCode method.  The token is left out so the hash doesn't change when it is
+    wiped.
      */
     @Override
     public int hashCode() {
-        int result = departmentNumber != null ? departmentNumber.hashCode() : 0;
+        int result = getDepartmentNumber() != null ? getDepartmentNumber().hashCode() : 0;
         result = 31 * result + (empty ? 1 : 0);
-        result = 31 * result + (firstName != null ? firstName.hashCode() : 0);
-        result = 31 * result + (middleName != null ? middleName.hashCode() : 0);
-        result = 31 * result + (lastName != null ? lastName.hashCode() : 0);
-        result = 31 * result + (locationNumber != null ? locationNumber.hashCode() : 0);
-        result = 31 * result + (locationType != null ? locationType.hashCode() : 0);
-        result = 31 * result + (locale != null ? locale.hashCode() : 0);
+        result = 31 * result + (getFirstName() != null ? getFirstName().hashCode() : 0);
+        result = 31 * result + (getMiddleName() != null ? getMiddleName().hashCode() : 0);
+        result = 31 * result + (getLastName() != null ? getLastName().hashCode() : 0);
+        result = 31 * result + (getLocationNumber() != null ? getLocationNumber().hashCode() : 0);
+        result = 31 * result + (getLocationType() != null ? getLocationType().hashCode() : 0);
+        result = 31 * result + (getLocale() != null ? getLocale().hashCode() : 0);
         result = 31 * result + (userId != null ? userId.hashCode() : 0);
         result = 31 * result + (userType != null ? userType.hashCode() : 0);
         result = 31 * result + imsUserLevel;
-        result = 31 * result + (thdSsoToken != null ? thdSsoToken.hashCode() : 0);
-        result = 31 * result + (ldapGroups != null ? ldapGroups.hashCode() : 0);
+        result = 31 * result + (getLdapGroups() != null ? getLdapGroups().hashCode() : 0);
         return result;
     }
 
@@ -280,11 +468,11 @@ public class SharedUserSessionData implements Parcelable {
 
                 /*
                 Fields are read from parcel in same order in which they are defined in this class. A
-                new SharedUserSessionData object is
+                new SharedUserSessionData object is created with the details left undecoded until read.
                  */
                 @Override
                 public SharedUserSessionData createFromParcel(Parcel parcel) {
-                    return new SharedUserSessionData(parcel);
+                    return new SharedUserSessionData(parcel, true);
                 }
 
                 @Override
@@ -298,8 +486,20 @@ public class SharedUserSessionData implements Parcelable {
         return 0;
     }
 
+    private void writeThdSsoToken(Parcel parcel) {
+        if(thdSsoToken == null) {
+            writeChars(parcel, null);
+            return;
+        }
+
+        synchronized(thdSsoToken) {
+            writeChars(parcel, thdSsoTokenWiped ? null : thdSsoToken);
+        }
+    }
+
     /*
-    Fields are parceled in the same order in which they're declared in this class.
+    Fields are parceled in a fixed order: the details, user ID, type, level, token and LDAP groups.
+    The lazy parcel constructor depends on it.
      */
     @Override
     public void writeToParcel(Parcel parcel, int i) {
@@ -307,18 +507,18 @@ public class SharedUserSessionData implements Parcelable {
 
         //keep our parcelable payload as small as possible if the session is not available.
         if(!empty) {
-            parcel.writeString(departmentNumber);
-            parcel.writeString(firstName);
-            parcel.writeString(middleName);
-            parcel.writeString(lastName);
-            parcel.writeString(locationNumber);
-            parcel.writeString(locationType);
-            parcel.writeString(locale);
+            parcel.writeString(getDepartmentNumber());
+            parcel.writeString(getFirstName());
+            parcel.writeString(getMiddleName());
+            parcel.writeString(getLastName());
+            parcel.writeString(getLocationNumber());
+            parcel.writeString(getLocationType());
+            parcel.writeString(getLocale());
             parcel.writeString(userId);
             parcel.writeString(userType);
             parcel.writeInt(imsUserLevel);
-            parcel.writeString(thdSsoToken);
-            parcel.writeStringList(ldapGroups);
+            writeThdSsoToken(parcel);
+            parcel.writeStringList(getLdapGroups());
         }
     }
 }
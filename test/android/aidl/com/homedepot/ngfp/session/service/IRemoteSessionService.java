@@ -0,0 +1,48 @@
+package com.homedepot.ngfp.session.service;
+
+import android.os.Binder;
+import android.os.IBinder;
+import android.os.IInterface;
+import android.os.RemoteException;
+
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+import com.homedepot.ngfp.session.support.SharedSessionData;
+import com.homedepot.ngfp.session.support.SharedUserSessionData;
+
+/**
+ * Hand-written in place of the aidl compiler's output for IRemoteSessionService.aidl.  Calls are
+ * never marshalled: {@link Stub#asInterface} hands back the local implementation, which the tests
+ * run in the same process.
+ */
+public interface IRemoteSessionService extends IInterface {
+
+    abstract class Stub extends Binder implements IRemoteSessionService {
+
+        private static final String DESCRIPTOR = "com.homedepot.ngfp.session.service.IRemoteSessionService";
+
+        public Stub() {
+            attachInterface(this, DESCRIPTOR);
+        }
+
+        public static IRemoteSessionService asInterface(IBinder obj) {
+            if(obj == null) {
+                return null;
+            }
+            IInterface iin = obj.queryLocalInterface(DESCRIPTOR);
+            return iin instanceof IRemoteSessionService ? (IRemoteSessionService) iin : null;
+        }
+
+        @Override
+        public IBinder asBinder() {
+            return this;
+        }
+    }
+
+    SharedDeviceSessionData getDeviceData() throws RemoteException;
+
+    SharedUserSessionData getUserData() throws RemoteException;
+
+    SharedSessionData getSessions() throws RemoteException;
+
+    long getSessionVersion() throws RemoteException;
+}
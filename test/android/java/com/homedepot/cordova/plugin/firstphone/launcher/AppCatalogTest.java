@@ -0,0 +1,143 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Intent;
+import android.net.Uri;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lists the launchable apps while packages are installed, updated and removed, checking that only
+ * the packages named by a broadcast are read again and that their icons follow their versions.
+ */
+public class AppCatalogTest {
+
+    private static final String ORDERS = "com.homedepot.orders";
+    private static final String ORDERS_BETA = "com.homedepot.orders_beta";
+    private static final String CAMERA = "com.android.camera";
+
+    private FakeContext context;
+    private AppCatalog catalog;
+    private File icons;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new FakeContext();
+        context.installApp(ORDERS, "Orders", 1);
+        context.installApp(ORDERS_BETA, "Orders Beta", 7);
+        context.installApp(CAMERA, "Camera", 30);
+        catalog = new AppCatalog(context);
+        icons = new File(context.getCacheDir(), "firstphone-app-icons");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        catalog.close();
+        context.cleanUp();
+    }
+
+    @Test
+    public void appsAreListedByPackageWithTheirIcons() throws Exception {
+        JSONArray apps = catalog.list(null);
+
+        assertEquals(Arrays.asList(CAMERA, ORDERS, ORDERS_BETA), packages(apps));
+        JSONObject orders = apps.getJSONObject(1);
+        assertEquals("Orders", orders.getString("label"));
+        assertTrue(orders.getString("icon").endsWith(ORDERS + "_1.webp"));
+        assertTrue(new File(icons, ORDERS + "_1.webp").isFile());
+
+        assertEquals(Arrays.asList(ORDERS, ORDERS_BETA), packages(catalog.list("com.homedepot.")));
+    }
+
+    @Test
+    public void updatedPackageIsReadAgain() throws Exception {
+        catalog.list(null);
+        context.takeActivityQueries();
+
+        context.installApp(ORDERS, "Orders 2", 2);
+        broadcast(Intent.ACTION_PACKAGE_REPLACED, ORDERS);
+        JSONArray apps = catalog.list(null);
+
+        assertEquals("only the updated package is read", Collections.singletonList(ORDERS), context.takeActivityQueries());
+        assertEquals(Arrays.asList(CAMERA, ORDERS, ORDERS_BETA), packages(apps));
+        assertEquals("Orders 2", apps.getJSONObject(1).getString("label"));
+        assertTrue(apps.getJSONObject(1).getString("icon").endsWith(ORDERS + "_2.webp"));
+        assertTrue(new File(icons, ORDERS + "_2.webp").isFile());
+        assertFalse("old version's icon kept", new File(icons, ORDERS + "_1.webp").exists());
+        assertTrue(new File(icons, ORDERS_BETA + "_7.webp").isFile());
+
+        catalog.list(null);
+        assertEquals("read again without a broadcast", Collections.<String>emptyList(), context.takeActivityQueries());
+    }
+
+    @Test
+    public void unchangedCatalogIsNotReadAgain() throws Exception {
+        catalog.list(null);
+        context.takeActivityQueries();
+
+        assertEquals(3, catalog.list(null).length());
+        assertEquals(Collections.<String>emptyList(), context.takeActivityQueries());
+    }
+
+    @Test
+    public void removedPackageIsDroppedWithItsIcons() throws Exception {
+        catalog.list(null);
+
+        context.uninstallApp(ORDERS);
+        broadcast(Intent.ACTION_PACKAGE_REMOVED, ORDERS);
+
+        assertEquals(Arrays.asList(CAMERA, ORDERS_BETA), packages(catalog.list(null)));
+        assertFalse(new File(icons, ORDERS + "_1.webp").exists());
+        assertTrue("another package's icon deleted", new File(icons, ORDERS_BETA + "_7.webp").isFile());
+    }
+
+    @Test
+    public void addedPackageIsListed() throws Exception {
+        catalog.list(null);
+
+        context.installApp("com.homedepot.pricecheck", "Price Check", 3);
+        broadcast(Intent.ACTION_PACKAGE_ADDED, "com.homedepot.pricecheck");
+
+        assertEquals(Arrays.asList(CAMERA, ORDERS, ORDERS_BETA, "com.homedepot.pricecheck"), packages(catalog.list(null)));
+    }
+
+    @Test
+    public void trimmedCatalogIsReadAgainWithTheIconsFromDisk() throws Exception {
+        catalog.list(null);
+        File icon = new File(icons, ORDERS + "_1.webp");
+        assertTrue(icon.setLastModified(1000));
+
+        catalog.trim();
+        context.takeActivityQueries();
+        assertEquals(3, catalog.list(null).length());
+
+        assertEquals(Collections.<String>singletonList(null), context.takeActivityQueries());
+        assertEquals("icon drawn again", 1000, icon.lastModified());
+    }
+
+    private void broadcast(String action, String packageName) throws InterruptedException {
+        context.sendBroadcast(new Intent(action, Uri.parse("package:" + packageName)));
+        context.idleMainLooper();
+    }
+
+    private static List<String> packages(JSONArray apps) throws Exception {
+        List<String> packages = new ArrayList<String>();
+        for(int i = 0; i < apps.length(); i++) {
+            packages.add(apps.getJSONObject(i).getString("packageName"));
+        }
+        return packages;
+    }
+}
@@ -0,0 +1,594 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.ServiceConnection;
+import android.content.SharedPreferences;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.content.res.AssetManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application context of a test, standing in for the system: it binds services registered
+ * with {@link #addService}, delivers broadcasts and memory callbacks on the main looper and keeps
+ * shared preferences and files in memory / a temporary directory.
+ *
+ * Like the system, a binding outlives its service: {@link #killService} disconnects every
+ * connection and reconnects it once the service is restarted.
+ */
+class FakeContext extends Context {
+
+    static final String PACKAGE_NAME = "com.homedepot.sample";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final File dataDir;
+    private final ApplicationInfo applicationInfo = new ApplicationInfo();
+
+    //guarded by this.
+    private final Map<ComponentName, IBinder> services = new LinkedHashMap<ComponentName, IBinder>();
+    private final Map<ComponentName, Boolean> running = new HashMap<ComponentName, Boolean>();
+    private final Map<ServiceConnection, ComponentName> bindings = new IdentityHashMap<ServiceConnection, ComponentName>();
+    private final Map<ServiceConnection, ComponentName> connected = new IdentityHashMap<ServiceConnection, ComponentName>();
+    private final Map<BroadcastReceiver, IntentFilter> receivers = new IdentityHashMap<BroadcastReceiver, IntentFilter>();
+    private final Map<String, FakePreferences> preferences = new HashMap<String, FakePreferences>();
+    private final Map<ComponentName, Integer> bindRequests = new HashMap<ComponentName, Integer>();
+    //launchable apps by package, and the packages launchable activities were looked up for.
+    private final Map<String, PackageInfo> apps = new LinkedHashMap<String, PackageInfo>();
+    private final Map<String, String> appLabels = new HashMap<String, String>();
+    private final List<String> activityQueries = new ArrayList<String>();
+    private long connectDelayMs = 0;
+    private int connections = 0;
+
+    private final List<ComponentCallbacks> componentCallbacks = new CopyOnWriteArrayList<ComponentCallbacks>();
+
+    FakeContext() throws IOException {
+        dataDir = File.createTempFile("fake-context", "");
+        if(!dataDir.delete() || !dataDir.mkdirs()) {
+            throw new IOException("Unable to create " + dataDir);
+        }
+        applicationInfo.packageName = PACKAGE_NAME;
+        applicationInfo.targetSdkVersion = Build.VERSION_CODES.R;
+    }
+
+    /**
+     * Makes a service bindable, and running.
+     */
+    synchronized void addService(ComponentName component, IBinder binder) {
+        services.put(component, binder);
+        running.put(component, true);
+    }
+
+    /**
+     * Uninstalls a service: it can't be resolved or bound any more, and every binding to it dies.
+     */
+    void removeService(final ComponentName component) {
+        synchronized(this) {
+            services.remove(component);
+            running.remove(component);
+            removeValue(connected, component);
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for(ServiceConnection connection : connectionsTo(component)) {
+                    connection.onServiceDisconnected(component);
+                    connection.onBindingDied(component);
+                }
+            }
+        });
+    }
+
+    /**
+     * Installs a launchable app, or updates it if it is installed.  Doesn't broadcast the change.
+     */
+    synchronized void installApp(String packageName, String label, int versionCode) {
+        PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        info.versionCode = versionCode;
+        apps.put(packageName, info);
+        appLabels.put(packageName, label);
+    }
+
+    /**
+     * Uninstalls a launchable app.  Doesn't broadcast the change.
+     */
+    synchronized void uninstallApp(String packageName) {
+        apps.remove(packageName);
+        appLabels.remove(packageName);
+    }
+
+    /**
+     * @return the packages launchable activities were looked up for since the last call, null for
+     * a lookup of every app.
+     */
+    synchronized List<String> takeActivityQueries() {
+        List<String> queries = new ArrayList<String>(activityQueries);
+        activityQueries.clear();
+        return queries;
+    }
+
+    /**
+     * @return how many times a binding to the component was asked for, bound or not.
+     */
+    synchronized int getBindRequests(ComponentName component) {
+        Integer requests = bindRequests.get(component);
+        return requests != null ? requests : 0;
+    }
+
+    /**
+     * @param delayMs - how long a new binding takes to connect.
+     */
+    synchronized void setConnectDelay(long delayMs) {
+        connectDelayMs = delayMs;
+    }
+
+    /**
+     * @return how many times a service has been connected, counting reconnects.
+     */
+    synchronized int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Kills a service's process, as the system does under memory pressure or on a crash: every
+     * connection is told it disconnected, and connected again once the service restarts.
+     * @param restartAfterMs - when the system restarts the service, or a negative number to leave it dead.
+     */
+    void killService(final ComponentName component, long restartAfterMs) {
+        synchronized(this) {
+            running.put(component, false);
+            removeValue(connected, component);
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for(ServiceConnection connection : connectionsTo(component)) {
+                    connection.onServiceDisconnected(component);
+                }
+            }
+        });
+
+        if(restartAfterMs >= 0) {
+            mainHandler.postDelayed(restart(component), restartAfterMs);
+        }
+    }
+
+    /**
+     * Kills a service for good, e.g. its package was updated: every connection is told its binding
+     * died, and has to bind again.  Bindings made meanwhile connect once the service is back.
+     * @param restartAfterMs - when the service can be bound again.
+     */
+    void killBinding(final ComponentName component, long restartAfterMs) {
+        synchronized(this) {
+            running.put(component, false);
+            removeValue(connected, component);
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for(ServiceConnection connection : connectionsTo(component)) {
+                    connection.onServiceDisconnected(component);
+                    connection.onBindingDied(component);
+                }
+            }
+        });
+        mainHandler.postDelayed(restart(component), Math.max(0, restartAfterMs));
+    }
+
+    private Runnable restart(final ComponentName component) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                synchronized(FakeContext.this) {
+                    running.put(component, true);
+                }
+                for(ServiceConnection connection : connectionsTo(component)) {
+                    connect(connection, component);
+                }
+            }
+        };
+    }
+
+    /**
+     * Sends onTrimMemory to every registered callback, on the main thread.
+     */
+    void trimMemory(final int level) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for(ComponentCallbacks callback : componentCallbacks) {
+                    if(callback instanceof ComponentCallbacks2) {
+                        ((ComponentCallbacks2) callback).onTrimMemory(level);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for everything already due on the main thread to run.
+     */
+    void idleMainLooper() throws InterruptedException {
+        final CountDownLatch idle = new CountDownLatch(1);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                idle.countDown();
+            }
+        });
+        if(!idle.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("Main looper is stuck");
+        }
+    }
+
+    synchronized boolean hasReceiverFor(String action) {
+        for(IntentFilter filter : receivers.values()) {
+            if(filter.hasAction(action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized boolean isBound(ComponentName component) {
+        return !keysFor(bindings, component).isEmpty();
+    }
+
+    synchronized boolean isConnected(ComponentName component) {
+        return !keysFor(connected, component).isEmpty();
+    }
+
+    /**
+     * Deletes the files written through this context.
+     */
+    void cleanUp() {
+        delete(dataDir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private synchronized List<ServiceConnection> connectionsTo(ComponentName component) {
+        return keysFor(bindings, component);
+    }
+
+    //connections are kept in identity maps, which compare the components by identity as well.
+    private static List<ServiceConnection> keysFor(Map<ServiceConnection, ComponentName> map, ComponentName component) {
+        List<ServiceConnection> result = new ArrayList<ServiceConnection>();
+        for(Map.Entry<ServiceConnection, ComponentName> entry : map.entrySet()) {
+            if(entry.getValue().equals(component)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private static void removeValue(Map<ServiceConnection, ComponentName> map, ComponentName component) {
+        for(ServiceConnection connection : keysFor(map, component)) {
+            map.remove(connection);
+        }
+    }
+
+    /**
+     * Connects a binding on the main thread, if it is still bound and its service running by then.
+     */
+    private void connect(ServiceConnection connection, ComponentName component) {
+        IBinder binder;
+        synchronized(this) {
+            if(!component.equals(bindings.get(connection)) || !Boolean.TRUE.equals(running.get(component))) {
+                return;
+            }
+            binder = services.get(component);
+            connected.put(connection, component);
+            connections++;
+        }
+        connection.onServiceConnected(component, binder);
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public ApplicationInfo getApplicationInfo() {
+        return applicationInfo;
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+
+    @Override
+    public String getPackageName() {
+        return PACKAGE_NAME;
+    }
+
+    @Override
+    public boolean bindService(Intent service, final ServiceConnection conn, int flags) {
+        final ComponentName component = service.getComponent();
+        long delayMs;
+        synchronized(this) {
+            if(component != null) {
+                bindRequests.put(component, getBindRequests(component) + 1);
+            }
+            if(component == null || !services.containsKey(component)) {
+                return false;
+            }
+            bindings.put(conn, component);
+            delayMs = connectDelayMs;
+        }
+
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                connect(conn, component);
+            }
+        }, delayMs);
+        return true;
+    }
+
+    @Override
+    public synchronized void unbindService(ServiceConnection conn) {
+        connected.remove(conn);
+        if(bindings.remove(conn) == null) {
+            throw new IllegalArgumentException("Service not registered: " + conn);
+        }
+    }
+
+    @Override
+    public synchronized Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        receivers.put(receiver, filter);
+        return null;
+    }
+
+    @Override
+    public synchronized void unregisterReceiver(BroadcastReceiver receiver) {
+        if(receivers.remove(receiver) == null) {
+            throw new IllegalArgumentException("Receiver not registered: " + receiver);
+        }
+    }
+
+    @Override
+    public void sendBroadcast(final Intent intent) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                List<BroadcastReceiver> matching = new ArrayList<BroadcastReceiver>();
+                synchronized(FakeContext.this) {
+                    for(Map.Entry<BroadcastReceiver, IntentFilter> receiver : receivers.entrySet()) {
+                        if(receiver.getValue().matchAction(intent.getAction())) {
+                            matching.add(receiver.getKey());
+                        }
+                    }
+                }
+                for(BroadcastReceiver receiver : matching) {
+                    receiver.onReceive(FakeContext.this, intent);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Object getSystemService(String name) {
+        return null;
+    }
+
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        FakePreferences prefs = preferences.get(name);
+        if(prefs == null) {
+            prefs = new FakePreferences();
+            preferences.put(name, prefs);
+        }
+        return prefs;
+    }
+
+    @Override
+    public File getFilesDir() {
+        return directory("files");
+    }
+
+    @Override
+    public File getCacheDir() {
+        return directory("cache");
+    }
+
+    @Override
+    public File getNoBackupFilesDir() {
+        return directory("no_backup");
+    }
+
+    private File directory(String name) {
+        File dir = new File(dataDir, name);
+        dir.mkdirs();
+        return dir;
+    }
+
+    @Override
+    public AssetManager getAssets() {
+        return new AssetManager();
+    }
+
+    @Override
+    public void startActivity(Intent intent) {
+    }
+
+    @Override
+    public void registerComponentCallbacks(ComponentCallbacks callback) {
+        componentCallbacks.add(callback);
+    }
+
+    @Override
+    public void unregisterComponentCallbacks(ComponentCallbacks callback) {
+        componentCallbacks.remove(callback);
+    }
+
+    private final PackageManager packageManager = new PackageManager() {
+        @Override
+        public ResolveInfo resolveService(Intent intent, int flags) {
+            List<ResolveInfo> infos = queryIntentServices(intent, flags);
+            return infos.isEmpty() ? null : infos.get(0);
+        }
+
+        @Override
+        public List<ResolveInfo> queryIntentServices(Intent intent, int flags) {
+            List<ResolveInfo> infos = new ArrayList<ResolveInfo>();
+            synchronized(FakeContext.this) {
+                for(ComponentName component : services.keySet()) {
+                    if(intent.getComponent() != null && !intent.getComponent().equals(component)) {
+                        continue;
+                    }
+                    ResolveInfo info = new ResolveInfo();
+                    info.serviceInfo = new ServiceInfo();
+                    info.serviceInfo.packageName = component.getPackageName();
+                    info.serviceInfo.name = component.getClassName();
+                    infos.add(info);
+                }
+            }
+            return infos;
+        }
+
+        @Override
+        public List<ResolveInfo> queryIntentActivities(Intent intent, int flags) {
+            List<ResolveInfo> infos = new ArrayList<ResolveInfo>();
+            synchronized(FakeContext.this) {
+                activityQueries.add(intent.getPackage());
+                for(String packageName : apps.keySet()) {
+                    if(intent.getPackage() != null && !intent.getPackage().equals(packageName)) {
+                        continue;
+                    }
+                    ResolveInfo info = new ResolveInfo();
+                    info.activityInfo = new ActivityInfo();
+                    info.activityInfo.packageName = packageName;
+                    info.activityInfo.name = packageName + ".MainActivity";
+                    info.nonLocalizedLabel = appLabels.get(packageName);
+                    infos.add(info);
+                }
+            }
+            return infos;
+        }
+
+        @Override
+        public Intent getLaunchIntentForPackage(String packageName) {
+            return null;
+        }
+
+        @Override
+        public PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException {
+            synchronized(FakeContext.this) {
+                PackageInfo info = apps.get(packageName);
+                if(info == null) {
+                    throw new NameNotFoundException(packageName);
+                }
+                return info;
+            }
+        }
+    };
+
+    private static final class FakePreferences implements SharedPreferences {
+
+        //guarded by this.
+        private final Map<String, Object> values = new HashMap<String, Object>();
+
+        @Override
+        public synchronized String getString(String key, String defValue) {
+            Object value = values.get(key);
+            return value instanceof String ? (String) value : defValue;
+        }
+
+        @Override
+        public synchronized long getLong(String key, long defValue) {
+            Object value = values.get(key);
+            return value instanceof Long ? (Long) value : defValue;
+        }
+
+        @Override
+        public synchronized boolean getBoolean(String key, boolean defValue) {
+            Object value = values.get(key);
+            return value instanceof Boolean ? (Boolean) value : defValue;
+        }
+
+        @Override
+        public Editor edit() {
+            final Map<String, Object> changes = new HashMap<String, Object>();
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putLong(String key, long value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor putBoolean(String key, boolean value) {
+                    changes.put(key, value);
+                    return this;
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    changes.put(key, null);
+                    return this;
+                }
+
+                @Override
+                public void apply() {
+                    commit();
+                }
+
+                @Override
+                public boolean commit() {
+                    synchronized(FakePreferences.this) {
+                        for(Map.Entry<String, Object> change : changes.entrySet()) {
+                            if(change.getValue() == null) {
+                                values.remove(change.getKey());
+                            } else {
+                                values.put(change.getKey(), change.getValue());
+                            }
+                        }
+                    }
+                    return true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.DeadObjectException;
+import android.os.RemoteException;
+
+import com.homedepot.ngfp.session.service.IRemoteSessionService;
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+import com.homedepot.ngfp.session.support.SharedSessionData;
+import com.homedepot.ngfp.session.support.SharedUserSessionData;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A launcher session service for tests.  Calls can be slowed down, failed at random, or paused
+ * just before they return so a test can change the sessions while a call is in flight; session
+ * changes bump the version and are broadcast like the launcher does.
+ */
+class FakeSessionService extends IRemoteSessionService.Stub {
+
+    static final String METHOD_GET_DEVICE_DATA = "getDeviceData";
+    static final String METHOD_GET_USER_DATA = "getUserData";
+    static final String METHOD_GET_SESSIONS = "getSessions";
+    static final String METHOD_GET_SESSION_VERSION = "getSessionVersion";
+
+    /**
+     * Holds up the next call to one method after it has read the sessions, until released.
+     */
+    static final class Pause {
+        private final String method;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private Pause(String method) {
+            this.method = method;
+        }
+
+        /**
+         * Waits for the paused call to read the sessions.
+         */
+        void awaitEntered() throws InterruptedException {
+            if(!entered.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("No call to " + method + " was made");
+            }
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    private final Context context;
+    private final Random random = new Random(42);
+
+    //guarded by this; the sessions and their version always change together.
+    private SharedDeviceSessionData device;
+    private SharedUserSessionData user;
+    private long version = 1;
+    private final Map<Long, SharedSessionData> history = new HashMap<Long, SharedSessionData>();
+    private Pause pause = null;
+
+    private volatile long latencyMs = 0;
+    private volatile double failureRate = 0;
+    private volatile boolean dead = false;
+    private volatile boolean combinedSupported = true;
+
+    private final AtomicInteger deviceCalls = new AtomicInteger();
+    private final AtomicInteger userCalls = new AtomicInteger();
+    private final AtomicInteger sessionsCalls = new AtomicInteger();
+    private final AtomicInteger versionCalls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * @param context - where session changes are broadcast.
+     * @param device - the initial device session.
+     * @param user - the initial user session, or null if nobody is logged in.
+     */
+    FakeSessionService(Context context, SharedDeviceSessionData device, SharedUserSessionData user) {
+        this.context = context;
+        this.device = device;
+        this.user = user;
+        history.put(version, new SharedSessionData(version, device, user));
+    }
+
+    static SharedDeviceSessionData device(String storeNumber) {
+        return new SharedDeviceSessionData(storeNumber, "4321", "voip-" + storeNumber, Arrays.asList("PTT-1", "PTT-2"),
+                "device-1", "TC52", "10.0.0.1", "en_US", "7.1.0", false);
+    }
+
+    static SharedUserSessionData user(String userId) {
+        return new SharedUserSessionData("024", "Pat", "Q", "Associate", "0121", "STR", "en_US", userId,
+                "associate", 3, "sso-" + userId, Arrays.asList("store-associates"));
+    }
+
+    void setLatency(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * @param failureRate - the share of calls, 0 to 1, that throw a RemoteException.
+     */
+    void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * @param dead - whether calls throw DeadObjectException, as they do after the launcher died
+     *             and before the binding is told.
+     */
+    void setDead(boolean dead) {
+        this.dead = dead;
+    }
+
+    /**
+     * @param supported - false to answer getSessions with null, like a launcher that predates it.
+     */
+    void setCombinedSupported(boolean supported) {
+        this.combinedSupported = supported;
+    }
+
+    /**
+     * Pauses the next call to a method just before it returns; see {@link Pause}.
+     */
+    synchronized Pause pauseNext(String method) {
+        pause = new Pause(method);
+        return pause;
+    }
+
+    /**
+     * Replaces the device session and broadcasts the change.
+     */
+    void changeDevice(SharedDeviceSessionData device) {
+        synchronized(this) {
+            this.device = device;
+            version++;
+            history.put(version, new SharedSessionData(version, device, this.user));
+        }
+        context.sendBroadcast(new Intent(FirstPhoneLauncherPlugin.ACTION_DEVICE_SESSION_CHANGED));
+    }
+
+    /**
+     * Replaces the user session (null logs the user out) and broadcasts the change.
+     */
+    void changeUser(SharedUserSessionData user) {
+        synchronized(this) {
+            this.user = user;
+            version++;
+            history.put(version, new SharedSessionData(version, this.device, user));
+        }
+        context.sendBroadcast(new Intent(FirstPhoneLauncherPlugin.ACTION_USER_SESSION_CHANGED));
+    }
+
+    synchronized SharedDeviceSessionData currentDevice() {
+        return device;
+    }
+
+    synchronized SharedUserSessionData currentUser() {
+        return user;
+    }
+
+    synchronized long currentVersion() {
+        return version;
+    }
+
+    /**
+     * @return the sessions as they were at a version, or null if there never was such a version.
+     */
+    synchronized SharedSessionData atVersion(long version) {
+        return history.get(version);
+    }
+
+    int getDeviceCalls() {
+        return deviceCalls.get();
+    }
+
+    int getUserCalls() {
+        return userCalls.get();
+    }
+
+    int getSessionsCalls() {
+        return sessionsCalls.get();
+    }
+
+    int getVersionCalls() {
+        return versionCalls.get();
+    }
+
+    /**
+     * @return the most calls that were ever in flight at once.
+     */
+    int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public SharedDeviceSessionData getDeviceData() throws RemoteException {
+        deviceCalls.incrementAndGet();
+        enter();
+        try {
+            SharedDeviceSessionData result;
+            synchronized(this) {
+                result = device;
+            }
+            leave(METHOD_GET_DEVICE_DATA);
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public SharedUserSessionData getUserData() throws RemoteException {
+        userCalls.incrementAndGet();
+        enter();
+        try {
+            SharedUserSessionData result;
+            synchronized(this) {
+                //the launcher answers an empty session, not null, when nobody is logged in.
+                result = user != null ? user : new SharedUserSessionData();
+            }
+            leave(METHOD_GET_USER_DATA);
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public SharedSessionData getSessions() throws RemoteException {
+        sessionsCalls.incrementAndGet();
+        enter();
+        try {
+            if(!combinedSupported) {
+                return null;
+            }
+            SharedSessionData result;
+            synchronized(this) {
+                result = new SharedSessionData(version, device, user);
+            }
+            leave(METHOD_GET_SESSIONS);
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public long getSessionVersion() throws RemoteException {
+        versionCalls.incrementAndGet();
+        enter();
+        try {
+            long result;
+            synchronized(this) {
+                result = version;
+            }
+            leave(METHOD_GET_SESSION_VERSION);
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Starts a call: counts it in flight, waits out the latency and fails it if it should fail.
+     */
+    private void enter() throws RemoteException {
+        int now = inFlight.incrementAndGet();
+        int max;
+        while(now > (max = maxInFlight.get()) && !maxInFlight.compareAndSet(max, now)) {
+            //lost the race to another call, try again.
+        }
+
+        boolean fail;
+        synchronized(random) {
+            fail = random.nextDouble() < failureRate;
+        }
+
+        try {
+            if(latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(dead) {
+            inFlight.decrementAndGet();
+            throw new DeadObjectException("Launcher process died");
+        }
+        if(fail) {
+            inFlight.decrementAndGet();
+            throw new RemoteException("Injected failure");
+        }
+    }
+
+    /**
+     * Ends a call that has read the sessions, holding it up first if a test paused it.
+     */
+    private void leave(String method) {
+        Pause current;
+        synchronized(this) {
+            current = pause != null && pause.method.equals(method) ? pause : null;
+            if(current != null) {
+                pause = null;
+            }
+        }
+
+        if(current == null) {
+            return;
+        }
+
+        current.entered.countDown();
+        try {
+            if(!current.released.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("Paused " + method + " call was never released");
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
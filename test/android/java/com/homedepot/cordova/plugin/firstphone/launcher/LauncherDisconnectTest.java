@@ -0,0 +1,125 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Disconnects the launcher while session actions are in flight and between them.  The binder
+ * thread clears the connection while the actions run on the thread pool, so an action has to read
+ * it once and answer with a typed {@link SessionError}, never an exception.
+ */
+public class LauncherDisconnectTest {
+
+    private PluginHarness harness;
+    private FakeSessionService service;
+    private FakeContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new PluginHarness(FakeSessionService.device("0121"), FakeSessionService.user("ABC1234"));
+        service = harness.getService();
+        context = harness.getContext();
+        harness.start();
+        harness.awaitConnected();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        harness.destroy();
+    }
+
+    @Test
+    public void disconnectBeforeACallGoesOutIsAnError() throws Exception {
+        //the rate limiter is consulted between reading the connection and calling the launcher, so
+        //holding it stops the action right there.
+        Field limiterField = SessionRepository.class.getDeclaredField("ipcLimiter");
+        limiterField.setAccessible(true);
+        Object limiter = limiterField.get(harness.repository());
+
+        PluginHarness.Call call;
+        synchronized(limiter) {
+            call = harness.execute("getDevice");
+            awaitBlockedIn("tryAcquire");
+
+            service.setDead(true);
+            context.killService(PluginHarness.SERVICE_COMPONENT, -1);
+            context.idleMainLooper();
+        }
+
+        assertNotNull("getDevice never answered", call.await(5000));
+        assertEquals("REMOTE_EXCEPTION", call.errorCode());
+    }
+
+    @Test
+    public void disconnectDuringADeviceCallIsAnError() throws Exception {
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_DEVICE_DATA);
+        PluginHarness.Call inFlight = harness.execute("getDevice");
+        pause.awaitEntered();
+
+        context.killService(PluginHarness.SERVICE_COMPONENT, -1);
+        context.idleMainLooper();
+        pause.release();
+
+        //the call already reached the launcher, so it still gets the answer.
+        inFlight.await(5000);
+        assertTrue(inFlight.errorCode(), inFlight.isOk());
+        assertEquals("0121", inFlight.json().getString("storeNumber"));
+
+        service.changeDevice(FakeSessionService.device("0200"));
+        context.idleMainLooper();
+        assertEquals("SERVICE_NOT_BOUND", harness.call("getDevice").errorCode());
+    }
+
+    @Test
+    public void disconnectBetweenUserCallsIsAnError() throws Exception {
+        assertTrue(harness.call("getUser").isOk());
+
+        context.killService(PluginHarness.SERVICE_COMPONENT, -1);
+        service.changeUser(FakeSessionService.user("XYZ9876"));
+        context.idleMainLooper();
+
+        assertEquals("SERVICE_NOT_BOUND", harness.call("getUser").errorCode());
+        assertEquals("SERVICE_NOT_BOUND", harness.call("getSettings").errorCode());
+    }
+
+    @Test
+    public void reconnectServesTheNewSessions() throws Exception {
+        context.killService(PluginHarness.SERVICE_COMPONENT, 50);
+        service.changeDevice(FakeSessionService.device("0200"));
+        context.idleMainLooper();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        PluginHarness.Call device = harness.call("getDevice");
+        while(!device.isOk() && System.currentTimeMillis() < deadline) {
+            assertEquals("SERVICE_NOT_BOUND", device.errorCode());
+            Thread.sleep(10);
+            device = harness.call("getDevice");
+        }
+        assertTrue(device.errorCode(), device.isOk());
+        assertEquals("0200", device.json().getString("storeNumber"));
+    }
+
+    private static void awaitBlockedIn(String method) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(System.currentTimeMillis() < deadline) {
+            for(Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+                StackTraceElement[] stack = thread.getValue();
+                if(thread.getKey().getState() == Thread.State.BLOCKED && stack.length > 0 &&
+                        method.equals(stack[0].getMethodName())) {
+                    return;
+                }
+            }
+            Thread.sleep(5);
+        }
+        fail("nothing blocked in " + method);
+    }
+}
@@ -0,0 +1,157 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.DeadObjectException;
+import android.os.IBinder;
+import android.os.IInterface;
+import android.os.Parcel;
+import android.os.RemoteException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Hands payloads over through an Intent the way startApp does and reads them back the way
+ * getStartPayload does, in the same process: small ones in the Intent, large ones served from
+ * shared memory until they expire or the sender is gone.
+ */
+public class PayloadHandoffTest {
+
+    private FakeContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new FakeContext();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        context.cleanUp();
+    }
+
+    @Test
+    public void intentWithoutAPayloadReadsAsNone() throws Exception {
+        assertNull(PayloadHandoff.read(new Intent(Intent.ACTION_MAIN)));
+        assertNull(PayloadHandoff.read(null));
+    }
+
+    @Test
+    public void smallPayloadTravelsInTheIntent() throws Exception {
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        PayloadHandoff.attach(context, intent, "{\"orders\":\"1,2,3\"}");
+
+        assertNull("small payload needs the sender", handoffBinder(intent));
+        assertEquals("{\"orders\":\"1,2,3\"}", PayloadHandoff.read(intent));
+    }
+
+    @Test
+    public void largePayloadIsServedFromSharedMemory() throws Exception {
+        String payload = largePayload();
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        PayloadHandoff.attach(context, intent, payload);
+
+        assertNotNull("large payload copied into the intent", handoffBinder(intent));
+        assertEquals(payload, PayloadHandoff.read(intent));
+    }
+
+    @Test
+    public void payloadCanBeReadAgain() throws Exception {
+        //e.g. the launched activity is recreated before the payload expires.
+        String payload = largePayload();
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        PayloadHandoff.attach(context, intent, payload);
+
+        assertEquals(payload, PayloadHandoff.read(intent));
+        assertEquals("first read closed the sender's region", payload, PayloadHandoff.read(intent));
+    }
+
+    @Test
+    public void expiredPayloadIsAnError() throws Exception {
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        PayloadHandoff.attach(context, intent, largePayload());
+
+        //what the TTL timer does.
+        IBinder region = handoffBinder(intent);
+        Method release = region.getClass().getSuperclass().getDeclaredMethod("release");
+        release.setAccessible(true);
+        release.invoke(region);
+
+        try {
+            PayloadHandoff.read(intent);
+            fail("expired payload was read");
+        } catch(IOException expected) {
+            assertEquals("Payload handoff has expired.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void payloadOfADeadSenderIsAnError() throws Exception {
+        Bundle handoff = new Bundle();
+        handoff.putBinder("binder", new DeadBinder());
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.putExtra(PayloadHandoff.EXTRA_PAYLOAD_HANDOFF, handoff);
+
+        try {
+            PayloadHandoff.read(intent);
+            fail("payload of a dead sender was read");
+        } catch(IOException expected) {
+            assertEquals("Sending app is no longer available.", expected.getMessage());
+        }
+    }
+
+    private static String largePayload() {
+        char[] orders = new char[PayloadHandoff.INLINE_MAX_BYTES * 2];
+        Arrays.fill(orders, '7');
+        return "{\"orders\":\"" + new String(orders) + "\"}";
+    }
+
+    private static IBinder handoffBinder(Intent intent) {
+        return intent.getBundleExtra(PayloadHandoff.EXTRA_PAYLOAD_HANDOFF).getBinder("binder");
+    }
+
+    /**
+     * The binder of a sending app whose process has died.
+     */
+    private static class DeadBinder implements IBinder {
+        @Override
+        public IInterface queryLocalInterface(String descriptor) {
+            return null;
+        }
+
+        @Override
+        public boolean transact(int code, Parcel data, Parcel reply, int flags) throws RemoteException {
+            throw new DeadObjectException();
+        }
+
+        @Override
+        public boolean isBinderAlive() {
+            return false;
+        }
+
+        @Override
+        public boolean pingBinder() {
+            return false;
+        }
+
+        @Override
+        public void linkToDeath(DeathRecipient recipient, int flags) throws RemoteException {
+            throw new DeadObjectException();
+        }
+
+        @Override
+        public boolean unlinkToDeath(DeathRecipient recipient, int flags) {
+            return false;
+        }
+    }
+}
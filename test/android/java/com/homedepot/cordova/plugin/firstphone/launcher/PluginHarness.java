@@ -0,0 +1,301 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.app.Activity;
+import android.content.ComponentName;
+import android.content.Context;
+import android.view.View;
+
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+import com.homedepot.ngfp.session.support.SharedUserSessionData;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a {@link FirstPhoneLauncherPlugin} the way Cordova does, pinned to a
+ * {@link FakeSessionService}, and records the results it sends back.
+ */
+class PluginHarness {
+
+    static final ComponentName SERVICE_COMPONENT =
+            new ComponentName("com.homedepot.launcher", "com.homedepot.launcher.FakeSessionService");
+
+    /**
+     * One execute call and the result it got.
+     */
+    static final class Call {
+        private final String action;
+        private final long startedNanos = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile PluginResult result = null;
+        private volatile long finishedNanos = 0;
+
+        private Call(String action) {
+            this.action = action;
+        }
+
+        private void finish(PluginResult result) {
+            if(this.result != null) {
+                throw new AssertionError("Second result sent for " + action);
+            }
+            this.finishedNanos = System.nanoTime();
+            this.result = result;
+            done.countDown();
+        }
+
+        String getAction() {
+            return action;
+        }
+
+        /**
+         * @return the result, or null if none was sent in time.
+         */
+        PluginResult await(long timeoutMs) throws InterruptedException {
+            done.await(timeoutMs, TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        boolean isOk() {
+            return result != null && result.getStatus() == PluginResult.Status.OK.ordinal();
+        }
+
+        JSONObject json() throws JSONException {
+            return new JSONObject(result.getMessage());
+        }
+
+        /**
+         * @return the SessionError code of an error result; an error without one (e.g. an exception
+         * in the handler) is reported as its raw message.
+         */
+        String errorCode() {
+            try {
+                return new JSONObject(result.getMessage()).getString("code");
+            } catch(JSONException ex) {
+                return "untyped: " + result.getMessage();
+            }
+        }
+
+        long latencyNanos() {
+            return finishedNanos - startedNanos;
+        }
+    }
+
+    private final FakeContext context;
+    private final FakeSessionService service;
+    private final CordovaPreferences preferences = new CordovaPreferences();
+    private final List<Thread> poolThreads = new ArrayList<Thread>();
+    private final ExecutorService threadPool = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "cordova-pool-" + count.incrementAndGet());
+            t.setDaemon(true);
+            synchronized(poolThreads) {
+                poolThreads.add(t);
+            }
+            return t;
+        }
+    });
+    private final Map<String, Call> calls = new ConcurrentHashMap<String, Call>();
+    private final AtomicInteger callbackIds = new AtomicInteger();
+
+    private Activity activity = null;
+    private FirstPhoneLauncherPlugin plugin = null;
+    private SessionRepository repository = null;
+    private final SessionRepository.Holder testHolder = new SessionRepository.Holder() {
+        @Override
+        public void onAppShutdownRequested() {
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+        }
+    };
+
+    /**
+     * @param device - the launcher's device session.
+     * @param user - the launcher's user session, or null if nobody is logged in.
+     */
+    PluginHarness(SharedDeviceSessionData device, SharedUserSessionData user) throws IOException {
+        context = new FakeContext();
+        service = new FakeSessionService(context, device, user);
+        context.addService(SERVICE_COMPONENT, service);
+        preferences.set("FirstPhoneLauncherSessionService", SERVICE_COMPONENT.flattenToString());
+    }
+
+    FakeContext getContext() {
+        return context;
+    }
+
+    FakeSessionService getService() {
+        return service;
+    }
+
+    CordovaPreferences getPreferences() {
+        return preferences;
+    }
+
+    /**
+     * @return the threads Cordova's pool has started so far, which run the session actions.
+     */
+    List<Thread> getPoolThreads() {
+        synchronized(poolThreads) {
+            return new ArrayList<Thread>(poolThreads);
+        }
+    }
+
+    /**
+     * Creates and initializes the plugin; set preferences before this.
+     */
+    FirstPhoneLauncherPlugin start() {
+        activity = new Activity() {
+            {
+                attachBaseContext(context);
+            }
+        };
+
+        final CordovaInterface cordova = new CordovaInterface() {
+            @Override
+            public Activity getActivity() {
+                return activity;
+            }
+
+            @Override
+            public Context getContext() {
+                return activity;
+            }
+
+            @Override
+            public ExecutorService getThreadPool() {
+                return threadPool;
+            }
+
+            @Override
+            public Object onMessage(String id, Object data) {
+                return plugin.onMessage(id, data);
+            }
+        };
+
+        final View view = new View(activity);
+        CordovaWebView webView = new CordovaWebView() {
+            @Override
+            public View getView() {
+                return view;
+            }
+
+            @Override
+            public CordovaPreferences getPreferences() {
+                return preferences;
+            }
+
+            @Override
+            public void sendPluginResult(PluginResult pluginResult, String callbackId) {
+                Call call = calls.remove(callbackId);
+                if(call == null) {
+                    throw new AssertionError("Result sent for unknown callback " + callbackId);
+                }
+                call.finish(pluginResult);
+            }
+        };
+
+        plugin = new FirstPhoneLauncherPlugin();
+        plugin.privateInitialize("FirstPhoneLauncher", cordova, webView, preferences);
+        return plugin;
+    }
+
+    /**
+     * Waits until the plugin is connected to the session service, warming it up first.
+     */
+    void awaitConnected() throws InterruptedException {
+        plugin.onMessage("onPageFinished", null);
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!context.isConnected(SERVICE_COMPONENT)) {
+            if(System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Session service never connected");
+            }
+            Thread.sleep(5);
+        }
+        context.idleMainLooper();
+    }
+
+    /**
+     * @return the plugin's session repository, held by the test as well until {@link #destroy}.
+     */
+    SessionRepository repository() {
+        if(repository == null) {
+            repository = SessionRepository.acquire(context, null, testHolder);
+        }
+        return repository;
+    }
+
+    /**
+     * Calls an action the way the bridge does, without waiting for its result.
+     */
+    Call execute(String action, JSONArray args) throws JSONException {
+        Call call = new Call(action);
+        String callbackId = "FirstPhoneLauncher" + callbackIds.incrementAndGet();
+        calls.put(callbackId, call);
+        plugin.execute(action, args, new CallbackContext(callbackId, plugin.webView));
+        return call;
+    }
+
+    Call execute(String action) throws JSONException {
+        return execute(action, new JSONArray());
+    }
+
+    /**
+     * Calls an action and waits for its result.
+     */
+    Call call(String action) throws JSONException, InterruptedException {
+        Call call = execute(action);
+        if(call.await(5000) == null) {
+            throw new AssertionError(action + " never sent a result");
+        }
+        return call;
+    }
+
+    /**
+     * @return the repository's counters, as returned by getSessionStats.
+     */
+    JSONObject stats() throws JSONException, InterruptedException {
+        return call("getSessionStats").json();
+    }
+
+    /**
+     * Destroys the plugin, releasing the process-wide session repository so the next test starts
+     * from scratch, and stops the thread pool.
+     */
+    void destroy() throws InterruptedException {
+        if(repository != null) {
+            repository.release(testHolder);
+            repository = null;
+        }
+        if(plugin != null) {
+            plugin.onDestroy();
+            plugin = null;
+        }
+        threadPool.shutdown();
+        threadPool.awaitTermination(5, TimeUnit.SECONDS);
+        context.idleMainLooper();
+        context.cleanUp();
+    }
+}
@@ -0,0 +1,130 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.view.View;
+
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Installs channel watchers around device session refreshes and checks what each callback is sent.
+ */
+public class PttChannelWatcherTest {
+
+    private final List<PluginResult> sent = new ArrayList<PluginResult>();
+    private final CordovaWebView webView = new CordovaWebView() {
+        @Override
+        public View getView() {
+            return null;
+        }
+
+        @Override
+        public CordovaPreferences getPreferences() {
+            return new CordovaPreferences();
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult, String callbackId) {
+            sent.add(pluginResult);
+        }
+    };
+
+    private final PttChannelWatcher watcher = new PttChannelWatcher();
+
+    @Test
+    public void firstEventCarriesEveryChannel() throws Exception {
+        watcher.watch(new CallbackContext("watch", webView), device("voip-1", "PTT-1", "PTT-2"));
+
+        assertEquals(2, sent.size());
+        assertEquals(PluginResult.Status.NO_RESULT.ordinal(), sent.get(0).getStatus());
+        assertTrue(sent.get(0).getKeepCallback());
+        assertEvent(1, "[\"PTT-1\",\"PTT-2\"]", "[]", "voip-1");
+    }
+
+    @Test
+    public void refreshCachedBeforeTheWatchIsSentFirst() throws Exception {
+        //the refresh is published after the caller read its session but before the watch is installed.
+        SharedDeviceSessionData read = device("voip-1", "PTT-1", "PTT-2");
+        watcher.onDeviceSessionChanged(device("voip-2", "PTT-1", "PTT-3"));
+        watcher.watch(new CallbackContext("watch", webView), read);
+
+        assertEquals(2, sent.size());
+        assertEvent(1, "[\"PTT-1\",\"PTT-3\"]", "[]", "voip-2");
+    }
+
+    @Test
+    public void refreshesSendOnlyWhatChanged() throws Exception {
+        watcher.watch(new CallbackContext("watch", webView), device("voip-1", "PTT-1", "PTT-2"));
+
+        watcher.onDeviceSessionChanged(device("voip-1", "PTT-1", "PTT-2"));
+        assertEquals("unchanged refresh sent", 2, sent.size());
+
+        watcher.onDeviceSessionChanged(device("voip-1", "PTT-1", "PTT-3"));
+        assertEvent(2, "[\"PTT-3\"]", "[\"PTT-2\"]", null);
+        assertFalse(json(2).has("voipRegistrationCode"));
+
+        watcher.onDeviceSessionChanged(device("voip-2", "PTT-1", "PTT-3"));
+        assertEvent(3, "[]", "[]", "voip-2");
+    }
+
+    @Test
+    public void newWatchReleasesThePreviousCallback() throws Exception {
+        CallbackContext first = new CallbackContext("first", webView);
+        watcher.watch(first, device("voip-1", "PTT-1"));
+        watcher.watch(new CallbackContext("second", webView), device("voip-1", "PTT-1"));
+
+        assertTrue(first.isFinished());
+        //the new callback starts over with every channel.
+        assertEvent(sent.size() - 1, "[\"PTT-1\"]", "[]", "voip-1");
+    }
+
+    @Test
+    public void stoppedWatcherSendsNothing() throws Exception {
+        CallbackContext callback = new CallbackContext("watch", webView);
+        watcher.watch(callback, device("voip-1", "PTT-1"));
+        watcher.stop();
+        int count = sent.size();
+
+        watcher.onDeviceSessionChanged(device("voip-2", "PTT-2"));
+
+        assertTrue(callback.isFinished());
+        assertEquals(count, sent.size());
+    }
+
+    private void assertEvent(int index, String added, String removed, String voipRegistrationCode)
+            throws JSONException {
+        PluginResult result = sent.get(index);
+        assertEquals(PluginResult.Status.OK.ordinal(), result.getStatus());
+        assertTrue(result.getKeepCallback());
+
+        JSONObject event = json(index);
+        assertEquals(added, event.getJSONArray("added").toString());
+        assertEquals(removed, event.getJSONArray("removed").toString());
+        if(voipRegistrationCode != null) {
+            assertEquals(voipRegistrationCode, event.getString("voipRegistrationCode"));
+        }
+    }
+
+    private JSONObject json(int index) throws JSONException {
+        return new JSONObject(sent.get(index).getMessage());
+    }
+
+    private static SharedDeviceSessionData device(String voipRegistrationCode, String... channels) {
+        return new SharedDeviceSessionData("0121", "4321", voipRegistrationCode, Arrays.asList(channels),
+                "device-1", "TC52", "10.0.0.1", "en_US", "7.1.0", false);
+    }
+}
@@ -0,0 +1,251 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires session actions at a {@link PluginHarness} from many callers at once, as pages with
+ * several WebViews or a burst of startup requests do, and reports how the plugin held up: how
+ * often the cache answered, how often the actions blocked on the repository's locks and the
+ * latency they saw.
+ *
+ * Each caller keeps one action outstanding and sends the next as soon as it has a result, so the
+ * number of callers is the concurrency.  Lock contention is read from the JVM's thread
+ * contention monitoring for the threads of Cordova's pool, which run the actions.
+ */
+class SessionLoadDriver {
+
+    static final String[] SESSION_ACTIONS = {"getDevice", "getUser", "getSettings", "getSsoToken"};
+
+    private static final long CALL_TIMEOUT_MS = 10000;
+
+    /**
+     * What one run measured.
+     */
+    static final class Report {
+        int calls;
+        int succeeded;
+        int unanswered;
+        final Map<String, Integer> errors = new TreeMap<String, Integer>();
+        long cacheHits;
+        long ipcCalls;
+        long coalesced;
+        long rateLimited;
+        long servedFromSnapshot;
+        long blockedCount;
+        long blockedMs;
+        long p50Micros;
+        long p99Micros;
+        long maxMicros;
+
+        /**
+         * @return the share of actions answered from the cache.
+         */
+        double hitRate() {
+            return calls > 0 ? (double) cacheHits / calls : 0;
+        }
+
+        /**
+         * @return the error codes seen that aren't a {@link SessionError}.
+         */
+        List<String> untypedErrors() {
+            List<String> untyped = new ArrayList<String>();
+            for(String code : errors.keySet()) {
+                try {
+                    SessionError.valueOf(code);
+                } catch(IllegalArgumentException ex) {
+                    untyped.add(code);
+                }
+            }
+            return untyped;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d calls, %d ok, %d unanswered, errors %s%n" +
+                            "  cache hit rate %.1f%%, launcher calls %d, coalesced %d, rate limited %d, from snapshot %d%n" +
+                            "  blocked on a lock %d times for %d ms%n" +
+                            "  latency p50 %d us, p99 %d us, max %d us",
+                    calls, succeeded, unanswered, errors, hitRate() * 100, ipcCalls, coalesced, rateLimited,
+                    servedFromSnapshot, blockedCount, blockedMs, p50Micros, p99Micros, maxMicros);
+        }
+    }
+
+    /**
+     * Runs alongside the load, e.g. to kill the service or change the sessions.
+     */
+    interface Disruption {
+        /**
+         * Called repeatedly until the load is done.
+         * @param round - how many times it was called before, starting at 0.
+         */
+        void disrupt(int round) throws Exception;
+    }
+
+    private final PluginHarness harness;
+    private final String[] actions;
+
+    SessionLoadDriver(PluginHarness harness, String... actions) {
+        this.harness = harness;
+        this.actions = actions;
+    }
+
+    /**
+     * @param calls - how many actions to send in total.
+     * @param callers - how many to keep outstanding at once.
+     * @param disruption - run on its own thread while the load lasts, or null.
+     * @param disruptEveryMs - the pause between disruption rounds.
+     */
+    Report run(final int calls, int callers, final Disruption disruption, final long disruptEveryMs)
+            throws InterruptedException, JSONException {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads.isThreadContentionMonitoringSupported()) {
+            threads.setThreadContentionMonitoringEnabled(true);
+        }
+        Map<Long, long[]> contentionBefore = contention(threads);
+        JSONObject statsBefore = harness.stats();
+
+        final AtomicInteger next = new AtomicInteger();
+        final long[] latencies = new long[calls];
+        final PluginHarness.Call[] results = new PluginHarness.Call[calls];
+        final CountDownLatch finished = new CountDownLatch(callers);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+
+        for(int c = 0; c < callers; c++) {
+            Thread caller = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int i;
+                        while((i = next.getAndIncrement()) < calls) {
+                            PluginHarness.Call call = harness.execute(actions[i % actions.length]);
+                            call.await(CALL_TIMEOUT_MS);
+                            results[i] = call;
+                            latencies[i] = call.latencyNanos();
+                        }
+                    } catch(Throwable t) {
+                        synchronized(failures) {
+                            failures.add(t);
+                        }
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }, "load-caller-" + c);
+            caller.start();
+        }
+
+        Thread disruptor = null;
+        if(disruption != null) {
+            disruptor = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for(int round = 0; finished.getCount() > 0; round++) {
+                            disruption.disrupt(round);
+                            Thread.sleep(disruptEveryMs);
+                        }
+                    } catch(InterruptedException ex) {
+                        //load is done.
+                    } catch(Throwable t) {
+                        synchronized(failures) {
+                            failures.add(t);
+                        }
+                    }
+                }
+            }, "load-disruptor");
+            disruptor.start();
+        }
+
+        finished.await();
+        if(disruptor != null) {
+            disruptor.interrupt();
+            disruptor.join();
+        }
+        synchronized(failures) {
+            if(!failures.isEmpty()) {
+                throw new AssertionError("Load caller failed", failures.get(0));
+            }
+        }
+
+        Report report = new Report();
+        report.calls = calls;
+        List<Long> answered = new ArrayList<Long>();
+        for(int i = 0; i < calls; i++) {
+            PluginHarness.Call call = results[i];
+            if(call == null || call.await(0) == null) {
+                report.unanswered++;
+                continue;
+            }
+
+            answered.add(latencies[i]);
+            if(call.isOk()) {
+                report.succeeded++;
+            } else {
+                String code = call.errorCode();
+                Integer count = report.errors.get(code);
+                report.errors.put(code, count != null ? count + 1 : 1);
+            }
+        }
+
+        long[] sorted = new long[answered.size()];
+        for(int i = 0; i < sorted.length; i++) {
+            sorted[i] = answered.get(i);
+        }
+        Arrays.sort(sorted);
+        report.p50Micros = percentile(sorted, 0.50) / 1000;
+        report.p99Micros = percentile(sorted, 0.99) / 1000;
+        report.maxMicros = sorted.length > 0 ? sorted[sorted.length - 1] / 1000 : 0;
+
+        JSONObject stats = harness.stats();
+        report.cacheHits = stats.getLong("cacheHits") - statsBefore.getLong("cacheHits");
+        report.ipcCalls = stats.getLong("ipcCalls") - statsBefore.getLong("ipcCalls");
+        report.coalesced = stats.getLong("coalesced") - statsBefore.getLong("coalesced");
+        report.rateLimited = stats.getLong("rateLimited") - statsBefore.getLong("rateLimited");
+        report.servedFromSnapshot = stats.getLong("servedFromSnapshot") - statsBefore.getLong("servedFromSnapshot");
+
+        Map<Long, long[]> contentionAfter = contention(threads);
+        for(Map.Entry<Long, long[]> entry : contentionAfter.entrySet()) {
+            long[] before = contentionBefore.get(entry.getKey());
+            long[] after = entry.getValue();
+            report.blockedCount += after[0] - (before != null ? before[0] : 0);
+            report.blockedMs += after[1] - (before != null ? before[1] : 0);
+        }
+
+        return report;
+    }
+
+    /**
+     * @return {blocked count, blocked ms} for each pool thread, by thread id.
+     */
+    private Map<Long, long[]> contention(ThreadMXBean threads) {
+        Map<Long, long[]> result = new HashMap<Long, long[]>();
+        for(Thread thread : harness.getPoolThreads()) {
+            ThreadInfo info = threads.getThreadInfo(thread.getId());
+            if(info != null) {
+                result.put(thread.getId(), new long[] {info.getBlockedCount(), Math.max(0, info.getBlockedTime())});
+            }
+        }
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if(sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,269 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives thousands of concurrent session actions against a plugin bound to a
+ * {@link FakeSessionService}: a steady state, a slow and failing launcher, a launcher that dies and
+ * a launcher whose sessions keep changing.  Every action has to be answered, with a session or a
+ * typed {@link SessionError}, and the plugin has to come back to the launcher's current sessions
+ * once things settle.  The measurements are written to the file named by the sessionLoad.report
+ * system property, build/reports/session-load.txt under Gradle, for comparing changes to the
+ * repository, and are part of the message of any assertion on them that fails.
+ */
+public class SessionLoadTest {
+
+    private static final int CALLS = 4000;
+    private static final int CALLERS = 32;
+
+    private PluginHarness harness;
+
+    @BeforeClass
+    public static void clearReport() {
+        File file = reportFile();
+        if(file != null && file.isFile() && !file.delete()) {
+            throw new IllegalStateException("Unable to delete " + file);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new PluginHarness(FakeSessionService.device("0121"), FakeSessionService.user("ABC1234"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        harness.destroy();
+    }
+
+    @Test
+    public void steadyStateIsServedFromTheCache() throws Exception {
+        harness.getService().setLatency(2);
+        harness.start();
+        harness.awaitConnected();
+
+        SessionLoadDriver.Report report = new SessionLoadDriver(harness, SessionLoadDriver.SESSION_ACTIONS)
+                .run(CALLS, CALLERS, null, 0);
+        record("steady state", report);
+
+        assertAllAnswered(report);
+        assertEquals(report.toString(), CALLS, report.succeeded);
+        assertTrue("hit rate too low\n" + report, report.hitRate() > 0.99);
+        assertTrue("too many launcher calls\n" + report, report.ipcCalls <= 4);
+    }
+
+    @Test
+    public void slowAndFailingLauncherOnlyReturnsTypedErrors() throws Exception {
+        final FakeSessionService service = harness.getService();
+        service.setLatency(20);
+        service.setFailureRate(0.3);
+        harness.start();
+        harness.awaitConnected();
+
+        //each change empties the cache, so the failures keep reaching the actions.
+        SessionLoadDriver.Report report = new SessionLoadDriver(harness, SessionLoadDriver.SESSION_ACTIONS)
+                .run(CALLS, CALLERS, new SessionLoadDriver.Disruption() {
+                    @Override
+                    public void disrupt(int round) {
+                        if(round % 2 == 0) {
+                            service.changeDevice(FakeSessionService.device(String.valueOf(1000 + round)));
+                        } else {
+                            service.changeUser(FakeSessionService.user("ABC1234"));
+                        }
+                    }
+                }, 20);
+        record("slow and failing launcher", report);
+
+        assertAllAnswered(report);
+        assertTrue("no action succeeded\n" + report, report.succeeded > 0);
+
+        service.setFailureRate(0);
+        assertSettles(service.currentDevice().getStoreNumber(), "ABC1234");
+    }
+
+    @Test
+    public void launcherDeathIsRecoveredFrom() throws Exception {
+        final FakeSessionService service = harness.getService();
+        final FakeContext context = harness.getContext();
+        service.setLatency(5);
+        harness.start();
+        harness.awaitConnected();
+
+        SessionLoadDriver.Report report = new SessionLoadDriver(harness, SessionLoadDriver.SESSION_ACTIONS)
+                .run(CALLS, CALLERS, new SessionLoadDriver.Disruption() {
+                    @Override
+                    public void disrupt(int round) throws InterruptedException {
+                        //calls in flight see the dead binder before the connection is told.
+                        service.setDead(true);
+                        service.changeUser(FakeSessionService.user("DEAD" + round));
+                        Thread.sleep(20);
+                        if(round % 2 == 0) {
+                            context.killService(PluginHarness.SERVICE_COMPONENT, 100);
+                        } else {
+                            context.killBinding(PluginHarness.SERVICE_COMPONENT, 100);
+                        }
+                        Thread.sleep(50);
+                        service.setDead(false);
+                    }
+                }, 300);
+        record("launcher death", report);
+
+        assertAllAnswered(report);
+        assertTrue("no action succeeded\n" + report, report.succeeded > 0);
+        assertTrue("never reconnected", context.getConnections() > 1);
+
+        assertSettles("0121", service.currentUser().getUserId());
+    }
+
+    @Test
+    public void sessionChurnSettlesOnTheLastSessions() throws Exception {
+        final FakeSessionService service = harness.getService();
+        service.setLatency(2);
+        harness.start();
+        harness.awaitConnected();
+
+        SessionLoadDriver.Report report = new SessionLoadDriver(harness, SessionLoadDriver.SESSION_ACTIONS)
+                .run(CALLS, CALLERS, new SessionLoadDriver.Disruption() {
+                    @Override
+                    public void disrupt(int round) {
+                        switch(round % 3) {
+                            case 0:
+                                service.changeUser(null);
+                                break;
+                            case 1:
+                                service.changeUser(FakeSessionService.user("USER" + round));
+                                break;
+                            default:
+                                service.changeDevice(FakeSessionService.device(String.valueOf(2000 + round)));
+                                break;
+                        }
+                    }
+                }, 10);
+        record("session churn", report);
+
+        assertAllAnswered(report);
+        assertTrue("no action succeeded\n" + report, report.succeeded > 0);
+
+        service.changeUser(FakeSessionService.user("LAST"));
+        service.changeDevice(FakeSessionService.device("9999"));
+        assertSettles("9999", "LAST");
+    }
+
+    @Test
+    public void loggedOutDeviceIsServedFromTheCache() throws Exception {
+        FakeSessionService service = harness.getService();
+        service.changeUser(null);
+        service.setLatency(2);
+        harness.start();
+        harness.awaitConnected();
+
+        //one after the other, as a page polling its settings would.
+        for(int i = 0; i < 40; i++) {
+            PluginHarness.Call settings = harness.call("getSettings");
+            assertTrue("call " + i + ": " + settings.errorCode(), settings.isOk());
+            assertFalse(settings.json().getJSONObject("user").has("associateUserID"));
+        }
+
+        SessionLoadDriver.Report report = new SessionLoadDriver(harness, "getDevice", "getSettings")
+                .run(CALLS, CALLERS, null, 0);
+        record("logged out", report);
+
+        assertAllAnswered(report);
+        assertEquals(report.toString(), CALLS, report.succeeded);
+        assertTrue("hit rate too low\n" + report, report.hitRate() > 0.99);
+        assertTrue("too many launcher calls\n" + report, report.ipcCalls <= 4);
+    }
+
+    @Test
+    public void loggedOutDeviceIsServedWhileRateLimited() throws Exception {
+        final FakeSessionService service = harness.getService();
+        service.changeUser(null);
+        service.setLatency(2);
+        harness.start();
+        harness.awaitConnected();
+        assertTrue(harness.call("getSettings").isOk());
+
+        //every broadcast drops the cached "nobody logged in", so the refetches soon hit the rate limit.
+        SessionLoadDriver.Report report = new SessionLoadDriver(harness, "getSettings")
+                .run(CALLS, CALLERS, new SessionLoadDriver.Disruption() {
+                    @Override
+                    public void disrupt(int round) {
+                        service.changeUser(null);
+                    }
+                }, 5);
+        record("logged out, rate limited", report);
+
+        assertAllAnswered(report);
+        assertEquals(report.toString(), CALLS, report.succeeded);
+        assertTrue("never rate limited\n" + report, report.rateLimited > 0);
+    }
+
+    private static void assertAllAnswered(SessionLoadDriver.Report report) {
+        assertEquals("unanswered actions\n" + report, 0, report.unanswered);
+        assertEquals("errors without a SessionError code\n" + report, Collections.<String>emptyList(),
+                report.untypedErrors());
+    }
+
+    /**
+     * Waits for getSettings to return the given sessions, as it has to once the changes have been
+     * broadcast and the rate limit has let up.
+     */
+    private void assertSettles(String storeNumber, String userId) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String last = null;
+        while(System.currentTimeMillis() < deadline) {
+            PluginHarness.Call settings = harness.call("getSettings");
+            if(settings.isOk()) {
+                String store = settings.json().getJSONObject("location").optString("storeNumber");
+                String user = settings.json().getJSONObject("user").optString("associateUserID");
+                if(storeNumber.equals(store) && userId.equals(user)) {
+                    return;
+                }
+                last = store + "/" + user;
+            } else {
+                last = settings.errorCode();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("getSettings never returned " + storeNumber + "/" + userId + ", last " + last);
+    }
+
+    /**
+     * Appends a scenario's measurements to the report file, if there is one.
+     */
+    private static void record(String scenario, SessionLoadDriver.Report report) throws IOException {
+        File file = reportFile();
+        if(file == null) {
+            return;
+        }
+
+        File dir = file.getParentFile();
+        if(dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        Writer out = new FileWriter(file, true);
+        try {
+            out.write(scenario + ": " + report + "\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File reportFile() {
+        String path = System.getProperty("sessionLoad.report");
+        return path != null ? new File(path) : null;
+    }
+}
@@ -0,0 +1,370 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.Intent;
+
+import com.homedepot.ngfp.session.support.SharedDeviceSessionData;
+import com.homedepot.ngfp.session.support.SharedSessionData;
+import com.homedepot.ngfp.session.support.SharedUserSessionData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Walks the session repository through the interleavings named in its class comment, one step at
+ * a time: a launcher call is paused after it has read the sessions, the sessions are changed and
+ * the change delivered on the main thread, and only then is the call let go.  None of them may
+ * leave a stale session cached, pair sessions from different versions or lose the newer of two
+ * updates.
+ */
+public class SessionRepositoryInterleavingTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private PluginHarness harness;
+    private FakeSessionService service;
+    private FakeContext context;
+    private SessionRepository repository;
+    private final ExecutorService caller = Executors.newSingleThreadExecutor();
+    private final List<String> notifiedStores = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new PluginHarness(FakeSessionService.device("0121"), FakeSessionService.user("ABC1234"));
+        service = harness.getService();
+        context = harness.getContext();
+        harness.start();
+        harness.awaitConnected();
+
+        repository = harness.repository();
+        repository.addDeviceSessionListener(new SessionRepository.DeviceSessionListener() {
+            @Override
+            public void onDeviceSessionChanged(SharedDeviceSessionData device) {
+                notifiedStores.add(device.getStoreNumber());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        caller.shutdownNow();
+        harness.destroy();
+    }
+
+    @Test
+    public void deviceFetchedBeforeAnInvalidationIsNotCached() throws Exception {
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_DEVICE_DATA);
+        Future<SessionRepository.Result<SharedDeviceSessionData>> stale = inBackground(
+                new Callable<SessionRepository.Result<SharedDeviceSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedDeviceSessionData> call() {
+                        return repository.deviceSession();
+                    }
+                });
+        pause.awaitEntered();
+
+        service.changeDevice(FakeSessionService.device("0200"));
+        context.idleMainLooper();
+        pause.release();
+
+        //the caller asked before the change, so it may have the old session; nobody after it may.
+        assertEquals("0121", stale.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession().getStoreNumber());
+        assertFalse("stale session was published", notifiedStores.contains("0121"));
+        assertEquals("0200", repository.deviceSession().getSession().getStoreNumber());
+    }
+
+    @Test
+    public void userFetchedBeforeALogoutIsNotCached() throws Exception {
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_USER_DATA);
+        Future<SessionRepository.Result<SharedUserSessionData>> stale = inBackground(
+                new Callable<SessionRepository.Result<SharedUserSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedUserSessionData> call() {
+                        return repository.userSession();
+                    }
+                });
+        pause.awaitEntered();
+
+        service.changeUser(null);
+        context.idleMainLooper();
+        pause.release();
+
+        assertEquals("ABC1234", stale.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession().getUserId());
+        SessionRepository.Result<SharedUserSessionData> user = repository.userSession();
+        assertNull("logged out user still cached", user.getSession());
+        assertNull(user.getError());
+    }
+
+    @Test
+    public void nobodyLoggedInFetchedBeforeALoginIsNotCached() throws Exception {
+        service.changeUser(null);
+        context.idleMainLooper();
+
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_USER_DATA);
+        Future<SessionRepository.Result<SharedUserSessionData>> stale = inBackground(
+                new Callable<SessionRepository.Result<SharedUserSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedUserSessionData> call() {
+                        return repository.userSession();
+                    }
+                });
+        pause.awaitEntered();
+
+        service.changeUser(FakeSessionService.user("XYZ9876"));
+        context.idleMainLooper();
+        pause.release();
+
+        assertNull(stale.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession());
+        SharedUserSessionData user = repository.userSession().getSession();
+        assertNotNull("login lost to a stale \"nobody logged in\"", user);
+        assertEquals("XYZ9876", user.getUserId());
+    }
+
+    @Test
+    public void staleNobodyLoggedInIsNotServedWhileRateLimited() throws Exception {
+        service.changeUser(null);
+        context.idleMainLooper();
+
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_USER_DATA);
+        Future<SessionRepository.Result<SharedUserSessionData>> stale = inBackground(
+                new Callable<SessionRepository.Result<SharedUserSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedUserSessionData> call() {
+                        return repository.userSession();
+                    }
+                });
+        pause.awaitEntered();
+
+        service.changeUser(FakeSessionService.user("XYZ9876"));
+        context.idleMainLooper();
+        pause.release();
+        assertNull(stale.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession());
+
+        drainRateLimiter();
+        SessionRepository.Result<SharedUserSessionData> user = repository.userSession();
+        if(user.getSession() == null) {
+            //the stale answer may not stand in for the launcher's.
+            assertEquals(SessionError.RATE_LIMITED, user.getError());
+        } else {
+            assertEquals("XYZ9876", user.getSession().getUserId());
+        }
+    }
+
+    @Test
+    public void sessionsNeverPairADeviceAndUserFromDifferentVersions() throws Exception {
+        SharedSessionData cold = repository.sessions().getSession();
+        assertEquals(service.currentVersion(), cold.getVersion());
+        assertConsistent(cold);
+
+        //the user changes, so the next read has the cached device and fetches the user...
+        service.changeUser(FakeSessionService.user("XYZ9876"));
+        context.idleMainLooper();
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_USER_DATA);
+        Future<SessionRepository.Result<SharedSessionData>> mixed = inBackground(
+                new Callable<SessionRepository.Result<SharedSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedSessionData> call() {
+                        return repository.sessions();
+                    }
+                });
+        pause.awaitEntered();
+
+        //...and the device changes while it does.
+        service.changeDevice(FakeSessionService.device("0200"));
+        context.idleMainLooper();
+        pause.release();
+
+        SharedSessionData pair = mixed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession();
+        assertEquals("0121", pair.getDeviceSession().getStoreNumber());
+        assertEquals("XYZ9876", pair.getUserSession().getUserId());
+        assertConsistent(pair);
+
+        SharedSessionData current = repository.sessions().getSession();
+        assertEquals("0200", current.getDeviceSession().getStoreNumber());
+        assertEquals("XYZ9876", current.getUserSession().getUserId());
+        assertConsistent(current);
+    }
+
+    @Test
+    public void combinedFetchInterruptedByADeviceChangeKeepsNoVersion() throws Exception {
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_SESSIONS);
+        Future<SessionRepository.Result<SharedSessionData>> interrupted = inBackground(
+                new Callable<SessionRepository.Result<SharedSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedSessionData> call() {
+                        return repository.sessions();
+                    }
+                });
+        pause.awaitEntered();
+
+        service.changeDevice(FakeSessionService.device("0200"));
+        context.idleMainLooper();
+        pause.release();
+        assertConsistent(interrupted.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession());
+
+        //the user from that fetch is still current, but the version it came with no longer is.
+        SharedSessionData pair = repository.sessions().getSession();
+        assertEquals("0200", pair.getDeviceSession().getStoreNumber());
+        assertEquals("ABC1234", pair.getUserSession().getUserId());
+        assertConsistent(pair);
+    }
+
+    @Test
+    public void sessionsStayConsistentWhileTheLauncherChurns() throws Exception {
+        final int readers = 4;
+        final int reads = 200;
+        final CountDownLatch done = new CountDownLatch(readers);
+        final List<SharedSessionData> results = Collections.synchronizedList(new ArrayList<SharedSessionData>());
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        try {
+            for(int r = 0; r < readers; r++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for(int i = 0; i < reads; i++) {
+                                results.add(repository.sessions().getSession());
+                            }
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+
+            for(int round = 0; done.getCount() > 0; round++) {
+                if(round % 2 == 0) {
+                    service.changeDevice(FakeSessionService.device(String.valueOf(3000 + round)));
+                } else {
+                    service.changeUser(FakeSessionService.user("CHURN" + round));
+                }
+                Thread.sleep(1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(pool.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(readers * reads, results.size());
+        for(SharedSessionData result : results) {
+            assertConsistent(result);
+        }
+    }
+
+    @Test
+    public void sessionHandedOverDuringAFetchIsNotOverwritten() throws Exception {
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_DEVICE_DATA);
+        Future<SessionRepository.Result<SharedDeviceSessionData>> fetch = inBackground(
+                new Callable<SessionRepository.Result<SharedDeviceSessionData>>() {
+                    @Override
+                    public SessionRepository.Result<SharedDeviceSessionData> call() {
+                        return repository.deviceSession();
+                    }
+                });
+        pause.awaitEntered();
+
+        //the launcher re-delivers the start intent with a newer device session while the fetch is out.
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.putExtra("com.homedepot.EXTRA_DEVICE_SESSION", FakeSessionService.device("0300"));
+        repository.onNewIntent(intent);
+        awaitIntentHandledOrBlocked("0300");
+        pause.release();
+
+        assertEquals("0121", fetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getSession().getStoreNumber());
+        awaitCachedStore("0300");
+        assertEquals("listeners told out of order", "0300", notifiedStores.get(notifiedStores.size() - 1));
+        assertTrue(notifiedStores.indexOf("0121") < notifiedStores.lastIndexOf("0300"));
+    }
+
+    private void drainRateLimiter() throws Exception {
+        Field limiterField = SessionRepository.class.getDeclaredField("ipcLimiter");
+        limiterField.setAccessible(true);
+        IpcRateLimiter limiter = (IpcRateLimiter) limiterField.get(repository);
+        while(limiter.tryAcquire()) {
+            //keep taking tokens.
+        }
+    }
+
+    private <T> Future<T> inBackground(Callable<T> task) {
+        return caller.submit(task);
+    }
+
+    /**
+     * Asserts that a versioned pair is exactly what the launcher held at that version.  A pair
+     * assembled from separate reads has to report version 0.
+     */
+    private void assertConsistent(SharedSessionData pair) {
+        assertNotNull(pair);
+        if(pair.getVersion() == 0) {
+            return;
+        }
+
+        SharedSessionData launcher = service.atVersion(pair.getVersion());
+        assertNotNull("no such version " + pair.getVersion(), launcher);
+        assertEquals("device at version " + pair.getVersion(), launcher.getDeviceSession(), pair.getDeviceSession());
+        assertEquals("user at version " + pair.getVersion(), launcher.getUserSession(), pair.getUserSession());
+    }
+
+    /**
+     * Waits until the session executor has either cached the intent's device session or is
+     * blocked waiting for the fetch in flight, so the fetch is only let go once the intent had its
+     * chance to race it.
+     */
+    private void awaitIntentHandledOrBlocked(String storeNumber) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_SECONDS * 1000;
+        while(System.currentTimeMillis() < deadline) {
+            if(notifiedStores.contains(storeNumber)) {
+                return;
+            }
+            for(Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+                if(thread.getKey().getState() == Thread.State.BLOCKED && inIntentHandler(thread.getValue())) {
+                    return;
+                }
+            }
+            Thread.sleep(5);
+        }
+        fail("intent never handled");
+    }
+
+    private static boolean inIntentHandler(StackTraceElement[] stack) {
+        for(StackTraceElement frame : stack) {
+            if("cacheSessionsFromIntent".equals(frame.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void awaitCachedStore(String storeNumber) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_SECONDS * 1000;
+        String cached = null;
+        while(System.currentTimeMillis() < deadline) {
+            SessionRepository.Result<SharedDeviceSessionData> device = repository.deviceSession();
+            cached = device.getSession() != null ? device.getSession().getStoreNumber() : null;
+            if(storeNumber.equals(cached)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("device session " + storeNumber + " never cached, last " + cached);
+    }
+}
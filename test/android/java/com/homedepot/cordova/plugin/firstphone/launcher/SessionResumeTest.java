@@ -0,0 +1,100 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import com.homedepot.ngfp.session.support.SharedSessionData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Revalidates the cache on resume, which only asks the launcher for its session version, while the
+ * sessions change.  The version read must never be stamped on a cache that is newer than it.
+ */
+public class SessionResumeTest {
+
+    private PluginHarness harness;
+    private FakeSessionService service;
+    private FakeContext context;
+    private FirstPhoneLauncherPlugin plugin;
+    private SessionRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new PluginHarness(FakeSessionService.device("0121"), FakeSessionService.user("ABC1234"));
+        service = harness.getService();
+        context = harness.getContext();
+        plugin = harness.start();
+        harness.awaitConnected();
+        repository = harness.repository();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        harness.destroy();
+    }
+
+    @Test
+    public void unchangedVersionKeepsTheCache() throws Exception {
+        SharedSessionData cached = repository.sessions().getSession();
+        int calls = service.getDeviceCalls() + service.getUserCalls() + service.getSessionsCalls();
+
+        plugin.onPause(false);
+        plugin.onResume(false);
+        awaitRevalidated();
+
+        SessionRepository.Result<SharedSessionData> resumed = repository.sessions();
+        assertEquals(TelemetryRecorder.OUTCOME_CACHE_HIT, resumed.getCacheOutcome());
+        assertEquals(cached.getVersion(), resumed.getSession().getVersion());
+        assertEquals(calls, service.getDeviceCalls() + service.getUserCalls() + service.getSessionsCalls());
+    }
+
+    @Test
+    public void versionReadBeforeAChangeIsNotStampedOnTheNewerCache() throws Exception {
+        //cached by separate calls, so without a version for resume to fill in.
+        assertEquals("0121", repository.deviceSession().getSession().getStoreNumber());
+        assertEquals("ABC1234", repository.userSession().getSession().getUserId());
+
+        FakeSessionService.Pause pause = service.pauseNext(FakeSessionService.METHOD_GET_SESSION_VERSION);
+        plugin.onResume(false);
+        pause.awaitEntered();
+
+        service.changeUser(FakeSessionService.user("XYZ9876"));
+        context.idleMainLooper();
+        pause.release();
+
+        //waits for the revalidation, which holds fetchLock, and caches the new user.
+        assertEquals("XYZ9876", repository.userSession().getSession().getUserId());
+
+        SharedSessionData pair = repository.sessions().getSession();
+        assertEquals("0121", pair.getDeviceSession().getStoreNumber());
+        assertEquals("XYZ9876", pair.getUserSession().getUserId());
+        if(pair.getVersion() != 0) {
+            SharedSessionData launcher = service.atVersion(pair.getVersion());
+            assertNotNull(launcher);
+            assertEquals("user at version " + pair.getVersion(), launcher.getUserSession(), pair.getUserSession());
+        }
+    }
+
+    private void awaitRevalidated() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(service.getVersionCalls() == 0 || revalidating()) {
+            assertTrue("resume never revalidated", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static boolean revalidating() {
+        for(StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+            for(StackTraceElement frame : stack) {
+                if("revalidateOnResume".equals(frame.getMethodName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
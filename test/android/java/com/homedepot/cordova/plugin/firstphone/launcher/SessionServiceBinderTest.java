@@ -0,0 +1,126 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.homedepot.ngfp.session.service.IRemoteSessionService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Uninstalls and installs launchers under a binder, checking that it finds its way back to a
+ * session service without anyone calling bind again.
+ */
+public class SessionServiceBinderTest {
+
+    private static final ComponentName LAUNCHER =
+            new ComponentName("com.homedepot.launcher", "com.homedepot.launcher.SessionService");
+    private static final ComponentName OTHER_LAUNCHER =
+            new ComponentName("com.homedepot.launcher2", "com.homedepot.launcher2.SessionService");
+
+    private FakeContext context;
+    private SessionServiceBinder binder;
+    private final BlockingQueue<IRemoteSessionService> connected = new LinkedBlockingQueue<IRemoteSessionService>();
+
+    @Before
+    public void setUp() throws Exception {
+        context = new FakeContext();
+        binder = new SessionServiceBinder(context, new SessionServiceBinder.Listener() {
+            @Override
+            public void onSessionServiceConnected(IRemoteSessionService service) {
+                connected.add(service);
+            }
+
+            @Override
+            public void onSessionServiceDisconnected() {
+            }
+        }, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        binder.unbind();
+        context.idleMainLooper();
+        context.cleanUp();
+    }
+
+    @Test
+    public void rememberedLauncherThatIsGoneIsNotBound() throws Exception {
+        context.getSharedPreferences(FirstPhoneLauncherPlugin.PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString("sessionServiceComponent", LAUNCHER.flattenToString()).apply();
+        FakeSessionService other = install(OTHER_LAUNCHER);
+
+        binder.bind();
+
+        assertSame(other, connected.poll(5, TimeUnit.SECONDS));
+        assertEquals("bound the uninstalled launcher", 0, context.getBindRequests(LAUNCHER));
+    }
+
+    @Test
+    public void launcherIsBoundAgainAfterEveryCandidateFailed() throws Exception {
+        install(LAUNCHER);
+        binder.bind();
+        connected.poll(5, TimeUnit.SECONDS);
+
+        uninstallAndAwaitFailure(LAUNCHER);
+        FakeSessionService other = install(OTHER_LAUNCHER);
+
+        assertSame("never bound again", other,
+                connected.poll(SessionServiceBinder.RETRY_MIN_MS + 5000, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void installedLauncherIsBoundWithoutWaitingOutTheBackoff() throws Exception {
+        install(LAUNCHER);
+        binder.bind();
+        connected.poll(5, TimeUnit.SECONDS);
+
+        uninstallAndAwaitFailure(LAUNCHER);
+        FakeSessionService other = install(OTHER_LAUNCHER);
+        context.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_ADDED, Uri.parse("package:" + OTHER_LAUNCHER.getPackageName())));
+
+        assertSame("waited for the backoff", other,
+                connected.poll(SessionServiceBinder.RETRY_MIN_MS / 2, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void unbindStopsBindingAgain() throws Exception {
+        install(LAUNCHER);
+        binder.bind();
+        connected.poll(5, TimeUnit.SECONDS);
+
+        uninstallAndAwaitFailure(LAUNCHER);
+        binder.unbind();
+        install(OTHER_LAUNCHER);
+
+        assertNull(connected.poll(SessionServiceBinder.RETRY_MIN_MS + 500, TimeUnit.MILLISECONDS));
+        assertEquals(0, context.getBindRequests(OTHER_LAUNCHER));
+    }
+
+    private FakeSessionService install(ComponentName component) {
+        FakeSessionService service = new FakeSessionService(context, FakeSessionService.device("0121"), null);
+        context.addService(component, service);
+        return service;
+    }
+
+    //the binding dies, and binding the launcher again fails as it is gone.
+    private void uninstallAndAwaitFailure(ComponentName component) throws InterruptedException {
+        int requests = context.getBindRequests(component);
+        context.removeService(component);
+        context.idleMainLooper();
+        assertEquals(requests + 1, context.getBindRequests(component));
+        assertNull(binder.getService());
+    }
+}
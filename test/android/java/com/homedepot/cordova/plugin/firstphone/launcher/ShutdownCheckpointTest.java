@@ -0,0 +1,97 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saves and restores checkpoints, checking that a save never waits on the launcher and that the
+ * WebViews of a process keep their checkpoints apart.
+ */
+public class ShutdownCheckpointTest {
+
+    private PluginHarness harness;
+    private FakeSessionService service;
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new PluginHarness(FakeSessionService.device("0121"), FakeSessionService.user("ABC1234"));
+        service = harness.getService();
+        harness.start();
+        harness.awaitConnected();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        harness.destroy();
+    }
+
+    @Test
+    public void saveTakesTheUserFromTheCache() throws Exception {
+        assertTrue(harness.call("getUser").isOk());
+        int userCalls = service.getUserCalls();
+
+        PluginHarness.Call save = save("{\"route\":\"#orders\"}");
+        assertTrue(save.errorCode(), save.isOk());
+        assertEquals("save called the launcher", userCalls, service.getUserCalls());
+
+        assertEquals("{\"route\":\"#orders\"}", harness.call("restoreCheckpoint").await(0).getStrMessage());
+    }
+
+    @Test
+    public void saveWithoutACachedUserDoesntCallTheLauncher() throws Exception {
+        assertNull("user session cached before any action", harness.repository().peekUserSession());
+        int userCalls = service.getUserCalls();
+
+        PluginHarness.Call save = save("{\"route\":\"#orders\"}");
+        assertFalse(save.isOk());
+        assertEquals("save called the launcher", userCalls, service.getUserCalls());
+
+        assertNull(harness.call("restoreCheckpoint").await(0).getStrMessage());
+    }
+
+    @Test
+    public void webViewsKeepTheirOwnCheckpoints() throws Exception {
+        FakeContext context = new FakeContext();
+        try {
+            ShutdownCheckpoint first = new ShutdownCheckpoint(context, "com.example.MainActivity-1");
+            ShutdownCheckpoint second = new ShutdownCheckpoint(context, "com.example.MainActivity-2");
+            first.save("ABC1234", "first");
+            second.save("ABC1234", "second");
+
+            assertEquals("second", second.restore("ABC1234"));
+            assertNull("restored twice", second.restore("ABC1234"));
+            assertEquals("first", first.restore("ABC1234"));
+        } finally {
+            context.cleanUp();
+        }
+    }
+
+    @Test
+    public void checkpointIsOnlyRestoredForItsUser() throws Exception {
+        FakeContext context = new FakeContext();
+        try {
+            ShutdownCheckpoint checkpoint = new ShutdownCheckpoint(context, "com.example.MainActivity--1");
+            checkpoint.save("ABC1234", "state");
+
+            assertNull(checkpoint.restore("XYZ9876"));
+            assertNull("kept after a user mismatch", checkpoint.restore("ABC1234"));
+        } finally {
+            context.cleanUp();
+        }
+    }
+
+    private PluginHarness.Call save(String state) throws Exception {
+        PluginHarness.Call call = harness.execute("saveCheckpoint", new JSONArray().put(state));
+        if(call.await(5000) == null) {
+            throw new AssertionError("saveCheckpoint never sent a result");
+        }
+        return call;
+    }
+}
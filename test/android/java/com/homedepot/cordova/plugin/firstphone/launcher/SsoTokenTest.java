@@ -0,0 +1,70 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import com.homedepot.ngfp.session.support.SharedUserSessionData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads the SSO token with getSsoToken and checks that a cached user session's token is wiped as
+ * soon as the launcher reports the user changed.
+ */
+public class SsoTokenTest {
+
+    private PluginHarness harness;
+    private FakeSessionService service;
+    private FakeContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new PluginHarness(FakeSessionService.device("0121"), FakeSessionService.user("ABC1234"));
+        service = harness.getService();
+        context = harness.getContext();
+        harness.start();
+        harness.awaitConnected();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        harness.destroy();
+    }
+
+    @Test
+    public void getUserLeavesTheTokenOut() throws Exception {
+        PluginHarness.Call user = harness.call("getUser");
+        assertTrue(user.errorCode(), user.isOk());
+        assertEquals("ABC1234", user.json().getString("associateUserID"));
+        assertFalse(user.json().has("thdSsoToken"));
+    }
+
+    @Test
+    public void logoutWipesTheCachedToken() throws Exception {
+        assertEquals("sso-ABC1234", harness.call("getSsoToken").await(0).getStrMessage());
+        SharedUserSessionData cached = harness.repository().userSession().getSession();
+        assertNotNull(cached.copyThdSsoToken());
+
+        service.changeUser(null);
+        context.idleMainLooper();
+
+        assertNull("token survived the logout", cached.copyThdSsoToken());
+        assertEquals("NO_USER_SESSION", harness.call("getSsoToken").errorCode());
+    }
+
+    @Test
+    public void userSwitchWipesTheOldToken() throws Exception {
+        SharedUserSessionData cached = harness.repository().userSession().getSession();
+
+        service.changeUser(FakeSessionService.user("XYZ9876"));
+        context.idleMainLooper();
+
+        assertNull(cached.copyThdSsoToken());
+        assertEquals("sso-XYZ9876", harness.call("getSsoToken").await(0).getStrMessage());
+    }
+}
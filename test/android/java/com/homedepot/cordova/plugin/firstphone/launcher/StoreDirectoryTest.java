@@ -0,0 +1,148 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Searches a store directory written to the app's files the way the MDM agent drops it.
+ */
+public class StoreDirectoryTest {
+
+    private FakeContext context;
+    private final JSONArray directory = new JSONArray();
+
+    @Before
+    public void setUp() throws Exception {
+        context = new FakeContext();
+        add("0121", "garden", "Garden Center", "101", "7705550101");
+        add("0121", "paint", "Paint Desk", "102", "7705550102");
+        add("0121", "pro", "Pro Desk", "103", "7705550103");
+        add("0200", "annex", "Garden Annex", "201", "7705550201");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        context.cleanUp();
+    }
+
+    @Test
+    public void prefixMatchesAnyWordOfTheName() throws Exception {
+        StoreDirectory.Index index = index("0121");
+
+        assertEquals(ids("paint", "pro"), ids(index.search("des", 10)));
+        assertEquals(ids("garden"), ids(index.search("  GAR ", 10)));
+        assertEquals(ids("garden"), ids(index.search("center", 10)));
+        assertEquals(ids("paint", "pro"), ids(index.search("p", 10)));
+    }
+
+    @Test
+    public void prefixMatchesExtensions() throws Exception {
+        assertEquals(ids("garden", "paint", "pro"), ids(index("0121").search("10", 10)));
+        assertEquals(ids("paint"), ids(index("0121").search("102", 10)));
+    }
+
+    @Test
+    public void nothingMatchesAnEmptyOrUnknownPrefix() throws Exception {
+        StoreDirectory.Index index = index("0121");
+
+        assertEquals(0, index.search("", 10).length());
+        assertEquals(0, index.search("   ", 10).length());
+        assertEquals(0, index.search("zzz", 10).length());
+        assertEquals(0, index.search("desks", 10).length());
+        assertEquals(0, index.search("des", 0).length());
+    }
+
+    @Test
+    public void onlyTheStoresEntriesAreIndexed() throws Exception {
+        assertEquals(ids("garden"), ids(index("0121").search("garden", 10)));
+        assertEquals(ids("annex"), ids(index("0200").search("garden", 10)));
+    }
+
+    @Test
+    public void wordRepeatedInANameMatchesTheEntryOnce() throws Exception {
+        add("0121", "returns", "Returns Desk Returns", "104", "7705550104");
+
+        StoreDirectory.Index index = index("0121");
+        assertEquals(ids("returns"), ids(index.search("ret", 10)));
+        assertEquals(ids("paint", "pro", "returns"), ids(index.search("desk", 10)));
+    }
+
+    @Test
+    public void limitCountsEntriesNotWords() throws Exception {
+        add("0121", "returns", "Returns Returns Returns", "104", "7705550104");
+        add("0121", "rentals", "Rentals", "105", "7705550105");
+
+        StoreDirectory.Index index = index("0121");
+        assertEquals(ids("rentals", "returns"), ids(index.search("re", 2)));
+        assertEquals(1, index.search("re", 1).length());
+    }
+
+    @Test
+    public void everyEntrySharingAWordIsFound() throws Exception {
+        //enough equal keys that the binary search lands in the middle of them.
+        List<String> desks = new ArrayList<String>();
+        for(int i = 0; i < 9; i++) {
+            add("0121", "desk" + i, "Desk " + i, "30" + i, "770555030" + i);
+            desks.add("desk" + i);
+        }
+        desks.add("paint");
+        desks.add("pro");
+
+        List<String> found = ids(index("0121").search("desk", 20));
+        Collections.sort(found);
+        assertEquals(desks, found);
+    }
+
+    @Test
+    public void numberIsLookedUpById() throws Exception {
+        StoreDirectory.Index index = index("0121");
+
+        assertEquals("7705550102", index.numberFor("paint"));
+        assertNull(index.numberFor("annex"));
+        assertNull(index.numberFor("nobody"));
+    }
+
+    private void add(String storeNumber, String id, String name, String extension, String number) throws Exception {
+        directory.put(new JSONObject().put("storeNumber", storeNumber).put("id", id).put("name", name)
+                .put("extension", extension).put("number", number));
+    }
+
+    private StoreDirectory.Index index(String storeNumber) throws Exception {
+        OutputStream out = new FileOutputStream(new File(context.getFilesDir(), StoreDirectory.FILE_NAME));
+        try {
+            out.write(directory.toString().getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return new StoreDirectory(context).indexFor(storeNumber);
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> list = new ArrayList<String>();
+        for(String id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<String> ids(JSONArray matches) throws Exception {
+        List<String> list = new ArrayList<String>();
+        for(int i = 0; i < matches.length(); i++) {
+            list.add(matches.getJSONObject(i).getString("id"));
+        }
+        return list;
+    }
+}
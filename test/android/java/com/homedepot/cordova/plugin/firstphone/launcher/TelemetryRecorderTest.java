@@ -0,0 +1,144 @@
+package com.homedepot.cordova.plugin.firstphone.launcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records events and reads the telemetry files back in the format documented on
+ * {@link TelemetryRecorder}: the header, the event fields, the record of events dropped when the
+ * ring buffer overflows, and rotation at the size limit.
+ */
+public class TelemetryRecorderTest {
+
+    private static final int MAGIC = 0x46504C54; //"FPLT"
+    private static final int HEADER_SIZE = 8;
+
+    private FakeContext context;
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new FakeContext();
+        directory = new File(context.getFilesDir(), "firstphone-telemetry");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        context.cleanUp();
+    }
+
+    @Test
+    public void eventsAreWrittenInTheDocumentedFormat() throws Exception {
+        TelemetryRecorder recorder = new TelemetryRecorder();
+        recorder.start(context.getFilesDir());
+        long startNanos = System.nanoTime() - 1500000;
+        recorder.record(TelemetryRecorder.EVENT_GET_DEVICE, 1000L, startNanos, TelemetryRecorder.OUTCOME_CACHE_HIT, null);
+        recorder.record(TelemetryRecorder.EVENT_IPC_GET_USER_DATA, 2000L, startNanos, TelemetryRecorder.OUTCOME_NONE,
+                SessionError.RATE_LIMITED);
+        recorder.close();
+
+        ByteBuffer file = read(new File(directory, "telemetry.bin"));
+        assertEquals(MAGIC, file.getInt());
+        assertEquals(1, file.getShort());
+        assertEquals(TelemetryRecorder.EVENT_SIZE, file.getShort());
+        assertEquals(2 * TelemetryRecorder.EVENT_SIZE, file.remaining());
+
+        assertEquals(1000L, file.getLong());
+        assertTrue("duration in us", file.getInt() >= 1500);
+        assertEquals(TelemetryRecorder.EVENT_GET_DEVICE, file.getShort());
+        assertEquals(TelemetryRecorder.OUTCOME_CACHE_HIT, file.get());
+        assertEquals("no error", 0, file.get());
+
+        assertEquals(2000L, file.getLong());
+        file.getInt();
+        assertEquals(TelemetryRecorder.EVENT_IPC_GET_USER_DATA, file.getShort());
+        assertEquals(TelemetryRecorder.OUTCOME_NONE, file.get());
+        assertEquals(SessionError.RATE_LIMITED.ordinal() + 1, file.get());
+    }
+
+    @Test
+    public void overflowKeepsTheNewestEventsAndCountsTheRest() throws Exception {
+        TelemetryRecorder recorder = new TelemetryRecorder();
+        recorder.start(context.getFilesDir());
+        int lost = 5;
+        for(int i = 0; i < TelemetryRecorder.CAPACITY + lost; i++) {
+            recorder.record(TelemetryRecorder.EVENT_GET_USER, i, System.nanoTime(), TelemetryRecorder.OUTCOME_NONE, null);
+        }
+        recorder.close();
+
+        ByteBuffer file = read(new File(directory, "telemetry.bin"));
+        file.position(HEADER_SIZE);
+        assertEquals((TelemetryRecorder.CAPACITY + 1) * TelemetryRecorder.EVENT_SIZE, file.remaining());
+        for(int i = 0; i < TelemetryRecorder.CAPACITY; i++) {
+            assertEquals("oldest events go first", lost + i, file.getLong());
+            file.position(file.position() + TelemetryRecorder.EVENT_SIZE - 8);
+        }
+
+        file.getLong();
+        assertEquals("events dropped", lost, file.getInt());
+        assertEquals(TelemetryRecorder.EVENT_DROPPED, file.getShort());
+    }
+
+    @Test
+    public void filesAreRotatedAtTheSizeLimit() throws Exception {
+        //each run writes one full ring buffer, so a file holds a whole number of runs.
+        long bytesPerRun = (long) TelemetryRecorder.CAPACITY * TelemetryRecorder.EVENT_SIZE;
+        long runsPerFile = (TelemetryRecorder.MAX_FILE_BYTES - HEADER_SIZE) / bytesPerRun;
+        int runs = (int) (runsPerFile * (TelemetryRecorder.MAX_ROTATED_FILES + 1) + 1);
+
+        long sequence = 0;
+        for(int run = 0; run < runs; run++) {
+            TelemetryRecorder recorder = new TelemetryRecorder();
+            recorder.start(context.getFilesDir());
+            for(int i = 0; i < TelemetryRecorder.CAPACITY; i++) {
+                recorder.record(TelemetryRecorder.EVENT_GET_SETTINGS, sequence++, System.nanoTime(),
+                        TelemetryRecorder.OUTCOME_NONE, null);
+            }
+            recorder.close();
+        }
+
+        //newest to oldest: the current file, then telemetry.1.bin and telemetry.2.bin.
+        File[] files = {
+                new File(directory, "telemetry.bin"),
+                new File(directory, "telemetry.1.bin"),
+                new File(directory, "telemetry.2.bin")
+        };
+        assertFalse("kept too many files", new File(directory, "telemetry.3.bin").exists());
+
+        long next = sequence;
+        for(File f : files) {
+            assertTrue(f.getName() + " over the limit", f.length() <= TelemetryRecorder.MAX_FILE_BYTES);
+            ByteBuffer file = read(f);
+            assertEquals(f.getName(), MAGIC, file.getInt());
+            file.position(HEADER_SIZE);
+
+            int events = file.remaining() / TelemetryRecorder.EVENT_SIZE;
+            assertEquals(f.getName() + " first event", next - events, file.getLong());
+            file.position(file.limit() - TelemetryRecorder.EVENT_SIZE);
+            assertEquals(f.getName() + " last event", next - 1, file.getLong());
+            next -= events;
+        }
+        assertTrue("oldest file was never deleted", next > 0);
+    }
+
+    private static ByteBuffer read(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        } finally {
+            in.close();
+        }
+    }
+}
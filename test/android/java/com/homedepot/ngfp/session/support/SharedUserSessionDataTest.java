@@ -0,0 +1,239 @@
+package com.homedepot.ngfp.session.support;
+
+import android.os.Parcel;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parcels user sessions and reads them back eagerly and lazily, checking that both read, compare
+ * and parcel the same, and that the lazy one leaves its details alone until they are read.
+ */
+public class SharedUserSessionDataTest {
+
+    //marks the end of a parceled session, so a read that skips too much or too little shows.
+    private static final int TRAILER = 0x5eed;
+
+    @Test
+    public void eagerAndLazyReadTheSame() throws Exception {
+        SharedUserSessionData user = user("024", "Zoë", null, "");
+        Parcel parcel = parcel(user);
+
+        SharedUserSessionData eager = new SharedUserSessionData(parcel);
+        assertEquals(TRAILER, parcel.readInt());
+        parcel.setDataPosition(0);
+        SharedUserSessionData lazy = SharedUserSessionData.CREATOR.createFromParcel(parcel);
+        assertEquals(TRAILER, parcel.readInt());
+
+        for(SharedUserSessionData read : Arrays.asList(eager, lazy)) {
+            assertEquals("024", read.getDepartmentNumber());
+            assertEquals("Zoë", read.getFirstName());
+            assertNull(read.getMiddleName());
+            assertEquals("", read.getLastName());
+            assertEquals("0121", read.getLocationNumber());
+            assertEquals("STR", read.getLocationType());
+            assertEquals("en_US", read.getLocale());
+            assertEquals("ABC1234", read.getUserId());
+            assertEquals("associate", read.getUserType());
+            assertEquals(3, read.getImsUserLevel());
+            assertEquals("sso-token", read.getThdSsoToken());
+            assertEquals(Arrays.asList("store-associates", "managers"), read.getLdapGroups());
+        }
+    }
+
+    @Test
+    public void everyStringLengthIsSkipped() throws Exception {
+        //lengths 0 to 4 cover each padding of the chars and their terminator.
+        String[] names = {"", "A", "AB", "ABC", "ABCD"};
+        for(String first : names) {
+            for(String last : names) {
+                SharedUserSessionData user = user(first + "1", first, last, last + "2");
+                Parcel parcel = parcel(user);
+                SharedUserSessionData lazy = SharedUserSessionData.CREATOR.createFromParcel(parcel);
+                assertEquals(TRAILER, parcel.readInt());
+                assertEquals(user, lazy);
+                assertEquals(first, lazy.getFirstName());
+                assertEquals(last + "2", lazy.getLastName());
+            }
+        }
+    }
+
+    @Test
+    public void settingsFieldsLeaveTheDetailsUndecoded() throws Exception {
+        SharedUserSessionData lazy = SharedUserSessionData.CREATOR.createFromParcel(parcel(user("024", "Pat", "Q", "Smith")));
+
+        lazy.getUserId();
+        lazy.getUserType();
+        lazy.getImsUserLevel();
+        lazy.getLdapGroups();
+        assertNotNull("details decoded by the settings fields", encodedDetails(lazy));
+
+        assertEquals("Pat", lazy.getFirstName());
+        assertNull(encodedDetails(lazy));
+    }
+
+    @Test
+    public void lazySessionParcelsLikeTheOriginal() throws Exception {
+        SharedUserSessionData user = user("024", "Pat", "Q", "Smith");
+        SharedUserSessionData lazy = SharedUserSessionData.CREATOR.createFromParcel(parcel(user));
+
+        //parceled again before its details were ever read, as when handed on in an intent.
+        SharedUserSessionData again = new SharedUserSessionData(parcel(lazy));
+        assertEquals(user, again);
+        assertEquals("Smith", again.getLastName());
+    }
+
+    @Test
+    public void equalsAndHashCodeDontDependOnDecoding() throws Exception {
+        SharedUserSessionData user = user("024", "Pat", "Q", "Smith");
+        SharedUserSessionData eager = new SharedUserSessionData(parcel(user));
+        SharedUserSessionData lazy = SharedUserSessionData.CREATOR.createFromParcel(parcel(user));
+        SharedUserSessionData undecoded = SharedUserSessionData.CREATOR.createFromParcel(parcel(user));
+
+        assertEquals(user.hashCode(), undecoded.hashCode());
+        assertEquals(eager, lazy);
+        assertEquals(lazy, eager);
+        assertEquals(user, lazy);
+        assertEquals(user.hashCode(), eager.hashCode());
+
+        SharedUserSessionData otherName = SharedUserSessionData.CREATOR.createFromParcel(parcel(user("024", "Sam", "Q", "Smith")));
+        assertFalse(lazy.equals(otherName));
+        assertFalse(otherName.equals(lazy));
+    }
+
+    @Test
+    public void emptySessionRoundTrips() throws Exception {
+        Parcel parcel = parcel(new SharedUserSessionData());
+        SharedUserSessionData read = SharedUserSessionData.CREATOR.createFromParcel(parcel);
+        assertEquals(TRAILER, parcel.readInt());
+
+        assertEquals(new SharedUserSessionData(), read);
+        assertNull(read.getUserId());
+        assertNull(read.getFirstName());
+        assertTrue(read.getLdapGroups().isEmpty());
+    }
+
+    @Test
+    public void combinedSessionsRoundTrip() throws Exception {
+        SharedDeviceSessionData device = new SharedDeviceSessionData("0121", "4321", "voip-1",
+                Collections.singletonList("PTT-1"), "device-1", "TC52", "10.0.0.1", "en_US", "7.1.0", false);
+        SharedUserSessionData user = user("024", "Pat", "Q", "Smith");
+        Parcel parcel = Parcel.obtain();
+        new SharedSessionData(7, device, user).writeToParcel(parcel, 0);
+        parcel.writeInt(TRAILER);
+        parcel.setDataPosition(0);
+
+        SharedSessionData read = SharedSessionData.CREATOR.createFromParcel(parcel);
+        assertEquals(TRAILER, parcel.readInt());
+        assertEquals(7, read.getVersion());
+        assertEquals(device, read.getDeviceSession());
+        assertEquals(user, read.getUserSession());
+    }
+
+    @Test
+    public void tokenIsReadFromTheLaunchersStringLayout() throws Exception {
+        for(String token : new String[] {"", "a", "ab", "abc", "abcd", "tökén-€"}) {
+            //parceled the way the launcher's copy of this class writes it: every field a String.
+            Parcel parcel = Parcel.obtain();
+            parcel.writeByte((byte) 0);
+            for(int i = 0; i < 7; i++) {
+                parcel.writeString("detail" + i);
+            }
+            parcel.writeString("ABC1234");
+            parcel.writeString("associate");
+            parcel.writeInt(3);
+            parcel.writeString(token);
+            parcel.writeStringList(Collections.singletonList("store-associates"));
+            parcel.writeInt(TRAILER);
+            parcel.setDataPosition(0);
+
+            SharedUserSessionData read = SharedUserSessionData.CREATOR.createFromParcel(parcel);
+            assertEquals(TRAILER, parcel.readInt());
+            assertEquals(token, new String(read.copyThdSsoToken()));
+            assertEquals(Collections.singletonList("store-associates"), read.getLdapGroups());
+        }
+    }
+
+    @Test
+    public void tokenIsWrittenInTheLaunchersStringLayout() throws Exception {
+        for(String token : new String[] {"", "a", "ab", "abc", "abcd", "tökén-€", null}) {
+            SharedUserSessionData user = new SharedUserSessionData("024", "Pat", "Q", "Smith", "0121", "STR",
+                    "en_US", "ABC1234", "associate", 3, token, Collections.singletonList("store-associates"));
+            Parcel parcel = parcel(user);
+
+            parcel.readByte();
+            for(int i = 0; i < 9; i++) {
+                parcel.readString();
+            }
+            parcel.readInt();
+            assertEquals(token, parcel.readString());
+            assertEquals(1, parcel.readInt());
+            assertEquals("store-associates", parcel.readString());
+            assertEquals(TRAILER, parcel.readInt());
+        }
+    }
+
+    @Test
+    public void wipedTokenReadsAndParcelsAsNull() throws Exception {
+        SharedUserSessionData user = user("024", "Pat", "Q", "Smith");
+        int hash = user.hashCode();
+
+        user.wipeThdSsoToken();
+
+        assertNull(user.copyThdSsoToken());
+        assertNull(user.getThdSsoToken());
+        assertEquals("hash changed by the wipe", hash, user.hashCode());
+        assertNull(new SharedUserSessionData(parcel(user)).copyThdSsoToken());
+    }
+
+    @Test
+    public void tokensTakePartInEquals() throws Exception {
+        SharedUserSessionData user = user("024", "Pat", "Q", "Smith");
+        SharedUserSessionData same = user("024", "Pat", "Q", "Smith");
+        SharedUserSessionData noToken = new SharedUserSessionData("024", "Pat", "Q", "Smith", "0121", "STR", "en_US",
+                "ABC1234", "associate", 3, null, Arrays.asList("store-associates", "managers"));
+        SharedUserSessionData otherToken = new SharedUserSessionData("024", "Pat", "Q", "Smith", "0121", "STR",
+                "en_US", "ABC1234", "associate", 3, "sso-other", Arrays.asList("store-associates", "managers"));
+
+        assertEquals(user, same);
+        assertFalse(user.equals(otherToken));
+        assertFalse(user.equals(noToken));
+        //the same session with and without a token hash alike, as the token is left out.
+        assertEquals(user.hashCode(), otherToken.hashCode());
+
+        same.wipeThdSsoToken();
+        assertFalse("wiped token still equal", user.equals(same));
+        assertEquals("wiped token not equal to none", noToken, same);
+        assertEquals(same, noToken);
+    }
+
+    static SharedUserSessionData user(String departmentNumber, String firstName, String middleName, String lastName) {
+        return new SharedUserSessionData(departmentNumber, firstName, middleName, lastName, "0121", "STR", "en_US",
+                "ABC1234", "associate", 3, "sso-token", Arrays.asList("store-associates", "managers"));
+    }
+
+    static Parcel parcel(SharedUserSessionData user) {
+        Parcel parcel = Parcel.obtain();
+        user.writeToParcel(parcel, 0);
+        parcel.writeInt(TRAILER);
+        parcel.setDataPosition(0);
+        return parcel;
+    }
+
+    private static Object encodedDetails(SharedUserSessionData user) throws Exception {
+        Field field = SharedUserSessionData.class.getDeclaredField("encodedDetails");
+        field.setAccessible(true);
+        synchronized(user) {
+            return field.get(user);
+        }
+    }
+}
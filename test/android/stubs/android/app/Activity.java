@@ -0,0 +1,54 @@
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Window;
+
+/**
+ * JVM test stand-in.  Tests supply the base context through {@link #attachBaseContext}.
+ */
+public class Activity extends ContextWrapper {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Window window = new Window();
+    private volatile Intent intent = new Intent(Intent.ACTION_MAIN);
+    private volatile boolean finishing = false;
+
+    public Activity() {
+        super(null);
+    }
+
+    public Intent getIntent() {
+        return intent;
+    }
+
+    public void setIntent(Intent intent) {
+        this.intent = intent;
+    }
+
+    public void finish() {
+        finishing = true;
+    }
+
+    public boolean isFinishing() {
+        return finishing;
+    }
+
+    public boolean moveTaskToBack(boolean nonRoot) {
+        return true;
+    }
+
+    public Window getWindow() {
+        return window;
+    }
+
+    public final void runOnUiThread(Runnable action) {
+        if(Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package android.content;
+
+/**
+ * JVM test stand-in with the platform's flattening rules.
+ */
+public final class ComponentName {
+
+    private final String packageName;
+    private final String className;
+
+    public ComponentName(String pkg, String cls) {
+        if(pkg == null || cls == null) {
+            throw new NullPointerException("package name and class name must not be null");
+        }
+        this.packageName = pkg;
+        this.className = cls;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String flattenToString() {
+        return packageName + "/" + className;
+    }
+
+    public String flattenToShortString() {
+        return className.startsWith(packageName + ".") ?
+                packageName + "/" + className.substring(packageName.length()) : flattenToString();
+    }
+
+    public static ComponentName unflattenFromString(String str) {
+        int sep = str.indexOf('/');
+        if(sep < 0 || sep + 1 >= str.length()) {
+            return null;
+        }
+        String pkg = str.substring(0, sep);
+        String cls = str.substring(sep + 1);
+        if(cls.length() > 0 && cls.charAt(0) == '.') {
+            cls = pkg + cls;
+        }
+        return new ComponentName(pkg, cls);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof ComponentName)) {
+            return false;
+        }
+        ComponentName other = (ComponentName) o;
+        return packageName.equals(other.packageName) && className.equals(other.className);
+    }
+
+    @Override
+    public int hashCode() {
+        return packageName.hashCode() + className.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentInfo{" + flattenToString() + "}";
+    }
+}
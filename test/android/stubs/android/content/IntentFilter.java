@@ -0,0 +1,36 @@
+package android.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM test stand-in; only actions are matched.
+ */
+public class IntentFilter {
+
+    private final List<String> actions = new ArrayList<String>();
+    private final List<String> dataSchemes = new ArrayList<String>();
+
+    public IntentFilter() {
+    }
+
+    public IntentFilter(String action) {
+        actions.add(action);
+    }
+
+    public final void addAction(String action) {
+        actions.add(action);
+    }
+
+    public final boolean hasAction(String action) {
+        return action != null && actions.contains(action);
+    }
+
+    public final boolean matchAction(String action) {
+        return hasAction(action);
+    }
+
+    public final void addDataScheme(String scheme) {
+        dataSchemes.add(scheme);
+    }
+}
@@ -0,0 +1,26 @@
+package android.content;
+
+public interface SharedPreferences {
+
+    interface Editor {
+        Editor putString(String key, String value);
+
+        Editor putLong(String key, long value);
+
+        Editor putBoolean(String key, boolean value);
+
+        Editor remove(String key);
+
+        void apply();
+
+        boolean commit();
+    }
+
+    String getString(String key, String defValue);
+
+    long getLong(String key, long defValue);
+
+    boolean getBoolean(String key, boolean defValue);
+
+    Editor edit();
+}
@@ -0,0 +1,11 @@
+package android.content.pm;
+
+public class PackageInfo {
+    public String packageName;
+    public int versionCode;
+    public long lastUpdateTime;
+
+    public long getLongVersionCode() {
+        return versionCode;
+    }
+}
@@ -0,0 +1,29 @@
+package android.content.pm;
+
+import android.content.Intent;
+
+import java.util.List;
+
+public abstract class PackageManager {
+
+    public static final int MATCH_DEFAULT_ONLY = 0x00010000;
+
+    public static class NameNotFoundException extends Exception {
+        public NameNotFoundException() {
+        }
+
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+
+    public abstract ResolveInfo resolveService(Intent intent, int flags);
+
+    public abstract List<ResolveInfo> queryIntentServices(Intent intent, int flags);
+
+    public abstract List<ResolveInfo> queryIntentActivities(Intent intent, int flags);
+
+    public abstract Intent getLaunchIntentForPackage(String packageName);
+
+    public abstract PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException;
+}
@@ -0,0 +1,28 @@
+package android.content.pm;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+
+public class ResolveInfo {
+    public ActivityInfo activityInfo;
+    public ServiceInfo serviceInfo;
+    public int priority;
+    public CharSequence nonLocalizedLabel;
+
+    public CharSequence loadLabel(PackageManager pm) {
+        if(nonLocalizedLabel != null) {
+            return nonLocalizedLabel;
+        }
+        ComponentInfo info = activityInfo != null ? activityInfo : serviceInfo;
+        return info != null ? info.name : null;
+    }
+
+    //like a device, falls back to a default icon; this one draws nothing.
+    public Drawable loadIcon(PackageManager pm) {
+        return new Drawable() {
+            @Override
+            public void draw(Canvas canvas) {
+            }
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package android.graphics;
+
+public class Canvas {
+
+    private final Bitmap bitmap;
+
+    public Canvas(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+}
@@ -0,0 +1,8 @@
+package android.graphics;
+
+public final class Insets {
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+}
@@ -0,0 +1,12 @@
+package android.graphics;
+
+public final class Rect {
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public int height() {
+        return bottom - top;
+    }
+}
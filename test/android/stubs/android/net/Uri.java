@@ -0,0 +1,38 @@
+package android.net;
+
+import java.io.File;
+
+/**
+ * JVM test stand-in holding the string it was parsed from.
+ */
+public abstract class Uri {
+
+    private static final class StringUri extends Uri {
+        private final String value;
+
+        private StringUri(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getSchemeSpecificPart() {
+            int colon = value.indexOf(':');
+            return colon < 0 ? value : value.substring(colon + 1);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    public static Uri parse(String uriString) {
+        return new StringUri(uriString);
+    }
+
+    public static Uri fromFile(File file) {
+        return new StringUri("file://" + file.getAbsolutePath());
+    }
+
+    public abstract String getSchemeSpecificPart();
+}
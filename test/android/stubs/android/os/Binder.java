@@ -0,0 +1,60 @@
+package android.os;
+
+/**
+ * JVM test stand-in: a local binder that hands out the interface attached to it.
+ */
+public class Binder implements IBinder {
+
+    private IInterface owner;
+    private String descriptor;
+
+    public void attachInterface(IInterface owner, String descriptor) {
+        this.owner = owner;
+        this.descriptor = descriptor;
+    }
+
+    @Override
+    public IInterface queryLocalInterface(String descriptor) {
+        return descriptor != null && descriptor.equals(this.descriptor) ? owner : null;
+    }
+
+    @Override
+    public boolean transact(int code, Parcel data, Parcel reply, int flags) throws RemoteException {
+        //as on a device, the callee reads the data and the caller the reply from the start.
+        if(data != null) {
+            data.setDataPosition(0);
+        }
+        boolean handled = onTransact(code, data, reply, flags);
+        if(reply != null) {
+            reply.setDataPosition(0);
+        }
+        return handled;
+    }
+
+    protected boolean onTransact(int code, Parcel data, Parcel reply, int flags) throws RemoteException {
+        return false;
+    }
+
+    @Override
+    public boolean isBinderAlive() {
+        return true;
+    }
+
+    @Override
+    public boolean pingBinder() {
+        return true;
+    }
+
+    @Override
+    public void linkToDeath(DeathRecipient recipient, int flags) {
+    }
+
+    @Override
+    public boolean unlinkToDeath(DeathRecipient recipient, int flags) {
+        return true;
+    }
+
+    public static int getCallingUid() {
+        return 0;
+    }
+}
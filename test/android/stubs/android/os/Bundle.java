@@ -0,0 +1,46 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM test stand-in backed by a map.
+ */
+public class Bundle {
+
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    public void putBinder(String key, IBinder value) {
+        values.put(key, value);
+    }
+
+    public IBinder getBinder(String key) {
+        return (IBinder) values.get(key);
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public String getString(String key) {
+        return (String) values.get(key);
+    }
+
+    public void putLong(String key, long value) {
+        values.put(key, value);
+    }
+
+    public long getLong(String key) {
+        Object value = values.get(key);
+        return value != null ? (Long) value : 0;
+    }
+
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    public int getInt(String key) {
+        Object value = values.get(key);
+        return value != null ? (Integer) value : 0;
+    }
+}
@@ -0,0 +1,40 @@
+package android.os;
+
+/**
+ * JVM test stand-in; messages run on the {@link Looper} thread.
+ */
+public class Handler {
+
+    private final Looper looper;
+
+    public Handler() {
+        this(Looper.myLooper());
+    }
+
+    public Handler(Looper looper) {
+        if(looper == null) {
+            throw new RuntimeException("Can't create handler inside thread that has not called Looper.prepare()");
+        }
+        this.looper = looper;
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return looper.enqueue(this, r, 0);
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return looper.enqueue(this, r, Math.max(0, delayMillis));
+    }
+
+    public final boolean postAtFrontOfQueue(Runnable r) {
+        return looper.enqueue(this, r, 0);
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        looper.remove(this, r);
+    }
+}
@@ -0,0 +1,25 @@
+package android.os;
+
+/**
+ * JVM test stand-in; binders only ever live in this process.
+ */
+public interface IBinder {
+
+    int FIRST_CALL_TRANSACTION = 1;
+
+    interface DeathRecipient {
+        void binderDied();
+    }
+
+    IInterface queryLocalInterface(String descriptor);
+
+    boolean transact(int code, Parcel data, Parcel reply, int flags) throws RemoteException;
+
+    boolean isBinderAlive();
+
+    boolean pingBinder();
+
+    void linkToDeath(DeathRecipient recipient, int flags) throws RemoteException;
+
+    boolean unlinkToDeath(DeathRecipient recipient, int flags);
+}
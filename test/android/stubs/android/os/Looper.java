@@ -0,0 +1,96 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM test stand-in.  The main looper is a single thread that runs posted messages in the order
+ * they fall due; messages posted for the same time run in the order they were posted.
+ */
+public final class Looper {
+
+    private static final Looper MAIN = new Looper("main");
+
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile Thread thread = null;
+
+    //guarded by itself.
+    private final List<Message> pending = new ArrayList<Message>();
+
+    private static final class Message {
+        private final Handler handler;
+        private final Runnable callback;
+        private ScheduledFuture<?> future;
+
+        private Message(Handler handler, Runnable callback) {
+            this.handler = handler;
+            this.callback = callback;
+        }
+    }
+
+    private Looper(final String name) {
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                thread = t;
+                return t;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return Thread.currentThread() == MAIN.thread ? MAIN : null;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    boolean enqueue(Handler handler, Runnable callback, long delayMillis) {
+        final Message message = new Message(handler, callback);
+        synchronized(pending) {
+            pending.add(message);
+            message.future = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized(pending) {
+                        if(!pending.remove(message)) {
+                            return;
+                        }
+                    }
+                    try {
+                        message.callback.run();
+                    } catch(Throwable t) {
+                        System.err.println("Uncaught exception on the main thread:");
+                        t.printStackTrace();
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    void remove(Handler handler, Runnable callback) {
+        synchronized(pending) {
+            for(Iterator<Message> it = pending.iterator(); it.hasNext(); ) {
+                Message message = it.next();
+                if(message.handler == handler && message.callback == callback) {
+                    message.future.cancel(false);
+                    it.remove();
+                }
+            }
+        }
+    }
+}
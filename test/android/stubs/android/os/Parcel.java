@@ -0,0 +1,252 @@
+package android.os;
+
+import java.io.FileDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JVM test stand-in: an in-memory parcel with the platform's data layout, so code that walks a
+ * parcel by offsets reads the same here as on a device.  Values are little-endian and padded to 4
+ * bytes; a byte takes a whole int; a string is its length in chars (-1 for null) followed by the
+ * UTF-16 chars and a NUL terminator.  Binders are kept as objects beside the data, and a parcel
+ * holding any can't be marshalled, as on a device.
+ */
+public final class Parcel {
+
+    private byte[] data = new byte[64];
+    private int size = 0;
+    private int position = 0;
+    private final List<Object> objects = new ArrayList<Object>();
+
+    private Parcel() {
+    }
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        Arrays.fill(data, (byte) 0);
+        size = 0;
+        position = 0;
+        objects.clear();
+    }
+
+    public byte readByte() {
+        return (byte) readInt();
+    }
+
+    public void writeByte(byte val) {
+        writeInt(val);
+    }
+
+    public int readInt() {
+        if(position + 4 > size) {
+            //a device reads past the end as 0.
+            position = size;
+            return 0;
+        }
+        int val = (data[position] & 0xff) | (data[position + 1] & 0xff) << 8 |
+                (data[position + 2] & 0xff) << 16 | (data[position + 3] & 0xff) << 24;
+        position += 4;
+        return val;
+    }
+
+    public void writeInt(int val) {
+        ensureCapacity(position + 4);
+        data[position] = (byte) val;
+        data[position + 1] = (byte) (val >>> 8);
+        data[position + 2] = (byte) (val >>> 16);
+        data[position + 3] = (byte) (val >>> 24);
+        advance(4);
+    }
+
+    public long readLong() {
+        long low = readInt() & 0xffffffffL;
+        long high = readInt() & 0xffffffffL;
+        return low | high << 32;
+    }
+
+    public void writeLong(long val) {
+        writeInt((int) val);
+        writeInt((int) (val >>> 32));
+    }
+
+    public String readString() {
+        int length = readInt();
+        if(length < 0) {
+            return null;
+        }
+
+        char[] chars = new char[length + 1];
+        for(int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ((data[position + i * 2] & 0xff) | (data[position + i * 2 + 1] & 0xff) << 8);
+        }
+        position += pad((length + 1) * 2);
+        return new String(chars, 0, length);
+    }
+
+    public void writeString(String val) {
+        if(val == null) {
+            writeInt(-1);
+            return;
+        }
+
+        writeInt(val.length());
+        int bytes = pad((val.length() + 1) * 2);
+        ensureCapacity(position + bytes);
+        Arrays.fill(data, position, position + bytes, (byte) 0);
+        for(int i = 0; i < val.length(); i++) {
+            data[position + i * 2] = (byte) val.charAt(i);
+            data[position + i * 2 + 1] = (byte) (val.charAt(i) >>> 8);
+        }
+        advance(bytes);
+    }
+
+    public void readStringList(List<String> list) {
+        int count = readInt();
+        list.clear();
+        for(int i = 0; i < count; i++) {
+            list.add(readString());
+        }
+    }
+
+    public void writeStringList(List<String> val) {
+        if(val == null) {
+            writeInt(-1);
+            return;
+        }
+
+        writeInt(val.size());
+        for(String s : val) {
+            writeString(s);
+        }
+    }
+
+    public int dataPosition() {
+        return position;
+    }
+
+    public void setDataPosition(int pos) {
+        position = pos;
+    }
+
+    public int dataSize() {
+        return size;
+    }
+
+    public int dataAvail() {
+        return size - position;
+    }
+
+    public void appendFrom(Parcel parcel, int offset, int length) {
+        ensureCapacity(position + length);
+        System.arraycopy(parcel.data, offset, data, position, length);
+        advance(length);
+    }
+
+    public byte[] marshall() {
+        if(!objects.isEmpty()) {
+            throw new RuntimeException("Tried to marshall a Parcel that contained Binder objects.");
+        }
+        return Arrays.copyOf(data, size);
+    }
+
+    public void unmarshall(byte[] data, int offset, int length) {
+        recycle();
+        ensureCapacity(length);
+        System.arraycopy(data, offset, this.data, 0, length);
+        size = length;
+        position = length;
+    }
+
+    public void writeParcelable(Parcelable p, int flags) {
+        if(p == null) {
+            writeString(null);
+            return;
+        }
+        writeString(p.getClass().getName());
+        p.writeToParcel(this, flags);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T readParcelable(ClassLoader loader) {
+        String name = readString();
+        if(name == null) {
+            return null;
+        }
+
+        try {
+            Class<?> type = Class.forName(name, true, loader != null ? loader : Parcel.class.getClassLoader());
+            Parcelable.Creator<?> creator = (Parcelable.Creator<?>) type.getField("CREATOR").get(null);
+            return (T) creator.createFromParcel(this);
+        } catch(Exception ex) {
+            throw new RuntimeException("Unable to unparcel " + name, ex);
+        }
+    }
+
+    public void writeStrongBinder(IBinder val) {
+        writeObject(val);
+    }
+
+    public IBinder readStrongBinder() {
+        return (IBinder) readObject();
+    }
+
+    public void writeInterfaceToken(String interfaceName) {
+        writeString(interfaceName);
+    }
+
+    public void enforceInterface(String interfaceName) {
+        String token = readString();
+        if(!interfaceName.equals(token)) {
+            throw new SecurityException("Binder invocation to an incorrect interface " + token);
+        }
+    }
+
+    public void writeNoException() {
+        writeInt(0);
+    }
+
+    public void readException() {
+        int code = readInt();
+        if(code != 0) {
+            throw new IllegalStateException(readString());
+        }
+    }
+
+    public void writeFileDescriptor(FileDescriptor val) {
+        throw new UnsupportedOperationException("File descriptors are not available in JVM tests");
+    }
+
+    public ParcelFileDescriptor readFileDescriptor() {
+        throw new UnsupportedOperationException("File descriptors are not available in JVM tests");
+    }
+
+    //objects, such as binders and descriptors, are written as their index beside the data.
+    void writeObject(Object val) {
+        writeInt(objects.size());
+        objects.add(val);
+    }
+
+    Object readObject() {
+        int index = readInt();
+        return index >= 0 && index < objects.size() ? objects.get(index) : null;
+    }
+
+    private static int pad(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private void advance(int bytes) {
+        position += bytes;
+        size = Math.max(size, position);
+    }
+}
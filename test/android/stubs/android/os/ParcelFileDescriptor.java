@@ -0,0 +1,48 @@
+package android.os;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+
+/**
+ * JVM test stand-in; file handoff is not exercised by the tests.
+ */
+public class ParcelFileDescriptor implements Parcelable, Closeable {
+
+    public static final int MODE_READ_ONLY = 0x10000000;
+
+    public static final Parcelable.Creator<ParcelFileDescriptor> CREATOR = null;
+
+    public static ParcelFileDescriptor open(File file, int mode) throws FileNotFoundException {
+        throw new FileNotFoundException("ParcelFileDescriptor is not available in JVM tests");
+    }
+
+    public FileDescriptor getFileDescriptor() {
+        return null;
+    }
+
+    public long getStatSize() {
+        return -1;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+    }
+
+    public static class AutoCloseInputStream extends FileInputStream {
+        public AutoCloseInputStream(ParcelFileDescriptor pfd) {
+            super(pfd.getFileDescriptor());
+        }
+    }
+}
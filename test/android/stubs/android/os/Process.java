@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * JVM test stand-in.
+ */
+public class Process {
+
+    public static long getStartElapsedRealtime() {
+        return 0;
+    }
+
+    public static int myPid() {
+        return 1;
+    }
+}
@@ -0,0 +1,10 @@
+package android.os;
+
+public class ResultReceiver {
+
+    public ResultReceiver(Handler handler) {
+    }
+
+    protected void onReceiveResult(int resultCode, Bundle resultData) {
+    }
+}
@@ -0,0 +1,88 @@
+package android.os;
+
+import android.system.ErrnoException;
+import android.system.OsConstants;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * JVM test stand-in: a region on the heap.  Parcelling it hands over a duplicate, as a device
+ * duplicates the descriptor, so either side can close its copy without affecting the other; a
+ * closed copy can't be mapped any more.
+ */
+public final class SharedMemory implements Parcelable, Closeable {
+
+    public static final Parcelable.Creator<SharedMemory> CREATOR = new Parcelable.Creator<SharedMemory>() {
+        @Override
+        public SharedMemory createFromParcel(Parcel source) {
+            return (SharedMemory) source.readObject();
+        }
+
+        @Override
+        public SharedMemory[] newArray(int size) {
+            return new SharedMemory[size];
+        }
+    };
+
+    private final ByteBuffer region;
+    private int protect = OsConstants.PROT_READ | OsConstants.PROT_WRITE;
+    private boolean closed = false;
+
+    private SharedMemory(ByteBuffer region) {
+        this.region = region;
+    }
+
+    public static SharedMemory create(String name, int size) throws ErrnoException {
+        if(size <= 0) {
+            throw new IllegalArgumentException("Size must be greater than zero");
+        }
+        return new SharedMemory(ByteBuffer.allocate(size));
+    }
+
+    public synchronized ByteBuffer mapReadWrite() throws ErrnoException {
+        if(closed || (protect & OsConstants.PROT_WRITE) == 0) {
+            throw new ErrnoException();
+        }
+        return region.duplicate();
+    }
+
+    public synchronized ByteBuffer mapReadOnly() throws ErrnoException {
+        if(closed) {
+            throw new ErrnoException();
+        }
+        return region.asReadOnlyBuffer();
+    }
+
+    public static void unmap(ByteBuffer buffer) {
+    }
+
+    public synchronized boolean setProtect(int prot) {
+        protect &= prot;
+        return true;
+    }
+
+    public int getSize() {
+        return region.capacity();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public synchronized void writeToParcel(Parcel dest, int flags) {
+        if(closed) {
+            throw new IllegalStateException("SharedMemory is closed");
+        }
+        SharedMemory duplicate = new SharedMemory(region);
+        duplicate.protect = protect;
+        dest.writeObject(duplicate);
+    }
+}
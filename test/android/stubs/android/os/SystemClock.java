@@ -0,0 +1,32 @@
+package android.os;
+
+/**
+ * JVM test stand-in; all clocks count from class initialization and never sleep.
+ */
+public final class SystemClock {
+
+    private static final long BOOT_NANOS = System.nanoTime();
+
+    private SystemClock() {
+    }
+
+    public static long uptimeMillis() {
+        return (System.nanoTime() - BOOT_NANOS) / 1000000;
+    }
+
+    public static long elapsedRealtime() {
+        return (System.nanoTime() - BOOT_NANOS) / 1000000;
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime() - BOOT_NANOS;
+    }
+
+    public static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
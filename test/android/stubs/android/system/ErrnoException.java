@@ -0,0 +1,4 @@
+package android.system;
+
+public class ErrnoException extends Exception {
+}
@@ -0,0 +1,6 @@
+package android.system;
+
+public final class OsConstants {
+    public static final int PROT_READ = 1;
+    public static final int PROT_WRITE = 2;
+}
@@ -0,0 +1,65 @@
+package android.util;
+
+/**
+ * JVM test stand-in.  Info and up are loggable; warnings and errors are printed to stderr.
+ */
+public final class Log {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private Log() {
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= INFO;
+    }
+
+    public static int v(String tag, String msg) {
+        return println(VERBOSE, tag, msg);
+    }
+
+    public static int d(String tag, String msg) {
+        return println(DEBUG, tag, msg);
+    }
+
+    public static int i(String tag, String msg) {
+        return println(INFO, tag, msg);
+    }
+
+    public static int w(String tag, String msg) {
+        return println(WARN, tag, msg);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return println(WARN, tag, msg + '\n' + getStackTraceString(tr));
+    }
+
+    public static int e(String tag, String msg) {
+        return println(ERROR, tag, msg);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return println(ERROR, tag, msg + '\n' + getStackTraceString(tr));
+    }
+
+    public static int println(int priority, String tag, String msg) {
+        if(priority >= WARN) {
+            System.err.println("VDIWEA".charAt(priority - VERBOSE) + "/" + tag + ": " + msg);
+        }
+        return 0;
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        if(tr == null) {
+            return "";
+        }
+        java.io.StringWriter out = new java.io.StringWriter();
+        tr.printStackTrace(new java.io.PrintWriter(out));
+        return out.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package android.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * JVM test stand-in for a view that is never laid out.
+ */
+public class View {
+
+    public static final int NO_ID = -1;
+
+    public static class IBinder {
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ViewTreeObserver observer = new ViewTreeObserver();
+    private final Resources resources = new Resources();
+    private final IBinder windowToken = new IBinder();
+
+    public View() {
+    }
+
+    public View(Context context) {
+    }
+
+    public int getId() {
+        return NO_ID;
+    }
+
+    public IBinder getWindowToken() {
+        return windowToken;
+    }
+
+    public View getRootView() {
+        return this;
+    }
+
+    public ViewTreeObserver getViewTreeObserver() {
+        return observer;
+    }
+
+    public void getWindowVisibleDisplayFrame(Rect outRect) {
+    }
+
+    public WindowInsets getRootWindowInsets() {
+        return new WindowInsets();
+    }
+
+    public int getHeight() {
+        return 0;
+    }
+
+    public boolean post(Runnable action) {
+        return handler.post(action);
+    }
+
+    public boolean postDelayed(Runnable action, long delayMillis) {
+        return handler.postDelayed(action, delayMillis);
+    }
+
+    public boolean removeCallbacks(Runnable action) {
+        handler.removeCallbacks(action);
+        return true;
+    }
+
+    public boolean requestFocus() {
+        return true;
+    }
+
+    public boolean hasWindowFocus() {
+        return true;
+    }
+
+    public Resources getResources() {
+        return resources;
+    }
+
+    public boolean isAttachedToWindow() {
+        return true;
+    }
+}
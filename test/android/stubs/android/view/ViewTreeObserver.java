@@ -0,0 +1,18 @@
+package android.view;
+
+public final class ViewTreeObserver {
+
+    public interface OnGlobalLayoutListener {
+        void onGlobalLayout();
+    }
+
+    public void addOnGlobalLayoutListener(OnGlobalLayoutListener listener) {
+    }
+
+    public void removeOnGlobalLayoutListener(OnGlobalLayoutListener listener) {
+    }
+
+    public boolean isAlive() {
+        return true;
+    }
+}
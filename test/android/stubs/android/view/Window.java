@@ -0,0 +1,10 @@
+package android.view;
+
+public class Window {
+
+    private final View decorView = new View();
+
+    public View getDecorView() {
+        return decorView;
+    }
+}
@@ -0,0 +1,36 @@
+package android.view;
+
+import android.graphics.Insets;
+
+public final class WindowInsets {
+
+    public static final class Type {
+        public static int navigationBars() {
+            return 1 << 1;
+        }
+
+        public static int systemBars() {
+            return 7;
+        }
+
+        public static int ime() {
+            return 1 << 3;
+        }
+    }
+
+    public boolean isVisible(int typeMask) {
+        return false;
+    }
+
+    public Insets getInsets(int typeMask) {
+        return new Insets();
+    }
+
+    public int getSystemWindowInsetBottom() {
+        return 0;
+    }
+
+    public int getStableInsetBottom() {
+        return 0;
+    }
+}
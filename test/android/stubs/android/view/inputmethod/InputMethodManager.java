@@ -0,0 +1,38 @@
+package android.view.inputmethod;
+
+import android.os.ResultReceiver;
+import android.view.View;
+
+public final class InputMethodManager {
+
+    public static final int SHOW_IMPLICIT = 1;
+    public static final int SHOW_FORCED = 2;
+    public static final int RESULT_UNCHANGED_SHOWN = 0;
+    public static final int RESULT_UNCHANGED_HIDDEN = 1;
+    public static final int RESULT_SHOWN = 2;
+    public static final int RESULT_HIDDEN = 3;
+
+    public boolean showSoftInput(View view, int flags) {
+        return false;
+    }
+
+    public boolean showSoftInput(View view, int flags, ResultReceiver resultReceiver) {
+        return false;
+    }
+
+    public boolean hideSoftInputFromWindow(View.IBinder windowToken, int flags) {
+        return false;
+    }
+
+    public boolean hideSoftInputFromWindow(View.IBinder windowToken, int flags, ResultReceiver resultReceiver) {
+        return false;
+    }
+
+    public boolean isAcceptingText() {
+        return false;
+    }
+
+    public boolean isActive(View view) {
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package org.apache.cordova;
+
+import android.view.View;
+
+public interface CordovaWebView {
+    View getView();
+
+    CordovaPreferences getPreferences();
+
+    void sendPluginResult(PluginResult pluginResult, String callbackId);
+}
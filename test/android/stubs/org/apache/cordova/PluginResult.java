@@ -0,0 +1,90 @@
+package org.apache.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * JVM test stand-in keeping the message as the JSON text Cordova would hand to the page.
+ */
+public class PluginResult {
+
+    public enum Status {
+        NO_RESULT,
+        OK,
+        CLASS_NOT_FOUND_EXCEPTION,
+        ILLEGAL_ACCESS_EXCEPTION,
+        INSTANTIATION_EXCEPTION,
+        MALFORMED_URL_EXCEPTION,
+        IO_EXCEPTION,
+        INVALID_ACTION,
+        JSON_EXCEPTION,
+        ERROR
+    }
+
+    private final int status;
+    private final String encodedMessage;
+    private final String strMessage;
+    private boolean keepCallback = false;
+
+    public PluginResult(Status status) {
+        this(status, "null", null);
+    }
+
+    public PluginResult(Status status, String message) {
+        this(status, JSONObject.quote(message), message);
+    }
+
+    public PluginResult(Status status, JSONObject message) {
+        this(status, message.toString(), null);
+    }
+
+    public PluginResult(Status status, JSONArray message) {
+        this(status, message.toString(), null);
+    }
+
+    public PluginResult(Status status, int i) {
+        this(status, String.valueOf(i), null);
+    }
+
+    public PluginResult(Status status, boolean b) {
+        this(status, String.valueOf(b), null);
+    }
+
+    public PluginResult(Status status, float f) {
+        this(status, String.valueOf(f), null);
+    }
+
+    public PluginResult(Status status, byte[] data) {
+        this(status, data, false);
+    }
+
+    public PluginResult(Status status, byte[] data, boolean binaryString) {
+        this(status, "<" + data.length + " bytes>", null);
+    }
+
+    private PluginResult(Status status, String encodedMessage, String strMessage) {
+        this.status = status.ordinal();
+        this.encodedMessage = encodedMessage;
+        this.strMessage = strMessage;
+    }
+
+    public void setKeepCallback(boolean b) {
+        this.keepCallback = b;
+    }
+
+    public boolean getKeepCallback() {
+        return keepCallback;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return encodedMessage;
+    }
+
+    public String getStrMessage() {
+        return strMessage;
+    }
+}
@@ -1,6 +1,36 @@
 var cordova = require('cordova'), exec = require('cordova/exec');
 var KEY = "Plugin.FirstPhoneLauncher";
 
+// Retry policy for session actions that fail with a retryable error.
+var MAX_RETRIES = 3;
+var BASE_RETRY_MS = 250;
+var MAX_RETRY_MS = 10000;
+
+/**
+ * Calls a session action, retrying errors the plugin marks as retryable.  Each retry waits at least the
+ * retryAfterMs the plugin asked for, backs off exponentially, and adds random jitter so that many callers
+ * failing together don't retry in lockstep against the launcher.
+ */
+function execWithRetry(successCallback, failureCallback, action, args) {
+    var attempt = 0;
+
+    function onError(err) {
+        if (err && err.retryable && attempt < MAX_RETRIES) {
+            var delay = Math.min(MAX_RETRY_MS, Math.max(err.retryAfterMs || 0, BASE_RETRY_MS * Math.pow(2, attempt)));
+            attempt++;
+            setTimeout(run, delay + Math.random() * delay / 2);
+        } else if (failureCallback) {
+            failureCallback(err);
+        }
+    }
+
+    function run() {
+        exec(successCallback, onError, KEY, action, args);
+    }
+
+    run();
+}
+
 var FirstPhoneLauncher = function() {
 
 };
@@ -9,16 +39,28 @@ FirstPhoneLauncher.prototype.startApp = function (argsJsonArray, successCallback
     exec(successCallback, failureCallback, KEY, 'startApp', argsJsonArray);
 };
 
+FirstPhoneLauncher.prototype.getStartPayload = function(successCallback, failureCallback) {
+    exec(function(payload) {
+        if (successCallback) {
+            successCallback(payload ? JSON.parse(payload) : null);
+        }
+    }, failureCallback, KEY, 'getStartPayload', []);
+};
+
 FirstPhoneLauncher.prototype.getDevice = function(successCallback, failureCallback) {
-    exec(successCallback, failureCallback, KEY, 'getDevice', []);
+    execWithRetry(successCallback, failureCallback, 'getDevice', []);
 };
 
 FirstPhoneLauncher.prototype.getUser = function(successCallback, failureCallback) {
-    exec(successCallback, failureCallback, KEY, 'getUser', []);
+    execWithRetry(successCallback, failureCallback, 'getUser', []);
+};
+
+FirstPhoneLauncher.prototype.getSsoToken = function(successCallback, failureCallback) {
+    execWithRetry(successCallback, failureCallback, 'getSsoToken', []);
 };
 
-FirstPhoneLauncher.prototype.exit = function(successCallback, failureCallback) {
-    exec(successCallback, failureCallback, KEY, 'exit', []);
+FirstPhoneLauncher.prototype.exit = function(successCallback, failureCallback, options) {
+    exec(successCallback, failureCallback, KEY, 'exit', options ? [options] : []);
 };
 
 FirstPhoneLauncher.prototype.goHome = function(successCallback, failureCallback) {
@@ -29,8 +71,28 @@ FirstPhoneLauncher.prototype.dial = function(number, successCallback, failureCal
     exec(successCallback, failureCallback, KEY, 'dial', [number]);
 };
 
+FirstPhoneLauncher.prototype.getVoiceSettings = function(successCallback, failureCallback) {
+    execWithRetry(successCallback, failureCallback, 'getVoiceSettings', []);
+};
+
+FirstPhoneLauncher.prototype.watchPttChannels = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'watchPttChannels', []);
+};
+
+FirstPhoneLauncher.prototype.clearPttChannelWatch = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'clearPttChannelWatch', []);
+};
+
+FirstPhoneLauncher.prototype.searchDirectory = function(prefix, limit, successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'searchDirectory', [prefix, limit]);
+};
+
+FirstPhoneLauncher.prototype.getAppCatalog = function(packagePrefix, successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'getAppCatalog', [packagePrefix || ""]);
+};
+
 FirstPhoneLauncher.prototype.getSettings = function(successCallback, failureCallback) {
-    exec(successCallback, failureCallback, KEY, 'getSettings', []);
+    execWithRetry(successCallback, failureCallback, 'getSettings', []);
 };
 
 FirstPhoneLauncher.prototype.showKeyboard = function(successCallback, failureCallback) {
@@ -41,6 +103,38 @@ FirstPhoneLauncher.prototype.hideKeyboard = function(successCallback, failureCal
     exec(successCallback, failureCallback, KEY, 'hideKeyboard', []);
 };
 
+FirstPhoneLauncher.prototype.watchKeyboard = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'watchKeyboard', []);
+};
+
+FirstPhoneLauncher.prototype.clearKeyboardWatch = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'clearKeyboardWatch', []);
+};
+
+FirstPhoneLauncher.prototype.getStartupTimeline = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'getStartupTimeline', []);
+};
+
+FirstPhoneLauncher.prototype.getSessionStats = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'getSessionStats', []);
+};
+
+FirstPhoneLauncher.prototype.watchShutdown = function(successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'watchShutdown', []);
+};
+
+FirstPhoneLauncher.prototype.saveCheckpoint = function(state, successCallback, failureCallback) {
+    exec(successCallback, failureCallback, KEY, 'saveCheckpoint', [JSON.stringify(state)]);
+};
+
+FirstPhoneLauncher.prototype.restoreCheckpoint = function(successCallback, failureCallback) {
+    exec(function(state) {
+        if (successCallback) {
+            successCallback(state ? JSON.parse(state) : null);
+        }
+    }, failureCallback, KEY, 'restoreCheckpoint', []);
+};
+
 var launcher = new FirstPhoneLauncher();
 
 module.exports = launcher;